@@ -8,12 +8,25 @@ public class MFApiRequest implements MediaFireApiRequest {
     private final Map<String, Object> queryParameters;
     private final byte[] payload;
     private final Map<String, Object> headers;
+    private final MediaFireHttpProgressListener progressListener;
 
     public MFApiRequest(String path, Map<String, Object> queryParameters, byte[] payload, Map<String, Object> headers) {
+        this(path, queryParameters, payload, headers, null);
+    }
+
+    /**
+     * @param path
+     * @param queryParameters
+     * @param payload
+     * @param headers
+     * @param progressListener told as the payload is written, may be null
+     */
+    public MFApiRequest(String path, Map<String, Object> queryParameters, byte[] payload, Map<String, Object> headers, MediaFireHttpProgressListener progressListener) {
         this.payload = payload;
         this.path = path;
         this.queryParameters = queryParameters;
         this.headers = headers;
+        this.progressListener = progressListener;
     }
 
     @Override
@@ -36,6 +49,13 @@ public class MFApiRequest implements MediaFireApiRequest {
         return payload;
     }
 
+    /**
+     * @return listener told as the payload is written, null if there is none
+     */
+    public MediaFireHttpProgressListener getProgressListener() {
+        return progressListener;
+    }
+
     @Override
     public String toString() {
         return "MFApiRequest{" +
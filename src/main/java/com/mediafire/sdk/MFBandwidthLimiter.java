@@ -0,0 +1,119 @@
+package com.mediafire.sdk;
+
+import com.mediafire.sdk.response_models.data_models.UserSettingsModel;
+import com.mediafire.sdk.response_models.user.UserGetSettingsResponse;
+
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket which limits the bytes per second passed through it. The bucket holds up to one second of tokens, so
+ * short bursts are allowed after an idle period. Callers take tokens after moving data and sleep off any debt, so
+ * threads sharing a limiter are limited together. The rate can be changed at any time.
+ */
+public class MFBandwidthLimiter {
+
+    public static final long UNLIMITED = 0;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private long bytesPerSecond;
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * @param bytesPerSecond UNLIMITED for no limit
+     */
+    public MFBandwidthLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(UNLIMITED, bytesPerSecond);
+        this.tokens = this.bytesPerSecond;
+    }
+
+    /**
+     * @param bytesPerSecond UNLIMITED for no limit
+     */
+    public void setRate(long bytesPerSecond) {
+        lock.lock();
+        try {
+            refillLocked();
+            this.bytesPerSecond = Math.max(UNLIMITED, bytesPerSecond);
+            this.tokens = Math.min(this.tokens, this.bytesPerSecond);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRate() {
+        lock.lock();
+        try {
+            return this.bytesPerSecond;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * takes tokens for bytes which were or are about to be moved, sleeping until the bucket is no longer in debt
+     * @param bytes
+     * @throws InterruptedIOException if interrupted while sleeping, the thread's interrupt status is set again
+     */
+    public void acquire(long bytes) throws InterruptedIOException {
+        long waitNanos;
+        lock.lock();
+        try {
+            if (this.bytesPerSecond == UNLIMITED) {
+                return;
+            }
+            refillLocked();
+            this.tokens -= bytes;
+            if (this.tokens >= 0) {
+                return;
+            }
+            waitNanos = (long) (-this.tokens * TimeUnit.SECONDS.toNanos(1) / this.bytesPerSecond);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for bandwidth");
+        }
+    }
+
+    /**
+     * sets the rate from the account's auto bandwidth setting: autoBytesPerSecond if it is enabled, otherwise no
+     * limit
+     * @param mediaFire
+     * @param autoBytesPerSecond
+     * @throws MediaFireException if the settings could not be read
+     */
+    public void applyAutoBandwidth(MediaFireClient mediaFire, long autoBytesPerSecond) throws MediaFireException {
+        MediaFireApiRequest request = new MFApiRequest("/user/get_settings.php", new LinkedHashMap<String, Object>(), null, null);
+        UserGetSettingsResponse response = mediaFire.sessionRequest(request, UserGetSettingsResponse.class);
+        if (response.hasError() || response.getSettings() == null) {
+            throw new MediaFireException("user/get_settings failed: " + response.getMessage());
+        }
+        setRate(getAutoBandwidthRate(response.getSettings(), autoBytesPerSecond));
+    }
+
+    /**
+     * @param settings
+     * @param autoBytesPerSecond
+     * @return autoBytesPerSecond if auto bandwidth is enabled for the account, otherwise UNLIMITED
+     */
+    public static long getAutoBandwidthRate(UserSettingsModel settings, long autoBytesPerSecond) {
+        return settings.getAutoBandwidth().isEnabled() ? autoBytesPerSecond : UNLIMITED;
+    }
+
+    private void refillLocked() {
+        long now = System.nanoTime();
+        if (this.bytesPerSecond != UNLIMITED) {
+            double refill = (double) (now - this.lastRefill) * this.bytesPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = Math.min(this.bytesPerSecond, this.tokens + refill);
+        }
+        this.lastRefill = now;
+    }
+}
@@ -10,6 +10,8 @@ import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class MFClient implements MediaFireClient {
 
@@ -24,7 +26,9 @@ public class MFClient implements MediaFireClient {
     private final MediaFireApiResponseParser parser;
     private final String applicationId;
     private final String apiKey;
-    private final Object storeLock = new Object();
+    // java.util.concurrent locks rather than monitors so token requests made on virtual threads do not pin them
+    private final Lock storeLock = new ReentrantLock();
+    private final Lock imageTokenLock = new ReentrantLock();
 
     protected MFClient(Builder builder) {
         this.apiVersion = builder.apiVersion;
@@ -82,7 +86,8 @@ public class MFClient implements MediaFireClient {
 
         MediaFireActionToken mediaFireActionToken;
 
-        synchronized (getSessionStore()) {
+        imageTokenLock.lock();
+        try {
             if (!getSessionStore().isActionTokenAvailable(MediaFireActionToken.TYPE_IMAGE)) {
                 mediaFireActionToken = requestNewActionToken(MediaFireActionToken.TYPE_IMAGE);
                 if (mediaFireActionToken == null) {
@@ -92,6 +97,8 @@ public class MFClient implements MediaFireClient {
             } else {
                 mediaFireActionToken = getSessionStore().getActionToken(MediaFireActionToken.TYPE_IMAGE);
             }
+        } finally {
+            imageTokenLock.unlock();
         }
 
         if (mediaFireActionToken == null) {
@@ -116,7 +123,8 @@ public class MFClient implements MediaFireClient {
 
         MediaFireActionToken mediaFireActionToken;
 
-        synchronized (storeLock) {
+        storeLock.lock();
+        try {
             if (!getSessionStore().isActionTokenAvailable(MediaFireActionToken.TYPE_UPLOAD)) {
                 mediaFireActionToken = requestNewActionToken(MediaFireActionToken.TYPE_UPLOAD);
                 if (mediaFireActionToken == null) {
@@ -126,6 +134,8 @@ public class MFClient implements MediaFireClient {
             } else {
                 mediaFireActionToken = getSessionStore().getActionToken(MediaFireActionToken.TYPE_UPLOAD);
             }
+        } finally {
+            storeLock.unlock();
         }
 
         if (mediaFireActionToken == null) {
@@ -154,7 +164,8 @@ public class MFClient implements MediaFireClient {
 
         url.append(encodedQuery);
 
-        MediaFireHttpRequest mediaFireHttpRequest = new MFHttpRequest(url.toString(), request.getPayload(), headers);
+        MediaFireHttpProgressListener progressListener = request instanceof MFApiRequest ? ((MFApiRequest) request).getProgressListener() : null;
+        MediaFireHttpRequest mediaFireHttpRequest = new MFHttpRequest(url.toString(), request.getPayload(), headers, progressListener);
         MediaFireHttpResponse mediaFireHttpResponse = getHttpRequester().post(mediaFireHttpRequest);
         return getResponseParser().parseResponse(mediaFireHttpResponse, classOfT);
     }
@@ -179,12 +190,15 @@ public class MFClient implements MediaFireClient {
 
         MediaFireSessionToken mediaFireSessionToken;
 
-        synchronized (storeLock) {
+        storeLock.lock();
+        try {
             if (!getSessionStore().isSessionTokenV2Available()) {
                 mediaFireSessionToken = requestNewSessionToken();
             } else {
                 mediaFireSessionToken = getSessionStore().getSessionTokenV2();
             }
+        } finally {
+            storeLock.unlock();
         }
 
         if (mediaFireSessionToken == null) {
@@ -8,12 +8,24 @@ public class MFHttpRequest implements MediaFireHttpRequest {
     private final String url;
     private final byte[] payload;
     private final Map<String, Object> headers;
+    private final MediaFireHttpProgressListener progressListener;
 
     public MFHttpRequest(String url, byte[] payload, Map<String, Object> headers) {
+        this(url, payload, headers, null);
+    }
+
+    /**
+     * @param url
+     * @param payload
+     * @param headers
+     * @param progressListener told as the payload is written, may be null
+     */
+    public MFHttpRequest(String url, byte[] payload, Map<String, Object> headers, MediaFireHttpProgressListener progressListener) {
 
         this.url = url;
         this.payload = payload;
         this.headers = headers;
+        this.progressListener = progressListener;
     }
 
     @Override
@@ -31,6 +43,13 @@ public class MFHttpRequest implements MediaFireHttpRequest {
         return headers;
     }
 
+    /**
+     * @return listener told as the payload is written, null if there is none
+     */
+    public MediaFireHttpProgressListener getProgressListener() {
+        return progressListener;
+    }
+
     @Override
     public String toString() {
         return "MFHttpRequest{" +
@@ -4,20 +4,68 @@ import javax.net.ssl.HttpsURLConnection;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class MFHttpRequester implements MediaFireHttpRequester {
+    private static final int WRITE_CHUNK_SIZE = 16 * 1024;
+    private static final String HEADER_EXPECT = "Expect";
+    private static final String EXPECT_CONTINUE = "100-continue";
+    private static final int STATUS_EXPECTATION_FAILED = 417;
+    private static final long IGNORE_EXPECT_AFTER_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
     private final MediaFireHttpsAgent httpsAgent;
     private final int connectionTimeout;
     private final int readTimeout;
+    private final MFBandwidthLimiter uploadLimiter;
+    private final MFBandwidthLimiter downloadLimiter;
+    private final boolean expectContinue;
+    private final ConcurrentMap<String, Long> hostsIgnoringExpect = new ConcurrentHashMap<>();
 
     public MFHttpRequester(MediaFireHttpsAgent httpsAgent, int connectionTimeout, int readTimeout) {
+        this(httpsAgent, connectionTimeout, readTimeout, null, null);
+    }
+
+    /**
+     * @param httpsAgent
+     * @param connectionTimeout
+     * @param readTimeout
+     * @param uploadLimiter limits request payloads written by every request, may be null
+     * @param downloadLimiter limits responses read by every request, may be null
+     */
+    public MFHttpRequester(MediaFireHttpsAgent httpsAgent, int connectionTimeout, int readTimeout, MFBandwidthLimiter uploadLimiter, MFBandwidthLimiter downloadLimiter) {
+        this(httpsAgent, connectionTimeout, readTimeout, uploadLimiter, downloadLimiter, false);
+    }
+
+    /**
+     * with expectContinue, payloads are sent with Expect: 100-continue and only written once the server accepts the
+     * headers. HttpURLConnection cannot read the body of a refusal, so a refused request is made again without the
+     * header, payload included, and a server which never answers the expectation costs one read timeout before the
+     * request is made without it. worth enabling only where refusals, e.g. expired tokens, are rare next to the
+     * payloads they save.
+     * @param httpsAgent
+     * @param connectionTimeout
+     * @param readTimeout also bounds the wait for 100 Continue
+     * @param uploadLimiter limits request payloads written by every request, may be null
+     * @param downloadLimiter limits responses read by every request, may be null
+     * @param expectContinue true to wait for the server before sending payloads
+     */
+    public MFHttpRequester(MediaFireHttpsAgent httpsAgent, int connectionTimeout, int readTimeout, MFBandwidthLimiter uploadLimiter, MFBandwidthLimiter downloadLimiter, boolean expectContinue) {
         this.httpsAgent = httpsAgent;
         this.connectionTimeout = connectionTimeout;
         this.readTimeout = readTimeout;
+        this.uploadLimiter = uploadLimiter;
+        this.downloadLimiter = downloadLimiter;
+        this.expectContinue = expectContinue;
     }
 
     public MFHttpRequester(int connectionTimeout, int readTimeout) {
@@ -39,18 +87,59 @@ public class MFHttpRequester implements MediaFireHttpRequester {
         return httpsAgent;
     }
 
+    /**
+     * @return limiter of request payloads, null if they are not limited
+     */
+    public MFBandwidthLimiter getUploadLimiter() {
+        return uploadLimiter;
+    }
+
+    /**
+     * @return limiter of responses, null if they are not limited
+     */
+    public MFBandwidthLimiter getDownloadLimiter() {
+        return downloadLimiter;
+    }
+
     private MediaFireHttpResponse makeRequest(MediaFireHttpRequest request, boolean doOutput) throws MediaFireException {
+        return makeRequest(request, doOutput, true);
+    }
+
+    private MediaFireHttpResponse makeRequest(MediaFireHttpRequest request, boolean doOutput, boolean allowExpect) throws MediaFireException {
         try {
             String urlString = request.getRequestUrl();
             Map<String, Object> headers = request.getRequestHeaders();
             byte[] payload = request.getRequestPayload();
 
-            HttpsURLConnection connection = createHttpsUrlConnection(urlString);
+            HttpURLConnection connection = createHttpUrlConnection(urlString);
+            String host = connection.getURL().getAuthority();
+            boolean expectContinue = allowExpect && this.expectContinue && doOutput && payload != null && !isIgnoringExpect(host);
 
-            setupConnection(connection, headers, doOutput);
+            setupConnection(connection, headers, doOutput, expectContinue);
 
             if (doOutput && payload != null) {
-                connection.getOutputStream().write(payload);
+                MediaFireHttpProgressListener progressListener = request instanceof MFHttpRequest ? ((MFHttpRequest) request).getProgressListener() : null;
+                if (expectContinue) {
+                    connection.setFixedLengthStreamingMode(payload.length);
+                    OutputStream outputStream;
+                    try {
+                        // every call waits for 100 Continue again, the stream is only asked for once
+                        outputStream = connection.getOutputStream();
+                    } catch (SocketTimeoutException e) {
+                        // the server is slow to answer or ignores the expectation, leave it out for a while
+                        connection.disconnect();
+                        this.hostsIgnoringExpect.put(host, System.currentTimeMillis() + IGNORE_EXPECT_AFTER_TIMEOUT_MILLIS);
+                        return makeRequest(request, doOutput, false);
+                    } catch (ProtocolException e) {
+                        return onRefused(connection, host, request, doOutput);
+                    }
+                    writePayload(connection, outputStream, payload, progressListener);
+                } else if (progressListener == null && this.uploadLimiter == null) {
+                    connection.getOutputStream().write(payload);
+                } else {
+                    connection.setFixedLengthStreamingMode(payload.length);
+                    writePayload(connection, connection.getOutputStream(), payload, progressListener);
+                }
             }
 
             MediaFireHttpResponse response = getResponse(connection);
@@ -60,9 +149,75 @@ public class MFHttpRequester implements MediaFireHttpRequester {
         }
     }
 
-    private HttpsURLConnection createHttpsUrlConnection(String url) throws MediaFireException {
+    /**
+     * handles a final response received instead of 100 Continue, before any of the payload was sent. the refusal is
+     * returned like any other response so the api error in it (e.g. an expired token) can be parsed. when the
+     * connection has already dropped its body the request is made once more without the header, which sends the
+     * payload but gets the same answer in full.
+     */
+    private MediaFireHttpResponse onRefused(HttpURLConnection connection, String host, MediaFireHttpRequest request, boolean doOutput) throws IOException, MediaFireException {
+        int responseCode = connection.getResponseCode();
+        if (responseCode == STATUS_EXPECTATION_FAILED) {
+            // the server does not support the expectation at all
+            connection.disconnect();
+            this.hostsIgnoringExpect.put(host, Long.MAX_VALUE);
+            return makeRequest(request, doOutput, false);
+        }
+
+        InputStream errorStream = connection.getErrorStream();
+        if (errorStream == null) {
+            connection.disconnect();
+            return makeRequest(request, doOutput, false);
+        }
+        byte[] body;
+        try {
+            body = readStream(errorStream);
+        } finally {
+            errorStream.close();
+        }
+        return new MFHttpResponse(responseCode, body, connection.getHeaderFields());
+    }
+
+    private boolean isIgnoringExpect(String host) {
+        Long until = this.hostsIgnoringExpect.get(host);
+        if (until == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() < until) {
+            return true;
+        }
+        this.hostsIgnoringExpect.remove(host, until);
+        return false;
+    }
+
+    /**
+     * streams the payload in chunks so progress reflects what has actually been handed to the socket rather than
+     * to an in memory buffer, and so the upload limiter can pace the writes. an interrupt of the calling thread
+     * aborts the request between chunks. the connection must already be in fixed length streaming mode.
+     */
+    private void writePayload(HttpURLConnection connection, OutputStream outputStream, byte[] payload, MediaFireHttpProgressListener progressListener) throws IOException {
+        int offset = 0;
+        while (offset < payload.length) {
+            if (Thread.currentThread().isInterrupted()) {
+                connection.disconnect();
+                throw new InterruptedIOException("interrupted after sending " + offset + " of " + payload.length + " bytes");
+            }
+            int count = Math.min(WRITE_CHUNK_SIZE, payload.length - offset);
+            if (this.uploadLimiter != null) {
+                this.uploadLimiter.acquire(count);
+            }
+            outputStream.write(payload, offset, count);
+            offset += count;
+            if (progressListener != null) {
+                progressListener.onBytesSent(count);
+            }
+        }
+        outputStream.flush();
+    }
+
+    private HttpURLConnection createHttpUrlConnection(String url) throws MediaFireException {
         try {
-            return (HttpsURLConnection) new URL(url).openConnection();
+            return (HttpURLConnection) new URL(url).openConnection();
         } catch (MalformedURLException e) {
             throw new MediaFireException("bad url: " + url, e);
         } catch (IOException e) {
@@ -70,7 +225,7 @@ public class MFHttpRequester implements MediaFireHttpRequester {
         }
     }
 
-    private void setupConnection(HttpsURLConnection connection, Map<String, Object> headers, boolean doOutput) {
+    private void setupConnection(HttpURLConnection connection, Map<String, Object> headers, boolean doOutput, boolean expectContinue) {
 
         connection.setConnectTimeout(connectionTimeout);
         connection.setReadTimeout(readTimeout);
@@ -79,18 +234,26 @@ public class MFHttpRequester implements MediaFireHttpRequester {
 
         if (headers != null && !headers.isEmpty()) {
             for (String key : headers.keySet()) {
+                if (HEADER_EXPECT.equalsIgnoreCase(key)) {
+                    // only sent when the handshake is carried out below
+                    continue;
+                }
                 if (headers.get(key) != null) {
                     connection.addRequestProperty(key, String.valueOf(headers.get(key)));
                 }
             }
         }
 
-        if (getHttpsAgent() != null) {
-            getHttpsAgent().configureHttpsUrlConnection(connection);
+        if (expectContinue) {
+            connection.addRequestProperty(HEADER_EXPECT, EXPECT_CONTINUE);
+        }
+
+        if (getHttpsAgent() != null && connection instanceof HttpsURLConnection) {
+            getHttpsAgent().configureHttpsUrlConnection((HttpsURLConnection) connection);
         }
     }
 
-    private MediaFireHttpResponse getResponse(HttpsURLConnection connection) throws IOException {
+    private MediaFireHttpResponse getResponse(HttpURLConnection connection) throws IOException {
         int responseCode = connection.getResponseCode();
         InputStream inputStream;
         inputStream = responseCode / 100 != 2 ? connection.getErrorStream() : connection.getInputStream();
@@ -112,6 +275,9 @@ public class MFHttpRequester implements MediaFireHttpRequester {
         int count;
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream(1024);
         while ((count = inputStream.read(buffer)) != -1) {
+            if (this.downloadLimiter != null) {
+                this.downloadLimiter.acquire(count);
+            }
             outputStream.write(buffer, 0, count);
         }
 
@@ -3,6 +3,8 @@ package com.mediafire.sdk;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class MFSessionStore implements MediaFireSessionStore {
 
@@ -13,9 +15,9 @@ public class MFSessionStore implements MediaFireSessionStore {
     private MediaFireActionToken uploadToken;
     private MediaFireActionToken imageToken;
 
-    // locks
-    private final Object uploadTokenLock = new Object();
-    private final Object imageTokenLock = new Object();
+    // locks, java.util.concurrent so callers on virtual threads do not pin their carrier
+    private final Lock uploadTokenLock = new ReentrantLock();
+    private final Lock imageTokenLock = new ReentrantLock();
 
     public MFSessionStore() {
     }
@@ -51,13 +53,19 @@ public class MFSessionStore implements MediaFireSessionStore {
         MediaFireActionToken token;
         switch (type) {
             case MediaFireActionToken.TYPE_IMAGE:
-                synchronized (imageTokenLock) {
+                imageTokenLock.lock();
+                try {
                     token = imageToken;
+                } finally {
+                    imageTokenLock.unlock();
                 }
                 break;
             case MediaFireActionToken.TYPE_UPLOAD:
-                synchronized (uploadTokenLock) {
+                uploadTokenLock.lock();
+                try {
                     token = uploadToken;
+                } finally {
+                    uploadTokenLock.unlock();
                 }
                 break;
             default:
@@ -72,14 +80,20 @@ public class MFSessionStore implements MediaFireSessionStore {
 
         switch (token.getType()) {
             case MediaFireActionToken.TYPE_IMAGE:
-                synchronized (imageTokenLock) {
+                imageTokenLock.lock();
+                try {
                     this.imageToken = token;
                     return true;
+                } finally {
+                    imageTokenLock.unlock();
                 }
             case MediaFireActionToken.TYPE_UPLOAD:
-                synchronized (uploadTokenLock) {
+                uploadTokenLock.lock();
+                try {
                     this.uploadToken = token;
                     return true;
+                } finally {
+                    uploadTokenLock.unlock();
                 }
         }
         return false;
@@ -102,8 +116,13 @@ public class MFSessionStore implements MediaFireSessionStore {
         return available;
     }
 
-    private synchronized boolean isImageTokenAvailable() {
-        return imageToken != null && !isTokenExpired(imageToken);
+    private boolean isImageTokenAvailable() {
+        imageTokenLock.lock();
+        try {
+            return imageToken != null && !isTokenExpired(imageToken);
+        } finally {
+            imageTokenLock.unlock();
+        }
     }
 
     private boolean isTokenExpired(MediaFireActionToken token) {
@@ -117,14 +136,29 @@ public class MFSessionStore implements MediaFireSessionStore {
         return System.currentTimeMillis() >= expireTime + EXPIRE_THRESHOLD;
     }
 
-    private synchronized boolean isUploadTokenAvailable() {
-        return uploadToken != null && !isTokenExpired(uploadToken);
+    private boolean isUploadTokenAvailable() {
+        uploadTokenLock.lock();
+        try {
+            return uploadToken != null && !isTokenExpired(uploadToken);
+        } finally {
+            uploadTokenLock.unlock();
+        }
     }
 
     @Override
     public void clear() {
         sessionTokens.clear();
-        uploadToken = null;
-        imageToken = null;
+        uploadTokenLock.lock();
+        try {
+            uploadToken = null;
+        } finally {
+            uploadTokenLock.unlock();
+        }
+        imageTokenLock.lock();
+        try {
+            imageToken = null;
+        } finally {
+            imageTokenLock.unlock();
+        }
     }
 }
@@ -0,0 +1,9 @@
+package com.mediafire.sdk;
+
+public interface MediaFireHttpProgressListener {
+    /**
+     * called from the thread writing a request payload each time part of it has been written to the connection
+     * @param bytes number of bytes written since the last call
+     */
+    void onBytesSent(long bytes);
+}
@@ -10,6 +10,7 @@ public class UploadCheckResponse extends ApiResponse {
     private String file_exists;
     private String different_hash;
     private String duplicate_quickkey;
+    private String preemptive_quickkey;
     private long available_space;
     private long used_storage_size;
     private long storage_limit;
@@ -56,6 +57,10 @@ public class UploadCheckResponse extends ApiResponse {
         return duplicate_quickkey;
     }
 
+    public String getPreemptiveQuickkey() {
+        return preemptive_quickkey;
+    }
+
     public long getAvailableSpace() {
         return available_space;
     }
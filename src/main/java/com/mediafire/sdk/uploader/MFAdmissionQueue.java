@@ -0,0 +1,235 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds how many uploads the uploader works on at once and how many more it holds waiting to start. An upload is
+ * admitted when it fits in either; admitted uploads start in priority order as running ones end. Callers that do not
+ * fit can be turned away, block until there is room, or wait asynchronously in arrival order. An admitted upload's
+ * callback always runs before the upload can be started, by any thread.
+ */
+class MFAdmissionQueue {
+
+    private final int maxActive;
+    private final int maxPending;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition roomAvailable = lock.newCondition();
+    private final PriorityQueue<Entry> pending = new PriorityQueue<>();
+    private final Deque<Entry> waiting = new ArrayDeque<>();
+    private int active;
+    // admitted to wait, not yet in pending until their admitted callback has run
+    private int reserved;
+    private long sequence;
+
+    MFAdmissionQueue(int maxActive, int maxPending) {
+        this.maxActive = Math.max(1, maxActive);
+        this.maxPending = Math.max(0, maxPending);
+    }
+
+    /**
+     * admits the upload if there is room without waiting
+     * @param priority
+     * @param admitted run when the upload is admitted
+     * @param start run when the upload may start
+     * @return false if there was no room, nothing is run in that case
+     */
+    boolean tryAdmit(int priority, Runnable admitted, Runnable start) {
+        List<Runnable> toRun = new ArrayList<>();
+        lock.lock();
+        try {
+            if (!this.waiting.isEmpty() || !hasRoomLocked()) {
+                return false;
+            }
+            admitLocked(new Entry(priority, this.sequence++, admitted, start), toRun);
+        } finally {
+            lock.unlock();
+        }
+        runAll(toRun);
+        return true;
+    }
+
+    /**
+     * admits the upload, waiting for room if needed. an interrupt does not stop the wait, the thread's interrupt
+     * status is set again once the upload is admitted.
+     * @param priority
+     * @param admitted run when the upload is admitted
+     * @param start run when the upload may start
+     */
+    void admit(int priority, Runnable admitted, Runnable start) {
+        List<Runnable> toRun = new ArrayList<>();
+        boolean interrupted = false;
+        lock.lock();
+        try {
+            while (!this.waiting.isEmpty() || !hasRoomLocked()) {
+                try {
+                    this.roomAvailable.await();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            admitLocked(new Entry(priority, this.sequence++, admitted, start), toRun);
+        } finally {
+            lock.unlock();
+        }
+        runAll(toRun);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * admits the upload now if there is room, otherwise once earlier waiting uploads have been admitted and there
+     * is room. an admission whose future was cancelled while waiting is skipped.
+     * @param priority
+     * @param admitted run when the upload is admitted, completing the future
+     * @param start run when the upload may start
+     */
+    <T extends Runnable & Future<?>> void admitAsync(int priority, T admitted, Runnable start) {
+        List<Runnable> toRun = new ArrayList<>();
+        lock.lock();
+        try {
+            Entry entry = new Entry(priority, this.sequence++, admitted, start);
+            if (this.waiting.isEmpty() && hasRoomLocked()) {
+                admitLocked(entry, toRun);
+            } else {
+                entry.future = admitted;
+                this.waiting.add(entry);
+            }
+        } finally {
+            lock.unlock();
+        }
+        runAll(toRun);
+    }
+
+    /**
+     * called once for every admitted upload that has finished or failed
+     */
+    void onEnded() {
+        List<Runnable> toRun = new ArrayList<>();
+        lock.lock();
+        try {
+            this.active--;
+            while (this.active < this.maxActive && !this.pending.isEmpty()) {
+                this.active++;
+                toRun.add(this.pending.poll().start);
+            }
+            while (!this.waiting.isEmpty() && hasRoomLocked()) {
+                Entry entry = this.waiting.poll();
+                if (entry.future != null && entry.future.isCancelled()) {
+                    continue;
+                }
+                admitLocked(entry, toRun);
+            }
+            this.roomAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        runAll(toRun);
+    }
+
+    int getActiveCount() {
+        lock.lock();
+        try {
+            return this.active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getPendingCount() {
+        lock.lock();
+        try {
+            return this.pending.size() + this.reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getWaitingCount() {
+        lock.lock();
+        try {
+            return this.waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasRoomLocked() {
+        return this.active < this.maxActive || this.pending.size() + this.reserved < this.maxPending;
+    }
+
+    private void admitLocked(Entry entry, List<Runnable> toRun) {
+        toRun.add(entry.admitted);
+        if (this.active < this.maxActive) {
+            this.active++;
+            toRun.add(entry.start);
+        } else {
+            // onEnded() must not find it before its admitted callback has run
+            this.reserved++;
+            toRun.add(enqueue(entry));
+        }
+    }
+
+    /**
+     * @return adds the entry to pending, or starts it if a running upload ended meanwhile
+     */
+    private Runnable enqueue(final Entry entry) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                boolean start = false;
+                lock.lock();
+                try {
+                    reserved--;
+                    if (active < maxActive) {
+                        active++;
+                        start = true;
+                    } else {
+                        pending.add(entry);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                if (start) {
+                    entry.start.run();
+                }
+            }
+        };
+    }
+
+    private static void runAll(List<Runnable> runnables) {
+        for (Runnable runnable : runnables) {
+            runnable.run();
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final int priority;
+        private final long sequence;
+        private final Runnable admitted;
+        private final Runnable start;
+        private Future<?> future;
+
+        Entry(int priority, long sequence, Runnable admitted, Runnable start) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.admitted = admitted;
+            this.start = start;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            if (this.priority != other.priority) {
+                return this.priority > other.priority ? -1 : 1;
+            }
+            return this.sequence < other.sequence ? -1 : this.sequence == other.sequence ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mediafire.sdk.uploader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append only record log. Each record is a single line of url encoded fields followed by a CRC32 of the line so a
+ * record torn by a crash is detected and dropped when the log is replayed.
+ */
+class MFAppendLog {
+
+    private static final String UTF8 = "UTF-8";
+    private static final Charset CHARSET = Charset.forName(UTF8);
+    private static final char SEPARATOR = ' ';
+
+    private final File file;
+    private final boolean sync;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private FileOutputStream output;
+    private FileChannel channel;
+    private long recordCount;
+
+    /**
+     * @param file the log file, created if it does not exist
+     * @param sync true to force every record to the storage device before returning
+     */
+    MFAppendLog(File file, boolean sync) {
+        this.file = file;
+        this.sync = sync;
+    }
+
+    /**
+     * reads every intact record in the log and opens the log for appending.
+     * @param callback receives each record in the order it was written
+     * @throws IOException
+     */
+    void open(RecordCallback callback) throws IOException {
+        lock.lock();
+        try {
+            File parent = this.file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("could not create directory " + parent);
+            }
+
+            this.recordCount = 0;
+            if (this.file.exists()) {
+                truncateTornTail();
+                this.recordCount = replay(callback);
+            }
+
+            this.output = new FileOutputStream(this.file, true);
+            this.channel = this.output.getChannel();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void append(String... fields) throws IOException {
+        byte[] record = encode(fields).getBytes(CHARSET);
+        lock.lock();
+        try {
+            if (this.channel == null) {
+                throw new IOException("log " + this.file + " is not open");
+            }
+            write(this.channel, record);
+            if (this.sync) {
+                this.channel.force(false);
+            }
+            this.recordCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * atomically replaces the contents of the log with the given records.
+     * @param records
+     * @throws IOException
+     */
+    void rewrite(Collection<String[]> records) throws IOException {
+        lock.lock();
+        try {
+            File temp = new File(this.file.getPath() + ".tmp");
+            FileOutputStream tempOutput = new FileOutputStream(temp, false);
+            try {
+                FileChannel tempChannel = tempOutput.getChannel();
+                for (String[] fields : records) {
+                    write(tempChannel, encode(fields).getBytes(CHARSET));
+                }
+                tempChannel.force(true);
+            } finally {
+                tempOutput.close();
+            }
+
+            closeOutput();
+            Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            this.output = new FileOutputStream(this.file, true);
+            this.channel = this.output.getChannel();
+            this.recordCount = records.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getRecordCount() {
+        lock.lock();
+        try {
+            return this.recordCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() throws IOException {
+        lock.lock();
+        try {
+            closeOutput();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void closeOutput() throws IOException {
+        if (this.output != null) {
+            this.channel.force(true);
+            this.output.close();
+            this.output = null;
+            this.channel = null;
+        }
+    }
+
+    /**
+     * drops a trailing partial record left by a crash so new records start on their own line.
+     */
+    private void truncateTornTail() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(this.file, "rw");
+        try {
+            long length = raf.length();
+            long position = length;
+            while (position > 0) {
+                raf.seek(position - 1);
+                if (raf.read() == '\n') {
+                    break;
+                }
+                position--;
+            }
+            if (position < length) {
+                raf.setLength(position);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private long replay(RecordCallback callback) throws IOException {
+        long count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.file), CHARSET));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = decode(line);
+                if (fields == null) {
+                    continue;
+                }
+                count++;
+                if (callback != null) {
+                    callback.onRecord(fields);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return count;
+    }
+
+    private static void write(FileChannel channel, byte[] record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static String encode(String... fields) throws UnsupportedEncodingException {
+        StringBuilder sb = new StringBuilder();
+        for (String field : fields) {
+            sb.append(field == null ? "-" : URLEncoder.encode(field, UTF8).replace("-", "%2D")).append(SEPARATOR);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(sb.toString().getBytes(CHARSET));
+        sb.append(Long.toHexString(crc.getValue())).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * @param line
+     * @return null if the record is torn or corrupt
+     */
+    static String[] decode(String line) {
+        int crcStart = line.lastIndexOf(SEPARATOR);
+        if (crcStart < 0) {
+            return null;
+        }
+
+        String body = line.substring(0, crcStart + 1);
+        CRC32 crc = new CRC32();
+        crc.update(body.getBytes(CHARSET));
+        if (!Long.toHexString(crc.getValue()).equals(line.substring(crcStart + 1))) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        try {
+            int start = 0;
+            int end;
+            while ((end = body.indexOf(SEPARATOR, start)) >= 0) {
+                String field = body.substring(start, end);
+                fields.add("-".equals(field) ? null : URLDecoder.decode(field, UTF8));
+                start = end + 1;
+            }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    interface RecordCallback {
+        void onRecord(String[] fields);
+    }
+}
@@ -0,0 +1,303 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.MediaFireApiResponse;
+
+import java.io.IOException;
+
+/**
+ * Passes calls on to the uploader's store from the consumer threads of an MFEventBus instead of the thread which
+ * made them, so a slow store does not hold up transfers. Calls about the same upload reach the store in the order
+ * they were made. getNextUpload() returns a value and still calls the store directly.
+ */
+class MFAsyncUploadStore implements MediaFireUploadStore, MediaFireUploadCancelListener {
+
+    private final MediaFireUploadStore store;
+    private final MFEventBus bus;
+
+    MFAsyncUploadStore(MediaFireUploadStore store, MFEventBus bus) {
+        this.store = store;
+        this.bus = bus;
+    }
+
+    @Override
+    public void insert(final MediaFireWebUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.insert(upload);
+            }
+        });
+    }
+
+    @Override
+    public void insert(final MediaFireFileUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.insert(upload);
+            }
+        });
+    }
+
+    @Override
+    public MediaFireUpload getNextUpload() {
+        return this.store.getNextUpload();
+    }
+
+    @Override
+    public void uploadQueued(final MediaFireWebUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.uploadQueued(upload);
+            }
+        });
+    }
+
+    @Override
+    public void uploadQueued(final MediaFireFileUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.uploadQueued(upload);
+            }
+        });
+    }
+
+    @Override
+    public void polling(final MediaFireWebUpload upload, final int statusCode, final String description) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.polling(upload, statusCode, description);
+            }
+        });
+    }
+
+    @Override
+    public void polling(final MediaFireFileUpload upload, final int statusCode, final String description) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.polling(upload, statusCode, description);
+            }
+        });
+    }
+
+    @Override
+    public void uploadFinished(final MediaFireWebUpload upload, final String quickKey, final String filename) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.uploadFinished(upload, quickKey, filename);
+            }
+        });
+    }
+
+    @Override
+    public void uploadFinished(final MediaFireFileUpload upload, final String quickKey, final String fileName) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.uploadFinished(upload, quickKey, fileName);
+            }
+        });
+    }
+
+    @Override
+    public void pollingError(final MediaFireWebUpload upload, final int statusCode, final int errorStatus, final String description) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingError(upload, statusCode, errorStatus, description);
+            }
+        });
+    }
+
+    @Override
+    public void pollingError(final MediaFireFileUpload upload, final int fileErrorCode, final int resultCode, final int statusCode, final String description) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingError(upload, fileErrorCode, resultCode, statusCode, description);
+            }
+        });
+    }
+
+    @Override
+    public void sdkException(final MediaFireWebUpload upload, final MediaFireException e) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.sdkException(upload, e);
+            }
+        });
+    }
+
+    @Override
+    public void sdkException(final MediaFireFileUpload upload, final MediaFireException e) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.sdkException(upload, e);
+            }
+        });
+    }
+
+    @Override
+    public void fileIOException(final MediaFireFileUpload upload, final IOException e) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.fileIOException(upload, e);
+            }
+        });
+    }
+
+    @Override
+    public void pollingInterrupted(final MediaFireWebUpload upload, final InterruptedException e) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingInterrupted(upload, e);
+            }
+        });
+    }
+
+    @Override
+    public void pollingInterrupted(final MediaFireFileUpload upload, final InterruptedException e) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingInterrupted(upload, e);
+            }
+        });
+    }
+
+    @Override
+    public void pollingLimitExceeded(final MediaFireWebUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingLimitExceeded(upload);
+            }
+        });
+    }
+
+    @Override
+    public void pollingLimitExceeded(final MediaFireFileUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingLimitExceeded(upload);
+            }
+        });
+    }
+
+    @Override
+    public void apiError(final MediaFireFileUpload upload, final MediaFireApiResponse response) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.apiError(upload, response);
+            }
+        });
+    }
+
+    @Override
+    public void pollingReady(final MediaFireWebUpload upload, final String uploadKey) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingReady(upload, uploadKey);
+            }
+        });
+    }
+
+    @Override
+    public void pollingReady(final MediaFireFileUpload upload, final String uploadKey) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.pollingReady(upload, uploadKey);
+            }
+        });
+    }
+
+    @Override
+    public void checkFinished(final MediaFireFileUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.checkFinished(upload);
+            }
+        });
+    }
+
+    @Override
+    public void uploadProgress(final MediaFireFileUpload upload, final double percentFinished) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.uploadProgress(upload, percentFinished);
+            }
+        });
+    }
+
+    @Override
+    public void resumableFinishedWithoutAllUnitsReady(final MediaFireFileUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.resumableFinishedWithoutAllUnitsReady(upload);
+            }
+        });
+    }
+
+    @Override
+    public void resumableUploadStarting(final MediaFireFileUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.resumableUploadStarting(upload);
+            }
+        });
+    }
+
+    @Override
+    public void instantUploadStarting(final MediaFireFileUpload upload) {
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                store.instantUploadStarting(upload);
+            }
+        });
+    }
+
+    @Override
+    public void uploadCancelled(final MediaFireWebUpload upload) {
+        if (!(this.store instanceof MediaFireUploadCancelListener)) {
+            return;
+        }
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                ((MediaFireUploadCancelListener) store).uploadCancelled(upload);
+            }
+        });
+    }
+
+    @Override
+    public void uploadCancelled(final MediaFireFileUpload upload) {
+        if (!(this.store instanceof MediaFireUploadCancelListener)) {
+            return;
+        }
+        this.bus.publish(upload, new Runnable() {
+            @Override
+            public void run() {
+                ((MediaFireUploadCancelListener) store).uploadCancelled(upload);
+            }
+        });
+    }
+}
@@ -0,0 +1,93 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bytes of file data the uploader may hold in memory at once, shared by every upload. A request larger than the
+ * whole budget is reduced to the budget so it can still proceed on its own.
+ */
+class MFByteBudget {
+
+    private final long capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long available;
+
+    MFByteBudget(long capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.available = this.capacity;
+    }
+
+    /**
+     * waits as long as it takes for the bytes
+     * @param bytes
+     * @throws InterruptedException
+     */
+    void acquire(long bytes) throws InterruptedException {
+        long amount = clamp(bytes);
+        lock.lockInterruptibly();
+        try {
+            while (this.available < amount) {
+                this.released.await();
+            }
+            this.available -= amount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param bytes
+     * @param timeout
+     * @param unit
+     * @return true if the bytes were acquired, false if the timeout passed first
+     * @throws InterruptedException
+     */
+    boolean tryAcquire(long bytes, long timeout, TimeUnit unit) throws InterruptedException {
+        long amount = clamp(bytes);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (this.available < amount) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = this.released.awaitNanos(nanos);
+            }
+            this.available -= amount;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void release(long bytes) {
+        long amount = clamp(bytes);
+        lock.lock();
+        try {
+            this.available = Math.min(this.capacity, this.available + amount);
+            this.released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getAvailable() {
+        lock.lock();
+        try {
+            return this.available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getCapacity() {
+        return this.capacity;
+    }
+
+    private long clamp(long bytes) {
+        return Math.max(0, Math.min(bytes, this.capacity));
+    }
+}
@@ -0,0 +1,226 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many units are sent at once and tunes the limit from the units sent. Throughput is measured over epochs
+ * of at least one unit per slot; the limit grows while each step up raises throughput by a clear margin, undoes a
+ * step up which made it worse and holds otherwise, probing one step up again after a few steady epochs. A failed
+ * unit or a unit taking much longer than usual halves the limit. If a probe round trip time is known, the first unit
+ * seeds the limit from how much of a unit's time is spent waiting on the round trip rather than sending data.
+ */
+class MFConcurrencyController {
+
+    private static final long DEFAULT_MIN_EPOCH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final double GAIN_THRESHOLD = 1.1;
+    private static final double LOSS_THRESHOLD = 0.9;
+    private static final double LATENCY_SPIKE_FACTOR = 2;
+    private static final double RTT_SMOOTHING = 0.2;
+    private static final int STEADY_EPOCHS_BEFORE_PROBE = 5;
+    private static final double MAX_WAIT_FRACTION = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long minEpochNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = this.lock.newCondition();
+
+    private int limit;
+    private int inFlight;
+    private long probeRttNanos;
+    private boolean seeded;
+    private double smoothedRttNanos;
+
+    private long epochStart = System.nanoTime();
+    private long epochBytes;
+    private int epochUnits;
+    private double previousThroughput;
+    private boolean needsBaseline;
+    private int lastChange;
+    private int steadyEpochs;
+
+    /**
+     * @param initialLimit
+     * @param minLimit at least 1
+     * @param maxLimit
+     */
+    MFConcurrencyController(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_MIN_EPOCH_NANOS);
+    }
+
+    MFConcurrencyController(int initialLimit, int minLimit, int maxLimit, long minEpochNanos) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = clamp(initialLimit);
+        this.minEpochNanos = minEpochNanos;
+    }
+
+    /**
+     * waits until fewer units than the limit are in flight and counts one more
+     * @throws InterruptedException
+     */
+    void acquire() throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            while (this.inFlight >= this.limit) {
+                this.available.await();
+            }
+            this.inFlight++;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * counts a unit acquired with acquire() as no longer in flight
+     */
+    void release() {
+        this.lock.lock();
+        try {
+            this.inFlight--;
+            this.available.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * seeds the limit from the next unit sent
+     * @param rttNanos round trip time of a request with no payload
+     */
+    void setProbeRtt(long rttNanos) {
+        this.lock.lock();
+        try {
+            this.probeRttNanos = rttNanos;
+            this.seeded = false;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * @param bytes size of the unit
+     * @param elapsedNanos time from sending the unit to its response
+     */
+    void onUnitSent(long bytes, long elapsedNanos) {
+        this.lock.lock();
+        try {
+            if (this.smoothedRttNanos > 0 && elapsedNanos > this.smoothedRttNanos * LATENCY_SPIKE_FACTOR) {
+                this.smoothedRttNanos += RTT_SMOOTHING * (elapsedNanos - this.smoothedRttNanos);
+                decrease();
+                return;
+            }
+            this.smoothedRttNanos = this.smoothedRttNanos == 0 ? elapsedNanos : this.smoothedRttNanos + RTT_SMOOTHING * (elapsedNanos - this.smoothedRttNanos);
+
+            if (!this.seeded && this.probeRttNanos > 0) {
+                this.seeded = true;
+                setLimit(getSeedLimit(this.probeRttNanos, elapsedNanos));
+                startEpoch(true);
+                return;
+            }
+
+            this.epochBytes += bytes;
+            this.epochUnits++;
+            long elapsed = System.nanoTime() - this.epochStart;
+            if (this.epochUnits < this.limit || elapsed < this.minEpochNanos) {
+                return;
+            }
+
+            double throughput = (double) this.epochBytes / Math.max(1, elapsed);
+            if (this.needsBaseline) {
+                this.needsBaseline = false;
+            } else if (this.previousThroughput == 0 || throughput > this.previousThroughput * GAIN_THRESHOLD) {
+                step(1);
+            } else if (throughput < this.previousThroughput * LOSS_THRESHOLD && this.lastChange > 0) {
+                step(-1);
+            } else if (++this.steadyEpochs >= STEADY_EPOCHS_BEFORE_PROBE) {
+                step(1);
+            } else {
+                this.lastChange = 0;
+            }
+            this.previousThroughput = throughput;
+            startEpoch(false);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * a unit failed to send, halves the limit
+     */
+    void onUnitFailed() {
+        this.lock.lock();
+        try {
+            decrease();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    int getLimit() {
+        this.lock.lock();
+        try {
+            return this.limit;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    int getInFlight() {
+        this.lock.lock();
+        try {
+            return this.inFlight;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * units sent one at a time leave the connection idle for the round trip of each; enough units to cover the
+     * idle share of a unit's time keep it busy
+     * @param probeRttNanos
+     * @param unitNanos
+     * @return
+     */
+    static int getSeedLimit(long probeRttNanos, long unitNanos) {
+        double waiting = Math.min(MAX_WAIT_FRACTION, (double) probeRttNanos / Math.max(1, unitNanos));
+        return (int) Math.round(1 / (1 - waiting));
+    }
+
+    private void decrease() {
+        setLimit(this.limit / 2);
+        this.lastChange = -1;
+        startEpoch(true);
+    }
+
+    private void step(int change) {
+        int before = this.limit;
+        setLimit(this.limit + change);
+        this.lastChange = this.limit - before;
+        this.steadyEpochs = 0;
+    }
+
+    private void setLimit(int limit) {
+        int before = this.limit;
+        this.limit = clamp(limit);
+        if (this.limit > before) {
+            this.available.signalAll();
+        }
+    }
+
+    private void startEpoch(boolean needsBaseline) {
+        this.epochStart = System.nanoTime();
+        this.epochBytes = 0;
+        this.epochUnits = 0;
+        if (needsBaseline) {
+            this.needsBaseline = true;
+            this.steadyEpochs = 0;
+        }
+    }
+
+    private int clamp(int limit) {
+        return Math.max(this.minLimit, Math.min(this.maxLimit, limit));
+    }
+}
@@ -0,0 +1,137 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Groups file uploads with the same content hash so only one copy is transferred at a time. The first upload of a
+ * hash becomes the leader and transfers the content; uploads of the same hash that arrive while it is in progress
+ * wait as followers and are handed back once the leader has ended, by which time the content is normally on the
+ * server and they finish with upload/instant. A follower which ends while it waits, e.g. cancelled, leaves its group.
+ */
+class MFDedupGroups {
+
+    private final ConcurrentMap<String, Group> groups = new ConcurrentHashMap<>();
+    private final Map<MediaFireFileUpload, String> leaders = Collections.synchronizedMap(new IdentityHashMap<MediaFireFileUpload, String>());
+    private final Map<MediaFireFileUpload, String> followers = Collections.synchronizedMap(new IdentityHashMap<MediaFireFileUpload, String>());
+
+    /**
+     * @param sha256Hash
+     * @param upload
+     * @return true if the upload should transfer the content, false if it waits for the upload transferring it
+     */
+    boolean join(String sha256Hash, MediaFireFileUpload upload) {
+        if (sha256Hash == null) {
+            return true;
+        }
+        while (true) {
+            Group group = this.groups.get(sha256Hash);
+            if (group == null) {
+                Group newGroup = new Group();
+                if (this.groups.putIfAbsent(sha256Hash, newGroup) == null) {
+                    this.leaders.put(upload, sha256Hash);
+                    return true;
+                }
+            } else {
+                // recorded first so leaderEnded() never misses it
+                this.followers.put(upload, sha256Hash);
+                if (group.addFollower(upload)) {
+                    return false;
+                }
+                this.followers.remove(upload);
+            }
+            // the group closed or another upload became leader first, look again
+        }
+    }
+
+    /**
+     * @param upload
+     * @return the content hash the upload is transferring for a group, null if it is not a leader
+     */
+    String getLeaderHash(MediaFireFileUpload upload) {
+        return this.leaders.get(upload);
+    }
+
+    /**
+     * @param upload an upload which finished or failed
+     * @return the uploads waiting for it, empty if it was not transferring for a group
+     */
+    List<MediaFireFileUpload> leaderEnded(MediaFireFileUpload upload) {
+        String sha256Hash = this.leaders.remove(upload);
+        if (sha256Hash == null) {
+            return Collections.emptyList();
+        }
+        Group group = this.groups.remove(sha256Hash);
+        if (group == null) {
+            return Collections.emptyList();
+        }
+        List<MediaFireFileUpload> released = group.close();
+        for (MediaFireFileUpload follower : released) {
+            this.followers.remove(follower);
+        }
+        return released;
+    }
+
+    /**
+     * stops a follower from being handed back when its leader ends
+     * @param upload an upload which ended while it waited for another upload of the same content
+     */
+    void leave(MediaFireFileUpload upload) {
+        String sha256Hash = this.followers.remove(upload);
+        if (sha256Hash == null) {
+            return;
+        }
+        Group group = this.groups.get(sha256Hash);
+        if (group != null) {
+            group.removeFollower(upload);
+        }
+    }
+
+    /**
+     * @return number of uploads waiting for another upload of the same content
+     */
+    int getFollowerCount() {
+        int count = 0;
+        for (Group group : this.groups.values()) {
+            count += group.size();
+        }
+        return count;
+    }
+
+    private static class Group {
+        private final List<MediaFireFileUpload> followers = new ArrayList<>();
+        private boolean closed;
+
+        synchronized boolean addFollower(MediaFireFileUpload upload) {
+            if (this.closed) {
+                return false;
+            }
+            this.followers.add(upload);
+            return true;
+        }
+
+        synchronized void removeFollower(MediaFireFileUpload upload) {
+            for (Iterator<MediaFireFileUpload> iterator = this.followers.iterator(); iterator.hasNext(); ) {
+                if (iterator.next() == upload) {
+                    iterator.remove();
+                    return;
+                }
+            }
+        }
+
+        synchronized List<MediaFireFileUpload> close() {
+            this.closed = true;
+            return new ArrayList<>(this.followers);
+        }
+
+        synchronized int size() {
+            return this.followers.size();
+        }
+    }
+}
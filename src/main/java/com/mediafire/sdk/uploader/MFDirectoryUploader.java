@@ -0,0 +1,290 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFApiRequest;
+import com.mediafire.sdk.MediaFireApiRequest;
+import com.mediafire.sdk.MediaFireClient;
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.folder.FolderCreateResponse;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Uploads a local directory tree through an MFUploader. Each local directory becomes a MediaFire folder; a folder is
+ * created as soon as its parent exists, so sibling folders are created concurrently, and the files in a folder are
+ * scheduled as soon as that folder exists instead of after the whole tree. Folder keys are remembered per parent
+ * folder key and name, so each folder is only created once however many trees share it. Files are handed to the
+ * uploader with scheduleAsync() so a full uploader never holds up folder creation. Symbolic links to directories are
+ * not followed.
+ */
+public class MFDirectoryUploader {
+
+    private static final String PARAM_FOLDER_NAME = "foldername";
+    private static final String PARAM_PARENT_KEY = "parent_key";
+    private static final String PARAM_ALLOW_DUPLICATE_NAME = "allow_duplicate_name";
+    private static final String ROOT_FOLDER_KEY = "myfiles";
+    private static final char KEY_SEPARATOR = '/';
+
+    private final MediaFireClient mediaFire;
+    private final MFUploader uploader;
+    private final Executor executor;
+    private final ConcurrentMap<String, FolderTask> folders = new ConcurrentHashMap<>();
+
+    /**
+     * creates folders on virtual threads if available, otherwise on a cached pool of daemon threads
+     * @param mediaFire
+     * @param uploader
+     */
+    public MFDirectoryUploader(MediaFireClient mediaFire, MFUploader uploader) {
+        this(mediaFire, uploader, MFVirtualThreads.newExecutor("mf-folder-create"));
+    }
+
+    /**
+     * @param mediaFire
+     * @param uploader schedules the files
+     * @param executor creates the folders
+     */
+    public MFDirectoryUploader(MediaFireClient mediaFire, MFUploader uploader, Executor executor) {
+        this.mediaFire = mediaFire;
+        this.uploader = uploader;
+        this.executor = executor;
+    }
+
+    /**
+     * creates a folder named after the directory in the parent folder and uploads the directory's contents into it.
+     * returns right away, progress is reported to the listener and the uploader's store. the listener's
+     * onDirectoryScheduled() is called once every folder of the tree has been created or failed.
+     * @param directory
+     * @param parentFolderKey null for the root folder
+     * @param actionOnInAccount for every file
+     * @param listener may be null
+     */
+    public void upload(File directory, String parentFolderKey, MediaFireFileUpload.ActionOnInAccount actionOnInAccount, Listener listener) {
+        String parentKey = parentFolderKey != null ? parentFolderKey : ROOT_FOLDER_KEY;
+        Tree tree = new Tree(directory, actionOnInAccount, listener);
+        createFolder(directory, parentKey, tree);
+    }
+
+    /**
+     * forgets remembered folder keys, e.g. after folders were deleted remotely
+     */
+    public void clearFolderCache() {
+        this.folders.clear();
+    }
+
+    private void createFolder(final File directory, final String parentKey, final Tree tree) {
+        final String name = directory.getName();
+        final String cacheKey = parentKey + KEY_SEPARATOR + name;
+
+        FolderTask task = new FolderTask(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return requestFolderCreate(name, parentKey);
+            }
+        });
+        FolderTask existing = this.folders.putIfAbsent(cacheKey, task);
+        if (existing == null) {
+            try {
+                this.executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                this.folders.remove(cacheKey, task);
+                tree.folderFailed(directory, new MediaFireException("folder creation could not be scheduled", e));
+                return;
+            }
+        } else {
+            task = existing;
+        }
+
+        final FolderTask created = task;
+        Runnable whenCreated = new Runnable() {
+            @Override
+            public void run() {
+                String folderKey;
+                try {
+                    folderKey = created.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    folderCreateFailed(directory, cacheKey, created, new MediaFireException("interrupted creating folder", e), tree);
+                    return;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    MediaFireException exception = cause instanceof MediaFireException ? (MediaFireException) cause : new MediaFireException("could not create folder", cause);
+                    folderCreateFailed(directory, cacheKey, created, exception, tree);
+                    return;
+                }
+                folderCreated(directory, folderKey, tree);
+            }
+        };
+        if (!created.whenDone(whenCreated)) {
+            // a folder already in the cache, its contents are still listed off the caller's thread
+            try {
+                this.executor.execute(whenCreated);
+            } catch (RejectedExecutionException e) {
+                tree.folderFailed(directory, new MediaFireException("folder contents could not be scheduled", e));
+            }
+        }
+    }
+
+    private void folderCreated(File directory, String folderKey, Tree tree) {
+        if (tree.listener != null) {
+            tree.listener.onFolderCreated(directory, folderKey);
+        }
+
+        File[] children = directory.listFiles();
+        if (children == null) {
+            tree.folderDone();
+            return;
+        }
+
+        List<File> subdirectories = new ArrayList<>();
+        for (File child : children) {
+            // a link back up the tree would create folders without end
+            if (child.isDirectory() && !Files.isSymbolicLink(child.toPath())) {
+                subdirectories.add(child);
+            }
+        }
+        // start the next level of folders before scheduling files so it overlaps with the uploads
+        tree.foldersAdded(subdirectories.size());
+        for (File subdirectory : subdirectories) {
+            createFolder(subdirectory, folderKey, tree);
+        }
+
+        for (File child : children) {
+            if (!child.isFile()) {
+                continue;
+            }
+            MFFileUpload.Builder builder = new MFFileUpload.Builder(child, child.getName(), folderKey);
+            builder.setFileSize(child.length());
+            builder.setActionOnInAccount(tree.actionOnInAccount);
+            MFFileUpload upload = builder.build();
+            this.uploader.scheduleAsync(upload);
+            if (tree.listener != null) {
+                tree.listener.onFileScheduled(child, upload);
+            }
+        }
+        tree.folderDone();
+    }
+
+    private void folderCreateFailed(File directory, String cacheKey, FolderTask task, MediaFireException e, Tree tree) {
+        // a later upload of the same tree tries again
+        this.folders.remove(cacheKey, task);
+        tree.folderFailed(directory, e);
+    }
+
+    private String requestFolderCreate(String name, String parentKey) throws MediaFireException {
+        LinkedHashMap<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_FOLDER_NAME, name);
+        params.put(PARAM_PARENT_KEY, parentKey);
+        // an existing folder with the same name is reused
+        params.put(PARAM_ALLOW_DUPLICATE_NAME, "no");
+
+        MediaFireApiRequest request = new MFApiRequest("/folder/create.php", params, null, null);
+        FolderCreateResponse response = this.mediaFire.sessionRequest(request, FolderCreateResponse.class);
+        if (response.hasError()) {
+            throw new MediaFireException("folder/create failed for " + name + ": " + response.getMessage());
+        }
+
+        String folderKey = response.getFolderKey();
+        if (ROOT_FOLDER_KEY.equals(folderKey)) {
+            // the response model falls back to the root folder when the key is missing
+            throw new MediaFireException("folder/create returned no folder key for " + name);
+        }
+        return folderKey;
+    }
+
+    /**
+     * FutureTask which runs listeners once it is done, on the thread that completed it.
+     */
+    private static class FolderTask extends FutureTask<String> {
+        private final List<Runnable> listeners = new ArrayList<>();
+        private boolean finished;
+
+        FolderTask(Callable<String> callable) {
+            super(callable);
+        }
+
+        /**
+         * @param listener
+         * @return false if the task is already done, the listener is not kept in that case
+         */
+        boolean whenDone(Runnable listener) {
+            synchronized (this.listeners) {
+                if (!this.finished) {
+                    this.listeners.add(listener);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected void done() {
+            List<Runnable> toRun;
+            synchronized (this.listeners) {
+                this.finished = true;
+                toRun = new ArrayList<>(this.listeners);
+                this.listeners.clear();
+            }
+            for (Runnable listener : toRun) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * one call to upload(), counts the folders of the tree not yet created or failed
+     */
+    private static class Tree {
+        private final File directory;
+        private final MediaFireFileUpload.ActionOnInAccount actionOnInAccount;
+        private final Listener listener;
+        private final AtomicInteger remainingFolders = new AtomicInteger(1);
+
+        Tree(File directory, MediaFireFileUpload.ActionOnInAccount actionOnInAccount, Listener listener) {
+            this.directory = directory;
+            this.actionOnInAccount = actionOnInAccount;
+            this.listener = listener;
+        }
+
+        void foldersAdded(int count) {
+            this.remainingFolders.addAndGet(count);
+        }
+
+        void folderFailed(File folder, MediaFireException e) {
+            if (this.listener != null) {
+                this.listener.onFolderError(folder, e);
+            }
+            folderDone();
+        }
+
+        void folderDone() {
+            if (this.remainingFolders.decrementAndGet() == 0 && this.listener != null) {
+                this.listener.onDirectoryScheduled(this.directory);
+            }
+        }
+    }
+
+    public interface Listener {
+        void onFolderCreated(File directory, String folderKey);
+        void onFolderError(File directory, MediaFireException e);
+        void onFileScheduled(File file, MediaFireFileUpload upload);
+
+        /**
+         * every folder of the tree has been created or failed, and every file in a created folder handed to the
+         * uploader
+         * @param directory passed to upload()
+         */
+        void onDirectoryScheduled(File directory);
+    }
+}
@@ -0,0 +1,232 @@
+package com.mediafire.sdk.uploader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MFUploadStore which also writes every upload and status change to an append only file, so uploads which had not
+ * finished can be found with getUnfinishedUploads() and scheduled again after a restart. The file is replayed when
+ * the store is opened and compacted down to the unfinished uploads once enough records have been superseded; finished
+ * and failed uploads are dropped from the file at that point. Failures writing the file are ignored.
+ */
+public class MFDurableUploadStore extends MFUploadStore {
+
+    private static final String RECORD_INSERT = "I";
+    private static final String RECORD_STATUS = "S";
+
+    private static final long MIN_RECORDS_BEFORE_COMPACTION = 1000;
+
+    private final MFAppendLog log;
+    private final ReentrantReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    // last persisted state per upload id, progress inside a state is not persisted
+    private final ConcurrentMap<Long, State> persistedStates = new ConcurrentHashMap<>();
+    private volatile long recordsAfterCompaction;
+
+    /**
+     * opens or creates a store which forces each record to disk before returning
+     * @param file
+     * @throws IOException
+     */
+    public MFDurableUploadStore(File file) throws IOException {
+        this(file, true, 16);
+    }
+
+    /**
+     * opens or creates a store
+     * @param file
+     * @param sync false to leave flushing records to the operating system, faster but records may be lost if the
+     *             machine (not just the process) goes down
+     * @param expectedUploads number of uploads expected to be tracked at once, used to size the lookup tables
+     * @throws IOException
+     */
+    public MFDurableUploadStore(File file, boolean sync, int expectedUploads) throws IOException {
+        super(expectedUploads);
+        this.log = new MFAppendLog(file, sync);
+        this.log.open(new MFAppendLog.RecordCallback() {
+            @Override
+            public void onRecord(String[] fields) {
+                replay(fields);
+            }
+        });
+        compactIfNeeded();
+    }
+
+    /**
+     * closes the store file. changes are no longer written after it is closed.
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        this.log.close();
+    }
+
+    @Override
+    protected void onInserted(MediaFireUpload upload, Status status) {
+        String[] insert = toInsertRecord(upload);
+        if (insert == null) {
+            return;
+        }
+        this.persistedStates.put(upload.getId(), status.getState());
+        append(insert);
+        append(toStatusRecord(upload.getId(), status));
+    }
+
+    @Override
+    protected void onStatusChanged(MediaFireUpload upload, Status status) {
+        State previous = this.persistedStates.put(upload.getId(), status.getState());
+        if (previous == null) {
+            // not persisted, e.g. an upload type this store can not recreate
+            this.persistedStates.remove(upload.getId());
+            return;
+        }
+        if (previous == status.getState()) {
+            return;
+        }
+        if (status.getState().isTerminal()) {
+            this.persistedStates.remove(upload.getId());
+        }
+        append(toStatusRecord(upload.getId(), status));
+    }
+
+    private void append(String... fields) {
+        this.compactionLock.readLock().lock();
+        try {
+            this.log.append(fields);
+        } catch (IOException ignored) {
+            // the upload is still tracked in memory
+        } finally {
+            this.compactionLock.readLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        long records = this.log.getRecordCount();
+        if (records < MIN_RECORDS_BEFORE_COMPACTION || records < 2 * this.recordsAfterCompaction) {
+            return;
+        }
+
+        this.compactionLock.writeLock().lock();
+        try {
+            if (this.log.getRecordCount() != records) {
+                // another thread compacted first
+                return;
+            }
+            List<String[]> live = new ArrayList<>();
+            for (MediaFireUpload upload : getUnfinishedUploads()) {
+                String[] insert = toInsertRecord(upload);
+                Status status = getStatus(upload.getId());
+                if (insert != null && status != null) {
+                    live.add(insert);
+                    live.add(toStatusRecord(upload.getId(), status));
+                }
+            }
+            this.log.rewrite(live);
+            this.recordsAfterCompaction = live.size();
+        } catch (IOException ignored) {
+            // keep appending to the uncompacted log
+        } finally {
+            this.compactionLock.writeLock().unlock();
+        }
+    }
+
+    private void replay(String[] fields) {
+        if (fields.length < 2 || fields[1] == null) {
+            return;
+        }
+        try {
+            long id = Long.parseLong(fields[1]);
+            if (RECORD_INSERT.equals(fields[0])) {
+                MediaFireUpload upload = fromInsertRecord(id, fields);
+                if (upload != null && getUpload(id) == null) {
+                    restore(upload, new Status(State.INSERTED, -1, null, null, upload.getFileName(), 0, 0, null, 0));
+                    this.persistedStates.put(id, State.INSERTED);
+                }
+            } else if (RECORD_STATUS.equals(fields[0]) && fields.length >= 11) {
+                MediaFireUpload upload = getUpload(id);
+                Status current = getStatus(id);
+                Status status = new Status(State.valueOf(fields[3]), Long.parseLong(fields[2]), fields[4], fields[5],
+                        fields[6], Integer.parseInt(fields[7]), Integer.parseInt(fields[8]), fields[9],
+                        Double.parseDouble(fields[10]));
+                if (upload != null && current != null && status.getVersion() > current.getVersion()) {
+                    restore(upload, status);
+                    this.persistedStates.put(id, status.getState());
+                }
+            }
+        } catch (IllegalArgumentException ignored) {
+            // skip the record
+        }
+    }
+
+    private static String[] toStatusRecord(long id, Status status) {
+        return new String[]{RECORD_STATUS, String.valueOf(id), String.valueOf(status.getVersion()),
+                status.getState().name(), status.getUploadKey(), status.getQuickKey(), status.getFileName(),
+                String.valueOf(status.getStatusCode()), String.valueOf(status.getErrorCode()),
+                status.getDescription(), String.valueOf(status.getPercentFinished())};
+    }
+
+    /**
+     * @param upload
+     * @return null if the upload can not be recreated from a record
+     */
+    private static String[] toInsertRecord(MediaFireUpload upload) {
+        String id = String.valueOf(upload.getId());
+        if (upload instanceof MediaFireFileUpload) {
+            MediaFireFileUpload fileUpload = (MediaFireFileUpload) upload;
+            if (fileUpload.getFile() == null) {
+                return null;
+            }
+            return new String[]{RECORD_INSERT, id, String.valueOf(MediaFireUpload.TYPE_FILE_UPLOAD),
+                    fileUpload.getFileName(), fileUpload.getFolderKey(), fileUpload.getFile().getPath(),
+                    fileUpload.getSha256Hash(), String.valueOf(fileUpload.getFileSize()),
+                    fileUpload.getJsonFormattedUploadsArray(), fileUpload.getDeviceId(),
+                    String.valueOf(fileUpload.isPreemptive()), fileUpload.getFileDropKey(),
+                    fileUpload.getMediaFirePath(), String.valueOf(fileUpload.isResumable()),
+                    fileUpload.getActionOnInAccount() != null ? fileUpload.getActionOnInAccount().name() : null,
+                    MFFileUpload.quickKeyOf(fileUpload)};
+        }
+        if (upload instanceof MediaFireWebUpload) {
+            MediaFireWebUpload webUpload = (MediaFireWebUpload) upload;
+            return new String[]{RECORD_INSERT, id, String.valueOf(MediaFireUpload.TYPE_WEB_UPLOAD),
+                    webUpload.getFileName(), webUpload.getFolderKey(), webUpload.getUrl()};
+        }
+        return null;
+    }
+
+    private static MediaFireUpload fromInsertRecord(long id, String[] fields) {
+        if (fields.length < 6) {
+            return null;
+        }
+        MediaFireUpload upload;
+        int type = Integer.parseInt(fields[2]);
+        if (type == MediaFireUpload.TYPE_FILE_UPLOAD && fields.length >= 15) {
+            MFFileUpload.Builder builder = new MFFileUpload.Builder(new File(fields[5]), fields[3], fields[4]);
+            builder.setSha256Hash(fields[6]);
+            builder.setFileSize(Long.parseLong(fields[7]));
+            builder.setJsonFormattedUploadsArray(fields[8]);
+            builder.setDeviceId(fields[9]);
+            builder.setPreemptive(Boolean.parseBoolean(fields[10]));
+            builder.setFileDropKey(fields[11]);
+            builder.setMediaFirePath(fields[12]);
+            builder.setResumable(Boolean.parseBoolean(fields[13]));
+            if (fields[14] != null) {
+                builder.setActionOnInAccount(MediaFireFileUpload.ActionOnInAccount.valueOf(fields[14]));
+            }
+            if (fields.length >= 16) {
+                // records written before updates were supported end at the action
+                builder.setQuickKey(fields[15]);
+            }
+            upload = builder.build();
+        } else if (type == MediaFireUpload.TYPE_WEB_UPLOAD) {
+            upload = new MFWebUpload(fields[5], fields[3], fields[4]);
+        } else {
+            return null;
+        }
+        upload.setId(id);
+        return upload;
+    }
+}
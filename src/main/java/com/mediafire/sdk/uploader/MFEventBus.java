@@ -0,0 +1,208 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs events published by the uploader's threads on consumer threads of its own, so a publisher only pays for
+ * putting an event in a ring. Events are spread over one ring per consumer by the identity of the object they are
+ * about; all events about the same upload go through the same ring and run in the order they were published.
+ * Consumers take events in batches, and a publisher only waits when its ring is full. After shutdown() the
+ * consumers end once their rings are empty, and later events run on the thread publishing them.
+ */
+class MFEventBus {
+
+    private static final int BATCH_SIZE = 64;
+    private static final long FULL_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long FLUSH_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Consumer[] consumers;
+
+    /**
+     * @param consumers number of consumer threads
+     * @param capacity events each consumer's ring holds
+     * @param threadFactory creates the consumer threads
+     */
+    MFEventBus(int consumers, int capacity, ThreadFactory threadFactory) {
+        this.consumers = new Consumer[Math.max(1, consumers)];
+        for (int i = 0; i < this.consumers.length; i++) {
+            this.consumers[i] = new Consumer(new MFEventRing(capacity));
+            Thread thread = threadFactory.newThread(this.consumers[i]);
+            this.consumers[i].thread = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * @param key the event runs after every event published before it with the same key
+     * @param event
+     */
+    void publish(Object key, Runnable event) {
+        Consumer consumer = this.consumers[(System.identityHashCode(key) & 0x7fffffff) % this.consumers.length];
+        if (consumer.stopped && consumer.thread != Thread.currentThread()) {
+            runAfterConsumer(consumer, event);
+            return;
+        }
+        while (!consumer.ring.offer(event)) {
+            if (consumer.stopped && consumer.thread != Thread.currentThread()) {
+                runAfterConsumer(consumer, event);
+                return;
+            }
+            // the consumer is behind, give it time rather than dropping or reordering the event
+            consumer.wake();
+            LockSupport.parkNanos(FULL_BACKOFF_NANOS);
+        }
+        consumer.wake();
+        if (consumer.stopped && consumer.thread != Thread.currentThread()) {
+            // the consumer may have ended before it saw the event
+            runAfterConsumer(consumer, null);
+        }
+    }
+
+    /**
+     * waits for the events published before the call to run
+     * @param timeout
+     * @param unit
+     * @return false if the timeout passed first
+     * @throws InterruptedException
+     */
+    boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long[] written = new long[this.consumers.length];
+        for (int i = 0; i < written.length; i++) {
+            written[i] = this.consumers[i].ring.getWritten();
+        }
+        for (int i = 0; i < written.length; i++) {
+            while (this.consumers[i].completed < written[i]) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(FLUSH_POLL_NANOS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * lets the consumer threads end once they have run the events already published
+     */
+    void shutdown() {
+        for (Consumer consumer : this.consumers) {
+            consumer.stopped = true;
+            // unconditionally, a consumer about to park keeps the permit
+            LockSupport.unpark(consumer.thread);
+        }
+    }
+
+    /**
+     * waits for the consumer threads to end after shutdown()
+     * @param timeout
+     * @param unit
+     * @return false if the timeout passed first
+     * @throws InterruptedException
+     */
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Consumer consumer : this.consumers) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining > 0) {
+                consumer.thread.join(remaining);
+            }
+            if (consumer.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * runs the events left in an ended consumer's ring, which were published first, and then the event
+     * @param consumer
+     * @param event null to only run what is left
+     */
+    private static void runAfterConsumer(Consumer consumer, Runnable event) {
+        boolean interrupted = false;
+        while (consumer.thread.isAlive()) {
+            try {
+                consumer.thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        synchronized (consumer) {
+            Runnable[] batch = new Runnable[BATCH_SIZE];
+            int count;
+            while ((count = consumer.ring.drain(batch)) > 0) {
+                for (int i = 0; i < count; i++) {
+                    runEvent(batch[i]);
+                }
+                consumer.completed += count;
+            }
+            if (event != null) {
+                runEvent(event);
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void runEvent(Runnable event) {
+        try {
+            event.run();
+        } catch (RuntimeException e) {
+            // one failing event must not stop the others
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private static final class Consumer implements Runnable {
+        private final MFEventRing ring;
+        private final AtomicBoolean idle = new AtomicBoolean();
+        private volatile Thread thread;
+        private volatile long completed;
+        private volatile boolean stopped;
+
+        Consumer(MFEventRing ring) {
+            this.ring = ring;
+        }
+
+        void wake() {
+            if (this.idle.compareAndSet(true, false)) {
+                LockSupport.unpark(this.thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            Runnable[] batch = new Runnable[BATCH_SIZE];
+            while (true) {
+                int count = this.ring.drain(batch);
+                if (count == 0) {
+                    if (this.stopped && this.ring.getWritten() == this.ring.getRead()) {
+                        return;
+                    }
+                    this.idle.set(true);
+                    if (this.ring.getWritten() == this.ring.getRead()) {
+                        // nothing was published after the check, wait for a publisher to wake us
+                        LockSupport.park(this);
+                    }
+                    this.idle.set(false);
+                    continue;
+                }
+                for (int i = 0; i < count; i++) {
+                    Runnable event = batch[i];
+                    batch[i] = null;
+                    runEvent(event);
+                }
+                this.completed += count;
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded ring of events written by any number of threads and read by one. Each slot carries a sequence number
+ * which tells a writer whether the slot is free for its turn around the ring and the reader whether the event in it
+ * has been written, so neither side locks: writers claim a position with a compare and set, the reader only moves
+ * its own position.
+ */
+class MFEventRing {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Runnable> events;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    MFEventRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.events = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @param event
+     * @return false if the ring is full
+     */
+    boolean offer(Runnable event) {
+        while (true) {
+            long position = this.tail.get();
+            int index = (int) (position & this.mask);
+            long sequence = this.sequences.get(index);
+            if (sequence == position) {
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.events.lazySet(index, event);
+                    // publishes the event to the reader
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (sequence < position) {
+                // the reader has not freed the slot since the last turn
+                return false;
+            }
+            // another writer took the position, try the next one
+        }
+    }
+
+    /**
+     * takes written events in order. only one thread may drain the ring.
+     * @param batch filled from the start
+     * @return number of events taken, 0 if the ring is empty
+     */
+    int drain(Runnable[] batch) {
+        long position = this.head.get();
+        int count = 0;
+        while (count < batch.length) {
+            int index = (int) (position & this.mask);
+            if (this.sequences.get(index) != position + 1) {
+                // not written yet
+                break;
+            }
+            batch[count++] = this.events.get(index);
+            this.events.lazySet(index, null);
+            this.sequences.set(index, position + this.capacity);
+            position++;
+        }
+        this.head.lazySet(position);
+        return count;
+    }
+
+    /**
+     * @return positions claimed by writers so far
+     */
+    long getWritten() {
+        return this.tail.get();
+    }
+
+    /**
+     * @return events taken by the reader so far
+     */
+    long getRead() {
+        return this.head.get();
+    }
+
+    int getCapacity() {
+        return this.capacity;
+    }
+}
@@ -14,6 +14,8 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
     private final boolean resumable;
     private final ActionOnInAccount actionOnInAccount;
     private final File file;
+    private final MediaFireUploadSource source;
+    private final String quickKey;
 
     protected MFFileUpload(Builder builder) {
         super(builder.fileName, builder.folderKey);
@@ -27,6 +29,8 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
         this.resumable = builder.resumable;
         this.actionOnInAccount = builder.actionOnInAccount;
         this.file = builder.file;
+        this.source = builder.source;
+        this.quickKey = builder.quickKey;
     }
 
     @Override
@@ -74,6 +78,40 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
         return this.file;
     }
 
+    /**
+     * The source the data is read from when there is no File.
+     * @return null if the data is read from getFile()
+     */
+    public MediaFireUploadSource getSource() {
+        return this.source;
+    }
+
+    /**
+     * The quickkey of an existing file whose contents this upload replaces, keeping its quickkey and links.
+     * @return null(default) to upload a new file
+     */
+    public String getQuickKey() {
+        return this.quickKey;
+    }
+
+    /**
+     * only an MFFileUpload can be read from a source, other implementations of MediaFireFileUpload read getFile()
+     * @param upload
+     * @return null if the upload is read from its file
+     */
+    static MediaFireUploadSource sourceOf(MediaFireFileUpload upload) {
+        return upload instanceof MFFileUpload ? ((MFFileUpload) upload).getSource() : null;
+    }
+
+    /**
+     * only an MFFileUpload can update an existing file, other implementations of MediaFireFileUpload upload a new one
+     * @param upload
+     * @return null if the upload is of a new file
+     */
+    static String quickKeyOf(MediaFireFileUpload upload) {
+        return upload instanceof MFFileUpload ? ((MFFileUpload) upload).getQuickKey() : null;
+    }
+
     @Override
     public ActionOnInAccount getActionOnInAccount() {
         return this.actionOnInAccount;
@@ -89,6 +127,7 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
         private static final boolean DEFAULT_RESUMABLE = true;
 
         private final File file;
+        private final MediaFireUploadSource source;
         private final String fileName;
         private final String folderKey;
 
@@ -101,9 +140,11 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
         private String mediaFirePath;
         private boolean resumable = DEFAULT_RESUMABLE;
         private ActionOnInAccount actionOnInAccount = ActionOnInAccount.UPLOAD_IF_NOT_IN_FOLDER;
+        private String quickKey;
 
         public Builder(File file, String fileName, String folderKey) {
             this.file = file;
+            this.source = null;
             this.fileName = fileName;
             this.folderKey = folderKey;
         }
@@ -112,6 +153,26 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
             this(file, fileName, null);
         }
 
+        /**
+         * uploads data read from a source instead of a file. the size and hash the source knows are used as the
+         * upload's.
+         * @param source
+         * @param fileName
+         * @param folderKey
+         */
+        public Builder(MediaFireUploadSource source, String fileName, String folderKey) {
+            this.file = null;
+            this.source = source;
+            this.fileName = fileName;
+            this.folderKey = folderKey;
+            this.fileSize = Math.max(0, source.getSize());
+            this.sha256Hash = source.getSha256Hash();
+        }
+
+        public Builder(MediaFireUploadSource source, String fileName) {
+            this(source, fileName, null);
+        }
+
         public Builder setSha256Hash(String sha256Hash) {
             this.sha256Hash = sha256Hash;
             return this;
@@ -160,6 +221,16 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
             return this;
         }
 
+        /**
+         * replaces the contents of an existing file instead of uploading a new one
+         * @param quickKey
+         * @return
+         */
+        public Builder setQuickKey(String quickKey) {
+            this.quickKey = quickKey;
+            return this;
+        }
+
         public MFFileUpload build() {
             return new MFFileUpload(this);
         }
@@ -178,6 +249,8 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
                 ", resumable=" + resumable +
                 ", actionOnInAccount=" + actionOnInAccount +
                 ", file=" + file +
+                ", source=" + source +
+                ", quickKey='" + quickKey + '\'' +
                 "} " + super.toString();
     }
 
@@ -203,6 +276,9 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
             return false;
         if (getActionOnInAccount() != that.getActionOnInAccount()) return false;
         if (getFile() != null ? !getFile().equals(that.getFile()) : that.getFile() != null) return false;
+        if (getSource() != null ? !getSource().equals(that.getSource()) : that.getSource() != null) return false;
+        if (getQuickKey() != null ? !getQuickKey().equals(that.getQuickKey()) : that.getQuickKey() != null)
+            return false;
 
         return true;
     }
@@ -219,6 +295,8 @@ public class MFFileUpload extends MFUpload implements MediaFireFileUpload {
         result = 31 * result + (isResumable() ? 1 : 0);
         result = 31 * result + (getActionOnInAccount() != null ? getActionOnInAccount().hashCode() : 0);
         result = 31 * result + (getFile() != null ? getFile().hashCode() : 0);
+        result = 31 * result + (getSource() != null ? getSource().hashCode() : 0);
+        result = 31 * result + (getQuickKey() != null ? getQuickKey().hashCode() : 0);
         return result;
     }
 }
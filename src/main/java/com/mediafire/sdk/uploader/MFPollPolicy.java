@@ -0,0 +1,102 @@
+package com.mediafire.sdk.uploader;
+
+/**
+ * Decides how long to wait between status polls and how long to keep polling. Polls start quickly and back off
+ * while the status code stays the same, reset when the status moves forward, and scale with the size of the file.
+ * Polling stops at a deadline rather than after a fixed number of polls. Observed times from becoming ready to poll
+ * until finished are folded into a per-byte estimate so later uploads make their first polls near the expected
+ * completion time instead of guessing.
+ *
+ * Shared by all uploads of an MFUploader, so it must be thread safe.
+ */
+class MFPollPolicy {
+
+    private static final long MIN_INTERVAL_MILLIS = 500;
+    private static final long MAX_INTERVAL_MILLIS = 30 * 1000;
+    private static final double BACKOFF_MULTIPLIER = 1.5;
+    private static final long MILLIS_PER_MEGABYTE = 20;
+    private static final long BASE_DEADLINE_MILLIS = 2 * 60 * 1000;
+    private static final long DEADLINE_MILLIS_PER_MEGABYTE = 1000;
+    private static final long MAX_DEADLINE_MILLIS = 60 * 60 * 1000;
+    private static final double LEARNING_WEIGHT = 0.2;
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    // ewma of observed milliseconds to finish per megabyte, 0 until the first observation
+    private double observedMillisPerMegabyte;
+    // ewma of observed fixed overhead, 0 until the first observation
+    private double observedBaseMillis;
+
+    /**
+     * @param fileSize bytes, 0 if unknown
+     * @return milliseconds from the first poll after which polling gives up
+     */
+    long getDeadline(long fileSize) {
+        long megabytes = Math.max(0, fileSize) / BYTES_PER_MEGABYTE;
+        long deadline = BASE_DEADLINE_MILLIS + megabytes * DEADLINE_MILLIS_PER_MEGABYTE;
+        synchronized (this) {
+            // always allow several times what has been seen so far
+            long expected = getExpectedMillisLocked(fileSize);
+            deadline = Math.max(deadline, expected * 4);
+        }
+        return Math.min(deadline, MAX_DEADLINE_MILLIS);
+    }
+
+    /**
+     * @param fileSize bytes, 0 if unknown
+     * @return milliseconds to wait before the first poll
+     */
+    long getInitialDelay(long fileSize) {
+        long expected;
+        synchronized (this) {
+            expected = getExpectedMillisLocked(fileSize);
+        }
+        // poll right away when there is nothing to go on, otherwise a bit before the expected finish
+        return clamp(expected / 2, 0, MAX_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param fileSize bytes, 0 if unknown
+     * @param previousInterval interval used before the last poll, 0 for the first poll
+     * @param statusChanged true if the last poll returned a different status code than the one before it
+     * @return milliseconds to wait before the next poll
+     */
+    long getNextInterval(long fileSize, long previousInterval, boolean statusChanged) {
+        long base = MIN_INTERVAL_MILLIS + (Math.max(0, fileSize) / BYTES_PER_MEGABYTE) * MILLIS_PER_MEGABYTE;
+        base = clamp(base, MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS);
+        if (previousInterval <= 0 || statusChanged) {
+            return base;
+        }
+        return clamp((long) (previousInterval * BACKOFF_MULTIPLIER), base, MAX_INTERVAL_MILLIS);
+    }
+
+    /**
+     * records how long an upload took from being ready to poll until it finished
+     * @param fileSize
+     * @param elapsedMillis
+     */
+    synchronized void onFinished(long fileSize, long elapsedMillis) {
+        if (elapsedMillis < 0) {
+            return;
+        }
+        double megabytes = Math.max(0, fileSize) / (double) BYTES_PER_MEGABYTE;
+        if (megabytes < 1) {
+            observedBaseMillis = observedBaseMillis == 0 ? elapsedMillis : ewma(observedBaseMillis, elapsedMillis);
+        } else {
+            double perMegabyte = Math.max(0, elapsedMillis - observedBaseMillis) / megabytes;
+            observedMillisPerMegabyte = observedMillisPerMegabyte == 0 ? perMegabyte : ewma(observedMillisPerMegabyte, perMegabyte);
+        }
+    }
+
+    private long getExpectedMillisLocked(long fileSize) {
+        double megabytes = Math.max(0, fileSize) / (double) BYTES_PER_MEGABYTE;
+        return (long) (observedBaseMillis + observedMillisPerMegabyte * megabytes);
+    }
+
+    private static double ewma(double current, double sample) {
+        return current + LEARNING_WEIGHT * (sample - current);
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
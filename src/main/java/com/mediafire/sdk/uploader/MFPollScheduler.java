@@ -0,0 +1,118 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules the status polls of every upload waiting on the server. Waiting between polls is done by a single
+ * timer instead of a sleeping worker thread; when a poll is due it is queued in the poll lane of the upload
+ * scheduler, which only does the request itself. A cancelled poll is removed from the timer and never runs again.
+ */
+class MFPollScheduler {
+
+    private final ScheduledExecutorService timer;
+    private final MFUploadScheduler workScheduler;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final ConcurrentMap<Poll, Wait> waits = new ConcurrentHashMap<>();
+
+    MFPollScheduler(ScheduledExecutorService timer, MFUploadScheduler workScheduler) {
+        this.timer = timer;
+        this.workScheduler = workScheduler;
+    }
+
+    /**
+     * runs the poll on the work scheduler after the delay. if either executor has been shut down the poll is told
+     * through Poll.onRejected() instead.
+     * @param poll
+     * @param delayMillis
+     */
+    void schedule(final Poll poll, long delayMillis) {
+        if (poll.isCancelled()) {
+            return;
+        }
+        if (delayMillis <= 0) {
+            execute(poll);
+            return;
+        }
+
+        Wait wait = new Wait(poll);
+        this.waits.put(poll, wait);
+        this.pending.incrementAndGet();
+        try {
+            wait.future = this.timer.schedule(wait, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            if (this.waits.remove(poll, wait)) {
+                this.pending.decrementAndGet();
+            }
+            poll.onRejected(e);
+        }
+    }
+
+    /**
+     * stops the poll and removes its wait from the timer
+     * @param poll
+     */
+    void cancel(Poll poll) {
+        poll.cancel();
+        Wait wait = this.waits.remove(poll);
+        if (wait != null) {
+            this.pending.decrementAndGet();
+            Future<?> future = wait.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * @return number of polls waiting for their next turn
+     */
+    int getPendingCount() {
+        return this.pending.get();
+    }
+
+    private void execute(final Poll poll) {
+        try {
+            this.workScheduler.execute(MFUploadScheduler.Lane.POLL, poll.getPriority(), new Runnable() {
+                @Override
+                public void run() {
+                    if (!poll.isCancelled()) {
+                        poll.run();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            poll.onRejected(e);
+        }
+    }
+
+    private class Wait implements Runnable {
+        private final Poll poll;
+        private volatile Future<?> future;
+
+        Wait(Poll poll) {
+            this.poll = poll;
+        }
+
+        @Override
+        public void run() {
+            // false if the poll was cancelled while waiting
+            if (waits.remove(this.poll, this)) {
+                pending.decrementAndGet();
+                execute(this.poll);
+            }
+        }
+    }
+
+    interface Poll extends Runnable {
+        int getPriority();
+        void onRejected(RejectedExecutionException e);
+        void cancel();
+        boolean isCancelled();
+    }
+}
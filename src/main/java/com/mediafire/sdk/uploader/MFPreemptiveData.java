@@ -0,0 +1,219 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireHasher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Data of a preemptive upload. The whole file is hashed in the background from the moment the upload starts, while
+ * it still waits for its turn to check, and the same pass keeps the start of the file in memory so the first units are
+ * ready to send as soon as upload/check answers instead of being read from disk a second time. The head is given
+ * back once a reader has moved past it or the upload ends; ending the upload also stops the hashing.
+ */
+class MFPreemptiveData extends MFUploadData {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final MFUploadData data;
+    private final long headLimit;
+    private final MFByteBudget budget;
+
+    private final FutureTask<String> hashing;
+    private final AtomicReference<byte[]> head = new AtomicReference<>();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * @param data rereadable data hashed by reading it
+     * @param headLimit most bytes kept from the start of the data
+     * @param budget the head is taken from, null if memory is not limited
+     */
+    MFPreemptiveData(MFUploadData data, long headLimit, MFByteBudget budget) {
+        this.data = data;
+        this.headLimit = headLimit;
+        this.budget = budget;
+        this.hashing = new FutureTask<>(new Callable<String>() {
+            @Override
+            public String call() throws IOException {
+                return hash();
+            }
+        });
+    }
+
+    /**
+     * starts hashing without waiting for the hash to be asked for
+     * @param executor
+     */
+    void start(Executor executor) {
+        try {
+            executor.execute(this.hashing);
+        } catch (RejectedExecutionException ignored) {
+            // hashed by the first caller of getSha256Hash instead
+        }
+    }
+
+    @Override
+    long getSize() {
+        return this.data.getSize();
+    }
+
+    @Override
+    String getSha256Hash(MediaFireHasher hasher) throws IOException {
+        // does nothing if the hashing already started elsewhere
+        this.hashing.run();
+        try {
+            return this.hashing.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for the file hash");
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("upload ended while hashing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("could not hash the file", cause);
+        }
+    }
+
+    @Override
+    boolean isRereadable() {
+        return this.data.isRereadable();
+    }
+
+    @Override
+    Reader open() {
+        return new Reader() {
+            private Reader reader;
+
+            @Override
+            public void readFully(ByteBuffer buffer, long position) throws IOException {
+                byte[] head = MFPreemptiveData.this.head.get();
+                if (head != null && position + buffer.remaining() <= head.length) {
+                    buffer.put(head, (int) position, buffer.remaining());
+                    return;
+                }
+                if (head != null && position >= head.length) {
+                    // units are read in order, nothing will ask for the head again
+                    releaseHead();
+                }
+                if (this.reader == null) {
+                    // opened the first time a unit is not in the head
+                    this.reader = data.open();
+                }
+                this.reader.readFully(buffer, position);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (this.reader != null) {
+                    this.reader.close();
+                }
+            }
+        };
+    }
+
+    @Override
+    void release() {
+        this.released.set(true);
+        this.hashing.cancel(true);
+        releaseHead();
+        this.data.release();
+    }
+
+    /**
+     * @return true while the start of the data is held in memory
+     */
+    boolean hasHead() {
+        return this.head.get() != null;
+    }
+
+    private String hash() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+
+        long size = getSize();
+        byte[] head = acquireHead((int) Math.max(0, Math.min(this.headLimit, size)));
+        try {
+            Reader reader = this.data.open();
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                for (long position = 0; position < size; position += buffer.limit()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("hashing stopped at " + position + " of " + size + " bytes");
+                    }
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), size - position));
+                    reader.readFully(buffer, position);
+                    digest.update(buffer.array(), 0, buffer.limit());
+                    if (position < head.length) {
+                        System.arraycopy(buffer.array(), 0, head, (int) position, (int) Math.min(buffer.limit(), head.length - position));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            releaseBytes(head.length);
+            throw e;
+        }
+
+        if (head.length > 0) {
+            this.head.set(head);
+            if (this.released.get()) {
+                // the upload ended while hashing
+                releaseHead();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private byte[] acquireHead(int size) {
+        if (size <= 0) {
+            return new byte[0];
+        }
+        try {
+            if (this.budget != null && !this.budget.tryAcquire(size, 0, TimeUnit.MILLISECONDS)) {
+                // other uploads hold the memory, hash without keeping anything
+                return new byte[0];
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new byte[0];
+        }
+        return new byte[size];
+    }
+
+    private void releaseHead() {
+        byte[] head = this.head.getAndSet(null);
+        if (head != null) {
+            releaseBytes(head.length);
+        }
+    }
+
+    private void releaseBytes(int size) {
+        if (this.budget != null && size > 0) {
+            this.budget.release(size);
+        }
+    }
+}
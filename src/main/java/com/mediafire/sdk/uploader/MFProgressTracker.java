@@ -0,0 +1,126 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireHttpProgressListener;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of each file upload as they are written to the socket and delivers them to a listener at most
+ * once per interval per upload. Writers only add to an atomic counter and, the first time after a delivery, queue the
+ * upload as changed; a single dispatcher thread delivers the latest count of every changed upload, so listener load
+ * depends on the interval and not on the number of units or writes.
+ */
+class MFProgressTracker {
+
+    private final ScheduledExecutorService dispatcher;
+    private final long intervalMillis;
+    private final MediaFireUploadProgressListener listener;
+    private final Map<MediaFireFileUpload, Progress> uploads = Collections.synchronizedMap(new IdentityHashMap<MediaFireFileUpload, Progress>());
+    private final Queue<Progress> changed = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    MFProgressTracker(ScheduledExecutorService dispatcher, long intervalMillis, MediaFireUploadProgressListener listener) {
+        this.dispatcher = dispatcher;
+        this.intervalMillis = intervalMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * starts counting an upload
+     * @param upload
+     * @param totalBytes
+     * @param alreadySent bytes already on the server, e.g. units uploaded before a restart
+     * @return listener to pass with each request sending the upload's data
+     */
+    MediaFireHttpProgressListener track(MediaFireFileUpload upload, long totalBytes, long alreadySent) {
+        Progress progress = new Progress(upload, totalBytes, alreadySent);
+        this.uploads.put(upload, progress);
+        progress.changed();
+        return progress;
+    }
+
+    /**
+     * @param upload
+     * @return bytes sent so far, 0 if the upload is not tracked
+     */
+    long getBytesSent(MediaFireFileUpload upload) {
+        Progress progress = this.uploads.get(upload);
+        return progress == null ? 0 : progress.getBytesSent();
+    }
+
+    /**
+     * stops counting an upload, a pending delivery is still made
+     * @param upload
+     */
+    void untrack(MediaFireFileUpload upload) {
+        this.uploads.remove(upload);
+    }
+
+    private void scheduleFlush() {
+        if (!this.flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.dispatcher.schedule(this.flush, this.intervalMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shut down, progress is no longer delivered
+        }
+    }
+
+    private void flush() {
+        this.flushScheduled.set(false);
+        Progress progress;
+        while ((progress = this.changed.poll()) != null) {
+            progress.pending.set(false);
+            if (this.listener != null) {
+                this.listener.onUploadProgress(progress.upload, progress.getBytesSent(), progress.totalBytes);
+            }
+        }
+    }
+
+    private class Progress implements MediaFireHttpProgressListener {
+        private final MediaFireFileUpload upload;
+        private final long totalBytes;
+        private final AtomicLong bytesSent;
+        private final AtomicBoolean pending = new AtomicBoolean();
+
+        Progress(MediaFireFileUpload upload, long totalBytes, long alreadySent) {
+            this.upload = upload;
+            this.totalBytes = totalBytes;
+            this.bytesSent = new AtomicLong(alreadySent);
+        }
+
+        @Override
+        public void onBytesSent(long bytes) {
+            this.bytesSent.addAndGet(bytes);
+            changed();
+        }
+
+        long getBytesSent() {
+            // units sent again after a failure are counted twice
+            return Math.min(this.bytesSent.get(), this.totalBytes);
+        }
+
+        void changed() {
+            if (this.pending.compareAndSet(false, true)) {
+                MFProgressTracker.this.changed.add(this);
+                scheduleFlush();
+            }
+        }
+    }
+}
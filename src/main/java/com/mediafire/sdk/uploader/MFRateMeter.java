@@ -0,0 +1,93 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exponentially weighted moving average of a byte rate. Recorded bytes are added to a counter and folded into the
+ * average at most once per interval by whichever recording thread swaps in the next immutable sample, so neither
+ * recording nor reading takes a lock. The first record only starts the clock, since the time spent on its bytes is
+ * not known. A rate not recorded to for longer than the interval decays when read.
+ */
+class MFRateMeter {
+
+    private static final long DEFAULT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long DEFAULT_TIME_CONSTANT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final long intervalNanos;
+    private final double timeConstantNanos;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicReference<Sample> sample;
+
+    MFRateMeter() {
+        this(DEFAULT_INTERVAL_NANOS, DEFAULT_TIME_CONSTANT_NANOS, System.nanoTime());
+    }
+
+    /**
+     * @param intervalNanos minimum time between folds
+     * @param timeConstantNanos time after which a sample's weight has dropped to 1/e
+     * @param nowNanos
+     */
+    MFRateMeter(long intervalNanos, long timeConstantNanos, long nowNanos) {
+        this.intervalNanos = intervalNanos;
+        this.timeConstantNanos = timeConstantNanos;
+        this.sample = new AtomicReference<>(new Sample(nowNanos, 0, false, false));
+    }
+
+    void record(long bytes) {
+        record(bytes, System.nanoTime());
+    }
+
+    void record(long bytes, long nowNanos) {
+        Sample current = this.sample.get();
+        if (!current.started && this.sample.compareAndSet(current, new Sample(nowNanos, 0, true, false))) {
+            return;
+        }
+        this.pending.addAndGet(bytes);
+        current = this.sample.get();
+        long elapsed = nowNanos - current.timeNanos;
+        if (elapsed < this.intervalNanos) {
+            return;
+        }
+        // claim the fold, a thread losing the race leaves its bytes for the next one
+        Sample claimed = new Sample(nowNanos, current.bytesPerSecond, true, current.measured);
+        if (!this.sample.compareAndSet(current, claimed)) {
+            return;
+        }
+        double instant = this.pending.getAndSet(0) * (double) TimeUnit.SECONDS.toNanos(1) / elapsed;
+        double weight = Math.exp(-elapsed / this.timeConstantNanos);
+        double rate = current.measured ? current.bytesPerSecond * weight + instant * (1 - weight) : instant;
+        this.sample.compareAndSet(claimed, new Sample(nowNanos, rate, true, true));
+    }
+
+    /**
+     * @return bytes per second
+     */
+    double getRate() {
+        return getRate(System.nanoTime());
+    }
+
+    double getRate(long nowNanos) {
+        Sample current = this.sample.get();
+        if (!current.measured) {
+            return 0;
+        }
+        long idle = nowNanos - current.timeNanos - this.intervalNanos;
+        return idle > 0 ? current.bytesPerSecond * Math.exp(-idle / this.timeConstantNanos) : current.bytesPerSecond;
+    }
+
+    private static final class Sample {
+        private final long timeNanos;
+        private final double bytesPerSecond;
+        private final boolean started;
+        private final boolean measured;
+
+        Sample(long timeNanos, double bytesPerSecond, boolean started, boolean measured) {
+            this.timeNanos = timeNanos;
+            this.bytesPerSecond = bytesPerSecond;
+            this.started = started;
+            this.measured = measured;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.response_models.data_models.ResumableBitmapModel;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tracks which units of a resumable upload the server already has. The server sends the bitmap as a list of 16 bit
+ * words where bit j of word i represents unit (i * 16 + j).
+ */
+class MFResumableBitmap {
+
+    private static final int BITS_PER_WORD = 16;
+
+    private final int numUnits;
+    private final BitSet units;
+
+    MFResumableBitmap(int numUnits) {
+        this.numUnits = numUnits;
+        this.units = new BitSet(numUnits);
+    }
+
+    /**
+     * adds the units in a bitmap sent by the server. units already marked stay marked: responses to units sent
+     * together can arrive out of order, and an older bitmap must not undo a newer one. does nothing if the model is
+     * null.
+     * @param bitmap
+     */
+    synchronized void update(ResumableBitmapModel bitmap) {
+        if (bitmap == null) {
+            return;
+        }
+
+        update(bitmap.getCount(), bitmap.getWords());
+    }
+
+    synchronized void update(int count, List<Integer> words) {
+        if (words == null || words.isEmpty()) {
+            return;
+        }
+
+        int wordCount = Math.min(count, words.size());
+        for (int i = 0; i < wordCount; i++) {
+            int word = words.get(i) & 0xFFFF;
+            int offset = i * BITS_PER_WORD;
+            while (word != 0) {
+                int bit = Integer.numberOfTrailingZeros(word);
+                if (offset + bit < this.numUnits) {
+                    this.units.set(offset + bit);
+                }
+                word &= word - 1;
+            }
+        }
+    }
+
+    synchronized void markUploaded(int unitId) {
+        if (unitId >= 0 && unitId < this.numUnits) {
+            this.units.set(unitId);
+        }
+    }
+
+    synchronized boolean isUploaded(int unitId) {
+        return this.units.get(unitId);
+    }
+
+    synchronized int getUploadedCount() {
+        return this.units.cardinality();
+    }
+
+    synchronized boolean isComplete() {
+        return this.units.cardinality() >= this.numUnits;
+    }
+
+    int getNumberOfUnits() {
+        return this.numUnits;
+    }
+
+    /**
+     * @return percent of units uploaded, between 0 and 100
+     */
+    synchronized double getPercentFinished() {
+        if (this.numUnits <= 0) {
+            return 0;
+        }
+        return (double) this.units.cardinality() / (double) this.numUnits * 100;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "MFResumableBitmap{" +
+                "numUnits=" + numUnits +
+                ", uploaded=" + units.cardinality() +
+                '}';
+    }
+}
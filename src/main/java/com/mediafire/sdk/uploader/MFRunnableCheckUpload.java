@@ -8,6 +8,7 @@ import com.mediafire.sdk.response_models.MediaFireApiResponse;
 import com.mediafire.sdk.response_models.upload.UploadCheckResponse;
 import com.mediafire.sdk.util.TextUtils;
 
+import java.io.IOException;
 import java.util.LinkedHashMap;
 
 class MFRunnableCheckUpload implements Runnable {
@@ -18,14 +19,20 @@ class MFRunnableCheckUpload implements Runnable {
     private static final String PARAM_RESUMABLE = "resumable";
     private static final String PARAM_SIZE = "size";
     private static final String PARAM_HASH = "hash";
+    private static final String PARAM_PREEMPTIVE = "preemptive";
+    private static final String PARAM_DEVICE_ID = "device_id";
 
     private final MediaFireFileUpload upload;
     private final MediaFireClient mediaFire;
+    private final MFUploadData data;
+    private final String sha256Hash;
     private final OnCheckUploadStatusListener callback;
 
-    public MFRunnableCheckUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, OnCheckUploadStatusListener callback) {
+    public MFRunnableCheckUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, MFUploadData data, String sha256Hash, OnCheckUploadStatusListener callback) {
         this.upload = upload;
         this.mediaFire = mediaFire;
+        this.data = data;
+        this.sha256Hash = sha256Hash;
         this.callback = callback;
     }
 
@@ -34,17 +41,24 @@ class MFRunnableCheckUpload implements Runnable {
         LinkedHashMap<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_RESUMABLE, this.upload.isResumable() ? "yes" : "no");
 
-        if (this.upload.getFileSize() == 0) {
-            params.put(PARAM_SIZE, this.upload.getFile().length());
-        } else {
-            params.put(PARAM_SIZE, this.upload.getFileSize());
-        }
+        params.put(PARAM_SIZE, this.data.getSize());
 
-        if (!TextUtils.isEmpty(this.upload.getSha256Hash())) {
-            params.put(PARAM_HASH, this.upload.getSha256Hash());
+        String hash;
+        if (!TextUtils.isEmpty(this.sha256Hash)) {
+            hash = this.sha256Hash;
+        } else if (!TextUtils.isEmpty(this.upload.getSha256Hash())) {
+            hash = this.upload.getSha256Hash();
         } else {
-            params.put(PARAM_HASH, this.mediaFire.getHasher().sha256(this.upload.getFile()));
+            try {
+                hash = this.data.getSha256Hash(this.mediaFire.getHasher());
+            } catch (IOException e) {
+                if (this.callback != null) {
+                    this.callback.onCheckUploadSdkException(this.upload, new MediaFireException("could not hash upload", e));
+                }
+                return;
+            }
         }
+        params.put(PARAM_HASH, hash);
 
         params.put(PARAM_FILENAME, this.upload.getFileName());
 
@@ -56,6 +70,11 @@ class MFRunnableCheckUpload implements Runnable {
             params.put(PARAM_FOLDER_PATH, this.upload.getMediaFirePath());
         }
 
+        if (this.upload.isPreemptive() && !TextUtils.isEmpty(this.upload.getDeviceId())) {
+            params.put(PARAM_PREEMPTIVE, "yes");
+            params.put(PARAM_DEVICE_ID, this.upload.getDeviceId());
+        }
+
         MediaFireApiRequest request = new MFApiRequest("/upload/check.php", params, null, null);
 
         try {
@@ -65,7 +84,7 @@ class MFRunnableCheckUpload implements Runnable {
                 if (response.hasError()) {
                     this.callback.onCheckUploadApiError(this.upload, response);
                 } else {
-                    this.callback.onCheckUploadFinished(this.upload, response);
+                    this.callback.onCheckUploadFinished(this.upload, hash, response);
                 }
             }
         } catch (MediaFireException e) {
@@ -76,7 +95,7 @@ class MFRunnableCheckUpload implements Runnable {
     }
 
     public interface OnCheckUploadStatusListener {
-        void onCheckUploadFinished(MediaFireFileUpload upload, UploadCheckResponse response);
+        void onCheckUploadFinished(MediaFireFileUpload upload, String sha256Hash, UploadCheckResponse response);
         void onCheckUploadSdkException(MediaFireFileUpload upload, MediaFireException e);
         void onCheckUploadApiError(MediaFireFileUpload upload, MediaFireApiResponse response);
     }
@@ -9,63 +9,79 @@ import com.mediafire.sdk.response_models.upload.UploadGetWebUploadsResponse;
 import com.mediafire.sdk.util.TextUtils;
 
 import java.util.LinkedHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
-class MFRunnableGetWebUpload implements Runnable {
-
-    private static final int TIME_BETWEEN_POLLS_MILLIS = 1000 * 5;
-    private static final int MAX_POLLS = 24;
+/**
+ * Polls upload/get_web_uploads once per run for a single upload key. While the web upload is still in progress the
+ * poll reschedules itself on the MFPollScheduler, so no thread is held between polls.
+ */
+class MFRunnableGetWebUpload implements MFPollScheduler.Poll {
 
     private static final String PARAM_UPLOAD_KEY = "upload_key";
-    private static final String PARAM_ALL_WEB_UPLOADS = "all_web_uploads";
 
     private final MediaFireClient mediaFire;
     private final MediaFireWebUpload upload;
     private final String uploadKey;
     private final OnGetWebUploadStatusListener callback;
     private final int statusToFinish;
+    private final MFPollScheduler scheduler;
+    private final MFPollPolicy policy;
+    private final int priority;
+    private final long readyTime;
+
+    private long fileSize;
+    private long deadline;
+    private long interval;
+    private int lastStatusCode = -1;
+    private volatile boolean cancelled;
 
-    public MFRunnableGetWebUpload(MediaFireClient mediaFire, MediaFireWebUpload upload, String uploadKey, OnGetWebUploadStatusListener callback, int statusToFinish) {
+    public MFRunnableGetWebUpload(MediaFireClient mediaFire, MediaFireWebUpload upload, String uploadKey, OnGetWebUploadStatusListener callback, int statusToFinish, MFPollScheduler scheduler, MFPollPolicy policy, int priority) {
 
         this.mediaFire = mediaFire;
         this.upload = upload;
         this.uploadKey = uploadKey;
         this.callback = callback;
         this.statusToFinish = statusToFinish;
+        this.scheduler = scheduler;
+        this.policy = policy;
+        this.priority = priority;
+        this.readyTime = System.currentTimeMillis();
+        this.deadline = this.readyTime + policy.getDeadline(0);
     }
 
     @Override
     public void run() {
         final LinkedHashMap<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_UPLOAD_KEY, uploadKey);
-        params.put(PARAM_ALL_WEB_UPLOADS, "yes");
-        long pollCount = 0;
-        do {
-            MediaFireApiRequest request = new MFApiRequest("/upload/get_web_uploads.php", params, null, null);
-            UploadGetWebUploadsResponse response;
-            try {
-                response = mediaFire.sessionRequest(request, UploadGetWebUploadsResponse.class);
-            } catch (MediaFireException e) {
-                if (callback != null) {
-                    callback.onGetWebUploadsSdkException(upload, e);
-                }
-                return;
-            }
-            WebUploadsModel[] webUploadsArray = response.getWebUploads();
 
-            if (webUploadsArray == null || webUploadsArray.length == 0) {
-                pollCount++;
-                continue;
+        MediaFireApiRequest request = new MFApiRequest("/upload/get_web_uploads.php", params, null, null);
+        UploadGetWebUploadsResponse response;
+        try {
+            response = mediaFire.sessionRequest(request, UploadGetWebUploadsResponse.class);
+        } catch (MediaFireException e) {
+            if (callback != null) {
+                callback.onGetWebUploadsSdkException(upload, e);
             }
+            return;
+        }
 
-            WebUploadsModel webUpload = webUploadsArray[0];
+        WebUploadsModel webUpload = findWebUpload(response.getWebUploads());
 
+        if (webUpload != null) {
             int statusCode = webUpload.getStatusCode();
             int errorStatus = webUpload.getErrorStatus();
             String description = webUpload.getStatus();
             String quickKey = webUpload.getQuickKey();
             String filename = webUpload.getFilename();
 
+            if (webUpload.getSize() > 0 && this.fileSize == 0) {
+                // the size is only known once the server starts fetching the url
+                this.fileSize = webUpload.getSize();
+                this.deadline = this.readyTime + this.policy.getDeadline(this.fileSize);
+            }
+
             if (!TextUtils.isEmpty(quickKey)) {
+                this.policy.onFinished(this.fileSize, System.currentTimeMillis() - this.readyTime);
                 if (callback != null) {
                     callback.onGetWebUploadsFinished(upload, quickKey, filename);
                 }
@@ -73,6 +89,7 @@ class MFRunnableGetWebUpload implements Runnable {
             }
 
             if (statusCode >= statusToFinish) {
+                this.policy.onFinished(this.fileSize, System.currentTimeMillis() - this.readyTime);
                 if (callback != null) {
                     callback.onGetWebUploadsFinished(upload, quickKey, filename);
                 }
@@ -83,28 +100,64 @@ class MFRunnableGetWebUpload implements Runnable {
                 if (callback != null) {
                     callback.onGetWebUploadsError(upload, statusCode, errorStatus, description);
                 }
+                return;
             }
 
             if (callback != null) {
                 callback.onGetWebUploadsProgress(upload, statusCode, description);
             }
 
-            try {
-                Thread.sleep(TIME_BETWEEN_POLLS_MILLIS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                if (callback != null) {
-                    callback.onGetWebUploadsInterrupted(upload, e);
-                }
-                return;
+            this.interval = this.policy.getNextInterval(this.fileSize, this.interval, statusCode != this.lastStatusCode);
+            this.lastStatusCode = statusCode;
+        } else {
+            this.interval = this.policy.getNextInterval(this.fileSize, this.interval, false);
+        }
+
+        long now = System.currentTimeMillis();
+        if (now >= this.deadline) {
+            if (callback != null) {
+                callback.onGetWebUploadsLimitExceeded(upload);
             }
+            return;
+        }
+
+        this.scheduler.schedule(this, Math.min(this.interval, this.deadline - now));
+    }
 
-            pollCount++;
-        } while (pollCount <= MAX_POLLS);
+    @Override
+    public int getPriority() {
+        return this.priority;
+    }
 
+    @Override
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    @Override
+    public void onRejected(RejectedExecutionException e) {
         if (callback != null) {
-            callback.onGetWebUploadsLimitExceeded(upload);
+            InterruptedException interruptedException = new InterruptedException("poll could not be scheduled");
+            interruptedException.initCause(e);
+            callback.onGetWebUploadsInterrupted(upload, interruptedException);
+        }
+    }
+
+    private WebUploadsModel findWebUpload(WebUploadsModel[] webUploadsArray) {
+        if (webUploadsArray == null) {
+            return null;
+        }
+        for (WebUploadsModel webUpload : webUploadsArray) {
+            if (webUpload != null && uploadKey != null && uploadKey.equals(webUpload.getUploadKey())) {
+                return webUpload;
+            }
         }
+        return null;
     }
 
     public interface OnGetWebUploadStatusListener {
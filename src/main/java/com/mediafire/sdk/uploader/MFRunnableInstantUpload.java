@@ -8,6 +8,7 @@ import com.mediafire.sdk.response_models.MediaFireApiResponse;
 import com.mediafire.sdk.response_models.upload.UploadInstantResponse;
 import com.mediafire.sdk.util.TextUtils;
 
+import java.io.IOException;
 import java.util.LinkedHashMap;
 
 class MFRunnableInstantUpload implements Runnable {
@@ -17,32 +18,42 @@ class MFRunnableInstantUpload implements Runnable {
     private static final String PARAM_FOLDER_PATH = "path";
     private static final String PARAM_SIZE = "size";
     private static final String PARAM_HASH = "hash";
+    private static final String PARAM_QUICK_KEY = "quick_key";
 
     private final MediaFireClient mediaFire;
     private final MediaFireFileUpload upload;
+    private final MFUploadData data;
+    private final String sha256Hash;
     private final OnInstantUploadStatusListener callback;
 
 
-    public MFRunnableInstantUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, OnInstantUploadStatusListener callback) {
+    public MFRunnableInstantUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, MFUploadData data, String sha256Hash, OnInstantUploadStatusListener callback) {
 
         this.mediaFire = mediaFire;
         this.upload = upload;
+        this.data = data;
+        this.sha256Hash = sha256Hash;
         this.callback = callback;
     }
 
     @Override
     public void run() {
         LinkedHashMap<String, Object> params = new LinkedHashMap<>();
-        if (this.upload.getFileSize() == 0) {
-            params.put(PARAM_SIZE, this.upload.getFile().length());
-        } else {
-            params.put(PARAM_SIZE, this.upload.getFileSize());
-        }
+        params.put(PARAM_SIZE, this.data.getSize());
 
-        if (!TextUtils.isEmpty(this.upload.getSha256Hash())) {
+        if (!TextUtils.isEmpty(this.sha256Hash)) {
+            params.put(PARAM_HASH, this.sha256Hash);
+        } else if (!TextUtils.isEmpty(this.upload.getSha256Hash())) {
             params.put(PARAM_HASH, this.upload.getSha256Hash());
         } else {
-            params.put(PARAM_HASH, mediaFire.getHasher().sha256(this.upload.getFile()));
+            try {
+                params.put(PARAM_HASH, this.data.getSha256Hash(mediaFire.getHasher()));
+            } catch (IOException e) {
+                if (this.callback != null) {
+                    this.callback.onInstantUploadSdkException(this.upload, new MediaFireException("could not hash upload", e));
+                }
+                return;
+            }
         }
 
         params.put(PARAM_FILENAME, this.upload.getFileName());
@@ -55,6 +66,12 @@ class MFRunnableInstantUpload implements Runnable {
             params.put(PARAM_FOLDER_PATH, this.upload.getMediaFirePath());
         }
 
+        String updatedQuickKey = MFFileUpload.quickKeyOf(this.upload);
+        if (!TextUtils.isEmpty(updatedQuickKey)) {
+            // the content is already on the server, it replaces the file's
+            params.put(PARAM_QUICK_KEY, updatedQuickKey);
+        }
+
         MediaFireApiRequest request = new MFApiRequest("/upload/instant.php", params, null, null);
         UploadInstantResponse response;
         try {
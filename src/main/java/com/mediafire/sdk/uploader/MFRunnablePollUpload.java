@@ -9,11 +9,13 @@ import com.mediafire.sdk.response_models.upload.UploadPollUploadResponse;
 import com.mediafire.sdk.util.TextUtils;
 
 import java.util.LinkedHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
-class MFRunnablePollUpload implements Runnable {
-
-    private static final int TIME_BETWEEN_POLLS_MILLIS = 1000 * 5;
-    private static final int MAX_POLLS = 24;
+/**
+ * Polls upload/poll_upload once per run. While the upload is still being processed the poll reschedules itself on
+ * the MFPollScheduler, so no thread is held between polls.
+ */
+class MFRunnablePollUpload implements MFPollScheduler.Poll {
 
     private static final String PARAM_KEY = "key";
 
@@ -22,95 +24,135 @@ class MFRunnablePollUpload implements Runnable {
     private final String uploadKey;
     private final OnPollUploadStatusListener callback;
     private final int statusToFinish;
+    private final MFPollScheduler scheduler;
+    private final MFPollPolicy policy;
+    private final int priority;
+    private final long readyTime;
+
+    private final long fileSize;
+    private long deadline;
+    private long interval;
+    private int lastStatusCode = -1;
+    private volatile boolean cancelled;
 
-    public MFRunnablePollUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, String uploadKey, OnPollUploadStatusListener callback, int statusToFinish) {
+    public MFRunnablePollUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, String uploadKey, OnPollUploadStatusListener callback, int statusToFinish, MFPollScheduler scheduler, MFPollPolicy policy, int priority) {
 
         this.mediaFire = mediaFire;
         this.upload = upload;
         this.uploadKey = uploadKey;
         this.callback = callback;
         this.statusToFinish = statusToFinish;
+        this.scheduler = scheduler;
+        this.policy = policy;
+        this.priority = priority;
+        this.readyTime = System.currentTimeMillis();
+        this.fileSize = upload.getFileSize() == 0 && upload.getFile() != null ? upload.getFile().length() : upload.getFileSize();
+        this.deadline = this.readyTime + policy.getDeadline(this.fileSize);
     }
 
     @Override
     public void run() {
         final LinkedHashMap<String, Object> params = new LinkedHashMap<>();
         params.put(PARAM_KEY, uploadKey);
-        long pollCount = 0;
-        do {
-            MediaFireApiRequest request = new MFApiRequest("/upload/poll_upload.php", params, null, null);
-            UploadPollUploadResponse response;
-            try {
-                response = mediaFire.sessionRequest(request, UploadPollUploadResponse.class);
-            } catch (MediaFireException e) {
-                if (this.callback != null) {
-                    this.callback.onPollUploadSdkException(this.upload, e);
-                }
-                return;
+
+        MediaFireApiRequest request = new MFApiRequest("/upload/poll_upload.php", params, null, null);
+        UploadPollUploadResponse response;
+        try {
+            response = mediaFire.sessionRequest(request, UploadPollUploadResponse.class);
+        } catch (MediaFireException e) {
+            if (this.callback != null) {
+                this.callback.onPollUploadSdkException(this.upload, e);
             }
+            return;
+        }
 
-            if (callback != null && response.hasError()) {
-                callback.onPollUploadApiError(this.upload, response);
-                return;
+        if (response.hasError()) {
+            if (this.callback != null) {
+                this.callback.onPollUploadApiError(this.upload, response);
             }
+            return;
+        }
 
-            DoUploadPollModel doUpload = response.getDoUpload();
+        DoUploadPollModel doUpload = response.getDoUpload();
 
-            int fileErrorCode = doUpload.getFileErrorCode();
-            int resultCode = doUpload.getResultCode();
-            int statusCode = doUpload.getStatusCode();
+        int fileErrorCode = doUpload.getFileErrorCode();
+        int resultCode = doUpload.getResultCode();
+        int statusCode = doUpload.getStatusCode();
 
-            String description = doUpload.getDescription();
+        String description = doUpload.getDescription();
 
-            String quickKey = doUpload.getQuickKey();
-            String filename = doUpload.getFilename();
+        String quickKey = doUpload.getQuickKey();
+        String filename = doUpload.getFilename();
 
-            if (!TextUtils.isEmpty(quickKey)) {
-                if (this.callback != null) {
-                    this.callback.onPollUploadFinished(this.upload, quickKey, filename);
-                }
-                return;
+        if (!TextUtils.isEmpty(quickKey)) {
+            this.policy.onFinished(this.fileSize, System.currentTimeMillis() - this.readyTime);
+            if (this.callback != null) {
+                this.callback.onPollUploadFinished(this.upload, quickKey, filename);
             }
+            return;
+        }
 
-            if (statusCode >= statusToFinish) {
-                if (this.callback != null) {
-                    this.callback.onPollUploadFinished(this.upload, quickKey, filename);
-                }
-                return;
+        if (statusCode >= statusToFinish) {
+            this.policy.onFinished(this.fileSize, System.currentTimeMillis() - this.readyTime);
+            if (this.callback != null) {
+                this.callback.onPollUploadFinished(this.upload, quickKey, filename);
             }
+            return;
+        }
 
-            if (fileErrorCode != 0) {
-                if (this.callback != null) {
-                    this.callback.onPollUploadError(this.upload, fileErrorCode, resultCode, statusCode, description);
-                }
-                return;
+        if (fileErrorCode != 0) {
+            if (this.callback != null) {
+                this.callback.onPollUploadError(this.upload, fileErrorCode, resultCode, statusCode, description);
             }
+            return;
+        }
 
-            if (resultCode != 0) {
-                if (this.callback != null) {
-                    this.callback.onPollUploadError(this.upload, fileErrorCode, resultCode, statusCode, description);
-                }
-                return;
+        if (resultCode != 0) {
+            if (this.callback != null) {
+                this.callback.onPollUploadError(this.upload, fileErrorCode, resultCode, statusCode, description);
             }
+            return;
+        }
+
+        if (this.callback != null) {
+            this.callback.onPollUploadProgress(this.upload, statusCode, description);
+        }
 
+        this.interval = this.policy.getNextInterval(this.fileSize, this.interval, statusCode != this.lastStatusCode);
+        this.lastStatusCode = statusCode;
+
+        long now = System.currentTimeMillis();
+        if (now >= this.deadline) {
             if (this.callback != null) {
-                this.callback.onPollUploadProgress(this.upload, statusCode, description);
+                this.callback.onPollUploadLimitExceeded(this.upload);
             }
+            return;
+        }
 
-            try {
-                Thread.sleep(TIME_BETWEEN_POLLS_MILLIS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                if (this.callback != null) {
-                    this.callback.onPollUploadThreadInterrupted(this.upload, e);
-                }
-                return;
-            }
-            pollCount++;
-        } while (pollCount <= MAX_POLLS);
+        this.scheduler.schedule(this, Math.min(this.interval, this.deadline - now));
+    }
+
+    @Override
+    public int getPriority() {
+        return this.priority;
+    }
+
+    @Override
+    public void cancel() {
+        this.cancelled = true;
+    }
 
+    @Override
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    @Override
+    public void onRejected(RejectedExecutionException e) {
         if (this.callback != null) {
-            this.callback.onPollUploadLimitExceeded(this.upload);
+            InterruptedException interruptedException = new InterruptedException("poll could not be scheduled");
+            interruptedException.initCause(e);
+            this.callback.onPollUploadThreadInterrupted(this.upload, interruptedException);
         }
     }
 
@@ -1,27 +1,44 @@
 package com.mediafire.sdk.uploader;
 
 import com.mediafire.sdk.MFApiRequest;
+import com.mediafire.sdk.MFClient;
+import com.mediafire.sdk.MediaFireActionToken;
 import com.mediafire.sdk.MediaFireApiRequest;
 import com.mediafire.sdk.MediaFireClient;
 import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.MediaFireHttpProgressListener;
 import com.mediafire.sdk.response_models.MediaFireApiResponse;
 import com.mediafire.sdk.response_models.data_models.DoUploadResumableModel;
-import com.mediafire.sdk.response_models.data_models.ResumableBitmapModel;
 import com.mediafire.sdk.response_models.data_models.ResumableUploadModel;
 import com.mediafire.sdk.response_models.upload.UploadResumableResponse;
 import com.mediafire.sdk.util.TextUtils;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.*;
-
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends the units of a resumable upload which are not on the server yet. A failed unit is retried on its own with
+ * backoff while the failure is worth retrying; once every unit has been sent, units the server bitmap still reports
+ * missing get one more pass. Units are handed to the send executor as long as the per upload and uploader wide
+ * concurrency limits allow, and each unit sent or failed tunes both limits. If the scheduler is paused the upload
+ * stops dispatching, waits for the units in flight, releases its thread and unit buffers and hands itself back to be
+ * run again from the bitmap once work resumes. Data which can only be read once is not paused, running again would
+ * have to open it a second time.
+ */
 class MFRunnableResumableUpload implements Runnable {
 
+    private static final int RECONCILIATION_PASSES = 1;
+
     private static final String PARAM_FOLDER_KEY = "folder_key";
     private static final String PARAM_FOLDER_PATH = "path";
     private static final String PARAM_ACTION_ON_DUPLICATE = "action_on_duplicate";
+    private static final String PARAM_QUICK_KEY = "quick_key";
 
     private static final String HEADER_CONTENT_TYPE = "Content-Type";
     private static final String HEADER_X_FILENAME = "x-filename";
@@ -32,17 +49,43 @@ class MFRunnableResumableUpload implements Runnable {
     private static final String HEADER_X_UNIT_SIZE = "x-unit-size";
     private static final String CONTENT_TYPE_OCTET_STREAM = "application/octet-stream";
 
-    private List<Boolean> uploadUnits = new LinkedList<>();
-
     private final MediaFireClient mediaFire;
     private final MediaFireFileUpload upload;
-    private final ResumableUploadModel resumableUpload;
+    private final MFUploadData data;
+    private final String sha256Hash;
+    private final int numUnits;
+    private final int unitSize;
+    private final MFResumableBitmap bitmap;
+    private final Executor readExecutor;
+    private final int queueDepth;
+    private final MFByteBudget memoryBudget;
+    private final MFUnitRetryPolicy retryPolicy;
+    private final MFUploadScheduler scheduler;
+    private final Executor sendExecutor;
+    private final MFConcurrencyController fileConcurrency;
+    private final MFConcurrencyController globalConcurrency;
+    private final MFUploadStats stats;
+    private final MediaFireHttpProgressListener progressListener;
     private final OnResumableUploadStatusListener callback;
 
-    public MFRunnableResumableUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, ResumableUploadModel resumableUpload, MFRunnableResumableUpload.OnResumableUploadStatusListener callback) {
+    public MFRunnableResumableUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, MFUploadData data, String sha256Hash, int numUnits, int unitSize, MFResumableBitmap bitmap, Executor readExecutor, int queueDepth, MFByteBudget memoryBudget, MFUnitRetryPolicy retryPolicy, MFUploadScheduler scheduler, Executor sendExecutor, MFConcurrencyController fileConcurrency, MFConcurrencyController globalConcurrency, MFUploadStats stats, MediaFireHttpProgressListener progressListener, MFRunnableResumableUpload.OnResumableUploadStatusListener callback) {
         this.mediaFire = mediaFire;
         this.upload = upload;
-        this.resumableUpload = resumableUpload;
+        this.data = data;
+        this.sha256Hash = sha256Hash;
+        this.numUnits = numUnits;
+        this.unitSize = unitSize;
+        this.bitmap = bitmap;
+        this.readExecutor = readExecutor;
+        this.queueDepth = queueDepth;
+        this.memoryBudget = memoryBudget;
+        this.retryPolicy = retryPolicy;
+        this.scheduler = scheduler;
+        this.sendExecutor = sendExecutor;
+        this.fileConcurrency = fileConcurrency;
+        this.globalConcurrency = globalConcurrency;
+        this.stats = stats;
+        this.progressListener = progressListener;
         this.callback = callback;
     }
 
@@ -58,189 +101,438 @@ class MFRunnableResumableUpload implements Runnable {
             params.put(PARAM_FOLDER_PATH, this.upload.getMediaFirePath());
         }
 
-        int numUnits = resumableUpload.getNumberOfUnits();
-        int unitSize = resumableUpload.getUnitSize();
-
-        Map<String, Object> headers = new HashMap<>();
-        if (this.upload.getFileSize() == 0) {
-            headers.put(HEADER_X_FILESIZE, this.upload.getFile().length());
-        } else {
-            headers.put(HEADER_X_FILESIZE, this.upload.getFileSize());
+        String quickKey = MFFileUpload.quickKeyOf(this.upload);
+        if (!TextUtils.isEmpty(quickKey)) {
+            // the last unit replaces the contents of the file
+            params.put(PARAM_QUICK_KEY, quickKey);
         }
 
-        if (!TextUtils.isEmpty(this.upload.getSha256Hash())) {
-            headers.put(HEADER_X_FILEHASH, this.upload.getSha256Hash());
-        } else {
-            headers.put(HEADER_X_FILEHASH, mediaFire.getHasher().sha256(this.upload.getFile()));
-        }
+        long fileSize = this.data.getSize();
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(HEADER_X_FILESIZE, fileSize);
 
         headers.put(HEADER_CONTENT_TYPE, CONTENT_TYPE_OCTET_STREAM);
         headers.put(HEADER_X_FILENAME, this.upload.getFileName());
 
-        for (int chunkNumber = 0; chunkNumber < numUnits; chunkNumber++) {
-            try {
-                if (isChunkUploaded(chunkNumber)) {
-                    continue;
-                }
-
-                int chunkSize = getChunkSize(chunkNumber, numUnits, this.upload.getFileSize(), unitSize);
-                byte[] chunk = makeChunk(unitSize, chunkNumber);
-                String chunkHash = mediaFire.getHasher().sha256(chunk);
-
-                headers.put(HEADER_X_UNIT_ID, chunkNumber);
-                headers.put(HEADER_X_UNIT_SIZE, chunkSize);
-                headers.put(HEADER_X_UNIT_HASH, chunkHash);
-
-                MediaFireApiRequest request = new MFApiRequest("/upload/resumable.php", params, chunk, headers);
-                UploadResumableResponse response = mediaFire.uploadRequest(request, UploadResumableResponse.class);
+        try {
+            if (!TextUtils.isEmpty(this.sha256Hash)) {
+                headers.put(HEADER_X_FILEHASH, this.sha256Hash);
+            } else if (!TextUtils.isEmpty(this.upload.getSha256Hash())) {
+                headers.put(HEADER_X_FILEHASH, this.upload.getSha256Hash());
+            } else {
+                headers.put(HEADER_X_FILEHASH, this.data.getSha256Hash(mediaFire.getHasher()));
+            }
 
-                if (response.hasError()) {
-                    if (callback != null) {
-                        this.callback.onResumableUploadApiError(this.upload, response);
-                    }
+            for (int pass = 0; pass <= RECONCILIATION_PASSES; pass++) {
+                if (sendUnits(params, headers, fileSize)) {
                     return;
                 }
+                if (this.bitmap.isComplete() || !this.data.isRereadable()) {
+                    break;
+                }
+                // the server bitmap is missing units that were sent, send only those again
+            }
+        } catch (MediaFireException e) {
+            if (callback != null) {
+                callback.onResumableUploadSdkException(upload, e);
+            }
+            return;
+        } catch (IOException e) {
+            if (callback != null) {
+                callback.onResumableUploadIOException(upload, e);
+            }
+            return;
+        }
 
-                DoUploadResumableModel doUpload = response.getDoUpload();
-                ResumableUploadModel newResumableUpload = response.getResumableUpload();
-                String allUnitsReady = newResumableUpload.getAllUnitsReady();
+        if (callback != null) {
+            callback.onResumableUploadFinishedIncomplete(this.upload);
+        }
+    }
 
-                if (allUnitsReady != null && "yes".equals(allUnitsReady) && doUpload != null) {
-                    String uploadKey = doUpload.getKey();
+    /**
+     * sends every unit the bitmap does not mark as uploaded, as many at once as the concurrency limits allow
+     * @return true if the upload is ready to poll, paused or an error was reported
+     */
+    private boolean sendUnits(Map<String, Object> params, Map<String, Object> headers, long fileSize) throws MediaFireException, IOException {
+        MFUnitReader reader = new MFUnitReader(this.data, fileSize, this.numUnits, this.unitSize, this.bitmap, this.mediaFire.getHasher(), this.queueDepth, this.memoryBudget);
+        this.readExecutor.execute(reader);
+
+        UnitSends sends = new UnitSends();
+        try {
+            while (!sends.isStopped()) {
+                // a stream can not be reopened to resume from, so it keeps sending through a pause
+                if (this.scheduler != null && this.scheduler.isPaused() && this.data.isRereadable()) {
+                    sends.awaitIdle();
+                    if (sends.isStopped()) {
+                        break;
+                    }
                     if (this.callback != null) {
-                        this.callback.onResumableUploadReadyToPoll(this.upload, uploadKey);
+                        this.callback.onResumableUploadPaused(this.upload, this);
                     }
-                    return;
+                    return true;
                 }
 
-                ResumableBitmapModel bitmap = resumableUpload.getBitmap();
-                if (bitmap != null) {
-                    int count = bitmap.getCount();
-                    List<Integer> words = bitmap.getWords();
-
-                    updateUploadBitmap(count, words);
+                acquireSlot();
+                MFUploadUnit unit;
+                try {
+                    unit = reader.take();
+                } catch (IOException e) {
+                    releaseSlot();
+                    throw e;
                 }
-
-                int numUploaded = 0;
-                for (int chunkCount = 0; chunkCount < numUnits; chunkCount++) {
-                    if (isChunkUploaded(chunkCount)) {
-                        numUploaded++;
-                    }
+                if (unit == null) {
+                    releaseSlot();
+                    break;
                 }
 
-                double percentFinished = (double) numUploaded / (double) numUnits;
-                percentFinished *= 100;
-                if (this.callback != null) {
-                    this.callback.onResumableUploadProgress(this.upload, percentFinished);
-                }
-            } catch (MediaFireException e) {
-                if (callback != null) {
-                    callback.onResumableUploadSdkException(upload, e);
-                }
-                return;
-            } catch (IOException e) {
-                if (callback != null) {
-                    callback.onResumableUploadIOException(upload, e);
+                // the server may have reported this unit while it was queued
+                if (this.bitmap.isUploaded(unit.getId())) {
+                    reader.release(unit);
+                    releaseSlot();
+                    continue;
                 }
-                return;
+
+                dispatch(reader, unit, params, headers, sends);
             }
+            sends.awaitIdle();
+        } finally {
+            reader.cancel();
         }
+        return sends.report();
+    }
 
-        if (callback != null) {
-            callback.onResumableUploadFinishedIncomplete(this.upload);
+    private void dispatch(final MFUnitReader reader, final MFUploadUnit unit, final Map<String, Object> params, final Map<String, Object> headers, final UnitSends sends) {
+        Runnable send = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (!sends.isStopped() && !Thread.currentThread().isInterrupted()) {
+                        sendAndRecord(unit, params, headers, sends);
+                    }
+                } finally {
+                    reader.release(unit);
+                    releaseSlot();
+                    sends.ended();
+                }
+            }
+        };
+
+        sends.started();
+        if (this.sendExecutor == null) {
+            send.run();
+            return;
+        }
+        try {
+            this.sendExecutor.execute(send);
+        } catch (RuntimeException e) {
+            send.run();
         }
     }
 
-    private boolean isChunkUploaded(int chunkId) {
-        if (this.uploadUnits.isEmpty()) {
-            return false;
+    private void sendAndRecord(MFUploadUnit unit, Map<String, Object> params, Map<String, Object> headers, UnitSends sends) {
+        UploadResumableResponse response;
+        try {
+            response = sendUnit(unit, params, headers);
+        } catch (MediaFireException e) {
+            sends.failed(e);
+            return;
+        } catch (IOException e) {
+            sends.failed(e);
+            return;
         }
-        return this.uploadUnits.get(chunkId);
-    }
 
-    private void updateUploadBitmap(int count, List<Integer> words) {
-        List<Boolean> uploadUnits = new LinkedList<>();
+        if (response.hasError()) {
+            sends.failed(response);
+            return;
+        }
+
+        if (this.stats != null) {
+            this.stats.bytesSent(this.upload, unit.getSize());
+        }
+        if (this.callback != null) {
+            this.callback.onResumableUploadUnitFinished(this.upload, unit.getId(), unit.getHash());
+        }
 
-        if (words == null || words.isEmpty()) {
-            this.uploadUnits = uploadUnits;
+        DoUploadResumableModel doUpload = response.getDoUpload();
+        ResumableUploadModel newResumableUpload = response.getResumableUpload();
+        String allUnitsReady = newResumableUpload != null ? newResumableUpload.getAllUnitsReady() : null;
+
+        if (allUnitsReady != null && "yes".equals(allUnitsReady) && doUpload != null) {
+            sends.ready(doUpload.getKey());
             return;
         }
 
-        //loop count times
-        for (int i = 0; i < count; i++) {
-            //convert words to binary string
-            String word = Integer.toBinaryString(words.get(i));
+        // merge the server bitmap, fall back to marking the unit locally if it wasn't sent
+        if (newResumableUpload != null && newResumableUpload.getBitmap() != null) {
+            this.bitmap.update(newResumableUpload.getBitmap());
+        } else {
+            this.bitmap.markUploaded(unit.getId());
+        }
+    }
 
-            //ensure number is 16 bit by adding 0 until there are 16 bits
-            while (word.length() < 16) {
-                word = "0" + word;
+    private void acquireSlot() throws InterruptedIOException {
+        try {
+            if (this.fileConcurrency != null) {
+                this.fileConcurrency.acquire();
             }
-
-            //add boolean to collection depending on bit value
-            for (int j = 0; j < word.length(); j++) {
-                uploadUnits.add(i * 16 + j, word.charAt(15 - j) == '1');
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting to send a unit");
+        }
+        try {
+            if (this.globalConcurrency != null) {
+                this.globalConcurrency.acquire();
             }
+        } catch (InterruptedException e) {
+            if (this.fileConcurrency != null) {
+                this.fileConcurrency.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting to send a unit");
         }
+    }
 
-        this.uploadUnits = uploadUnits;
+    private void releaseSlot() {
+        if (this.globalConcurrency != null) {
+            this.globalConcurrency.release();
+        }
+        if (this.fileConcurrency != null) {
+            this.fileConcurrency.release();
+        }
     }
 
-    private byte[] makeChunk(int unitSize, int chunkNumber) throws IOException {
-        FileInputStream fis = new FileInputStream(this.upload.getFile());
-        BufferedInputStream bis = new BufferedInputStream(fis);
-        byte[] uploadChunk = createUploadChunk(unitSize, chunkNumber, bis);
-        fis.close();
-        bis.close();
-        return uploadChunk;
+    private void unitSent(long bytes, long elapsedNanos) {
+        if (this.fileConcurrency != null) {
+            this.fileConcurrency.onUnitSent(bytes, elapsedNanos);
+        }
+        if (this.globalConcurrency != null) {
+            this.globalConcurrency.onUnitSent(bytes, elapsedNanos);
+        }
     }
 
-    private int getChunkSize(int chunkNumber, int numChunks, long fileSize, int unitSize) {
-        int chunkSize;
-        if (chunkNumber >= numChunks) {
-            chunkSize = 0; // represents bad size
-        } else {
-            if (fileSize % unitSize == 0) { // all units will be of unitSize
-                chunkSize = unitSize;
-            } else if (chunkNumber < numChunks - 1) { // this unit is of unitSize
-                chunkSize = unitSize;
-            } else { // this unit is "special" and is the modulo of fileSize and unitSize;
-                chunkSize = (int) (fileSize % unitSize);
+    private void unitFailed() {
+        if (this.fileConcurrency != null) {
+            this.fileConcurrency.onUnitFailed();
+        }
+        if (this.globalConcurrency != null) {
+            this.globalConcurrency.onUnitFailed();
+        }
+    }
+
+    /**
+     * sends a unit, retrying failures the retry policy allows
+     * @return the last response, which has an error or was accepted
+     * @throws MediaFireException if the last attempt threw
+     * @throws IOException if interrupted waiting to retry
+     */
+    private UploadResumableResponse sendUnit(MFUploadUnit unit, Map<String, Object> params, Map<String, Object> headers) throws MediaFireException, IOException {
+        // units may be in flight together, each request gets its own headers
+        Map<String, Object> unitHeaders = new HashMap<>(headers);
+        unitHeaders.put(HEADER_X_UNIT_ID, unit.getId());
+        unitHeaders.put(HEADER_X_UNIT_SIZE, unit.getSize());
+        unitHeaders.put(HEADER_X_UNIT_HASH, unit.getHash());
+
+        for (int attempt = 1; ; attempt++) {
+            MediaFireApiRequest request = new MFApiRequest("/upload/resumable.php", params, unit.getData(), unitHeaders, this.progressListener);
+            UploadResumableResponse response = null;
+            MediaFireException exception = null;
+            MFUnitRetryPolicy.Failure failure;
+            long started = System.nanoTime();
+            try {
+                response = this.mediaFire.uploadRequest(request, UploadResumableResponse.class);
+                failure = MFUnitRetryPolicy.classify(response);
+            } catch (MediaFireException e) {
+                exception = e;
+                failure = MFUnitRetryPolicy.classify(e);
+            }
+
+            if (failure == null) {
+                unitSent(unit.getSize(), System.nanoTime() - started);
+                return response;
+            }
+            if (failure == MFUnitRetryPolicy.Failure.NETWORK) {
+                unitFailed();
+            }
+            if (this.retryPolicy == null || Thread.currentThread().isInterrupted() || !this.retryPolicy.shouldRetry(failure, attempt)) {
+                if (exception != null) {
+                    throw exception;
+                }
+                return response;
+            }
+
+            if (failure == MFUnitRetryPolicy.Failure.TOKEN_EXPIRED) {
+                refreshUploadToken();
+            }
+            try {
+                Thread.sleep(this.retryPolicy.getBackoff(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting to retry unit " + unit.getId());
             }
         }
+    }
 
-        return chunkSize;
+    private void refreshUploadToken() {
+        if (!(this.mediaFire instanceof MFClient)) {
+            // the next attempt fails the same way if the client does not renew it
+            return;
+        }
+        try {
+            MediaFireActionToken token = ((MFClient) this.mediaFire).requestNewActionToken(MediaFireActionToken.TYPE_UPLOAD);
+            if (token != null) {
+                this.mediaFire.getSessionStore().store(token);
+            }
+        } catch (MediaFireException ignored) {
+            // the retry reports the failure
+        }
     }
 
-    private byte[] createUploadChunk(long unitSize, int chunkNumber, BufferedInputStream fileStream) throws IOException {
-        int offset = (int) (unitSize * chunkNumber);
-        fileStream.skip(offset);
+    /**
+     * units of one pass which are in flight and how the pass ended. waiting for units in flight lasts as long as the
+     * sends, so it uses a lock rather than a monitor which would pin a virtual thread's carrier.
+     */
+    private class UnitSends {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition idle = this.lock.newCondition();
+        private int inFlight;
+        private String uploadKey;
+        private MediaFireException sdkException;
+        private IOException ioException;
+        private MediaFireApiResponse apiError;
+
+        void started() {
+            this.lock.lock();
+            try {
+                this.inFlight++;
+            } finally {
+                this.lock.unlock();
+            }
+        }
 
-        ByteArrayOutputStream output = new ByteArrayOutputStream((int) unitSize);
-        int bufferSize = 65536;
+        void ended() {
+            this.lock.lock();
+            try {
+                this.inFlight--;
+                this.idle.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
 
-        byte[] buffer = new byte[bufferSize];
-        int readSize;
-        int t = 0;
+        boolean isStopped() {
+            this.lock.lock();
+            try {
+                return this.uploadKey != null || this.sdkException != null || this.ioException != null || this.apiError != null;
+            } finally {
+                this.lock.unlock();
+            }
+        }
 
-        while ((readSize = fileStream.read(buffer)) > 0 && t <= unitSize) {
-            if (output.size() + readSize > unitSize) {
-                int actualReadSize = (int) unitSize - output.size();
-                output.write(buffer, 0, actualReadSize);
-            } else {
-                output.write(buffer, 0, readSize);
+        void ready(String uploadKey) {
+            this.lock.lock();
+            try {
+                if (this.uploadKey == null) {
+                    this.uploadKey = uploadKey;
+                }
+            } finally {
+                this.lock.unlock();
             }
+        }
 
-            if (readSize > 0) {
-                t += readSize;
+        void failed(MediaFireException e) {
+            this.lock.lock();
+            try {
+                if (!isStopped()) {
+                    this.sdkException = e;
+                }
+            } finally {
+                this.lock.unlock();
             }
         }
 
-        return output.toByteArray();
+        void failed(IOException e) {
+            this.lock.lock();
+            try {
+                if (!isStopped()) {
+                    this.ioException = e;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        void failed(MediaFireApiResponse response) {
+            this.lock.lock();
+            try {
+                if (!isStopped()) {
+                    this.apiError = response;
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        void awaitIdle() throws InterruptedIOException {
+            this.lock.lock();
+            try {
+                while (this.inFlight > 0) {
+                    this.idle.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for units in flight");
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * @return true if the pass ended the upload and it was reported
+         * @throws MediaFireException
+         * @throws IOException
+         */
+        boolean report() throws MediaFireException, IOException {
+            String uploadKey;
+            MediaFireApiResponse apiError;
+            this.lock.lock();
+            try {
+                // a unit which completed the upload outweighs a failure of another unit in flight
+                if (this.uploadKey == null && this.sdkException != null) {
+                    throw this.sdkException;
+                }
+                if (this.uploadKey == null && this.ioException != null) {
+                    throw this.ioException;
+                }
+                uploadKey = this.uploadKey;
+                apiError = this.apiError;
+            } finally {
+                this.lock.unlock();
+            }
+            if (uploadKey != null) {
+                if (callback != null) {
+                    callback.onResumableUploadReadyToPoll(upload, uploadKey);
+                }
+                return true;
+            }
+            if (apiError != null) {
+                if (callback != null) {
+                    callback.onResumableUploadApiError(upload, apiError);
+                }
+                return true;
+            }
+            return false;
+        }
     }
 
     public interface OnResumableUploadStatusListener {
         void onResumableUploadReadyToPoll(MediaFireFileUpload upload, String uploadKey);
-        void onResumableUploadProgress(MediaFireFileUpload upload, double percentFinished);
+        void onResumableUploadUnitFinished(MediaFireFileUpload upload, int unitId, String unitHash);
+        /**
+         * @param upload
+         * @param resume runs the upload again from the units already on the server
+         */
+        void onResumableUploadPaused(MediaFireFileUpload upload, Runnable resume);
         void onResumableUploadSdkException(MediaFireFileUpload upload, MediaFireException e);
         void onResumableUploadFinishedIncomplete(MediaFireFileUpload upload);
         void onResumableUploadIOException(MediaFireFileUpload upload, IOException e);
@@ -0,0 +1,180 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFApiRequest;
+import com.mediafire.sdk.MediaFireApiRequest;
+import com.mediafire.sdk.MediaFireClient;
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.MediaFireHttpProgressListener;
+import com.mediafire.sdk.response_models.MediaFireApiResponse;
+import com.mediafire.sdk.response_models.data_models.DoUploadResumableModel;
+import com.mediafire.sdk.response_models.data_models.SimpleDoUploadModel;
+import com.mediafire.sdk.response_models.upload.UploadSimpleResponse;
+import com.mediafire.sdk.response_models.upload.UploadUpdateResponse;
+import com.mediafire.sdk.util.TextUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Uploads a small file in a single upload/simple request, skipping upload/check and upload/resumable. The whole
+ * file is read into memory so this is only used below the uploader's size threshold, and its size is taken from the
+ * uploader's memory budget, if any, until the request is done. An upload replacing an existing file's contents is
+ * sent to upload/update instead.
+ */
+class MFRunnableSimpleUpload implements Runnable {
+
+    private static final String PARAM_FOLDER_KEY = "folder_key";
+    private static final String PARAM_FOLDER_PATH = "path";
+    private static final String PARAM_ACTION_ON_DUPLICATE = "action_on_duplicate";
+    private static final String PARAM_QUICK_KEY = "quick_key";
+
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_X_FILENAME = "x-filename";
+    private static final String HEADER_X_FILESIZE = "x-filesize";
+    private static final String HEADER_X_FILEHASH = "x-filehash";
+    private static final String CONTENT_TYPE_OCTET_STREAM = "application/octet-stream";
+
+    private final MediaFireClient mediaFire;
+    private final MediaFireFileUpload upload;
+    private final MFUploadData data;
+    private final MFByteBudget memoryBudget;
+    private final MediaFireHttpProgressListener progressListener;
+    private final OnSimpleUploadStatusListener callback;
+
+    public MFRunnableSimpleUpload(MediaFireClient mediaFire, MediaFireFileUpload upload, MFUploadData data, MFByteBudget memoryBudget, MediaFireHttpProgressListener progressListener, OnSimpleUploadStatusListener callback) {
+        this.mediaFire = mediaFire;
+        this.upload = upload;
+        this.data = data;
+        this.memoryBudget = memoryBudget;
+        this.progressListener = progressListener;
+        this.callback = callback;
+    }
+
+    @Override
+    public void run() {
+        long size = this.data.getSize();
+        if (this.memoryBudget != null) {
+            try {
+                // small files, waiting for other uploads to give memory back is always worth it
+                this.memoryBudget.acquire(size);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (this.callback != null) {
+                    this.callback.onSimpleUploadIOException(this.upload, new InterruptedIOException("interrupted waiting for memory budget"));
+                }
+                return;
+            }
+        }
+
+        try {
+            upload();
+        } finally {
+            if (this.memoryBudget != null) {
+                this.memoryBudget.release(size);
+            }
+        }
+    }
+
+    private void upload() {
+        byte[] data;
+        try {
+            data = readData();
+        } catch (IOException e) {
+            if (this.callback != null) {
+                this.callback.onSimpleUploadIOException(this.upload, e);
+            }
+            return;
+        }
+
+        String quickKey = MFFileUpload.quickKeyOf(this.upload);
+        boolean update = !TextUtils.isEmpty(quickKey);
+        LinkedHashMap<String, Object> params = new LinkedHashMap<>();
+        if (update) {
+            params.put(PARAM_QUICK_KEY, quickKey);
+        } else {
+            params.put(PARAM_ACTION_ON_DUPLICATE, "keep");
+            if (!TextUtils.isEmpty(this.upload.getFolderKey())) {
+                params.put(PARAM_FOLDER_KEY, this.upload.getFolderKey());
+            }
+
+            if (!TextUtils.isEmpty(this.upload.getMediaFirePath())) {
+                params.put(PARAM_FOLDER_PATH, this.upload.getMediaFirePath());
+            }
+        }
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put(HEADER_CONTENT_TYPE, CONTENT_TYPE_OCTET_STREAM);
+        headers.put(HEADER_X_FILENAME, this.upload.getFileName());
+        headers.put(HEADER_X_FILESIZE, data.length);
+        // the data is already in memory, hashing it is cheaper than reading the file again
+        headers.put(HEADER_X_FILEHASH, !TextUtils.isEmpty(this.upload.getSha256Hash()) ? this.upload.getSha256Hash() : this.mediaFire.getHasher().sha256(data));
+
+        MediaFireApiRequest request = new MFApiRequest(update ? "/upload/update.php" : "/upload/simple.php", params, data, headers, this.progressListener);
+        MediaFireApiResponse response;
+        String uploadKey = null;
+        try {
+            if (update) {
+                UploadUpdateResponse updateResponse = this.mediaFire.uploadRequest(request, UploadUpdateResponse.class);
+                DoUploadResumableModel doUpload = updateResponse.getDoUpload();
+                if (doUpload != null && doUpload.getResultCode() == 0) {
+                    uploadKey = doUpload.getKey();
+                }
+                response = updateResponse;
+            } else {
+                UploadSimpleResponse simpleResponse = this.mediaFire.uploadRequest(request, UploadSimpleResponse.class);
+                SimpleDoUploadModel doUpload = simpleResponse.getDoUpload();
+                if (doUpload != null && doUpload.getResultCode() == 0) {
+                    uploadKey = doUpload.getUploadKey();
+                }
+                response = simpleResponse;
+            }
+        } catch (MediaFireException e) {
+            if (this.callback != null) {
+                this.callback.onSimpleUploadSdkException(this.upload, e);
+            }
+            return;
+        }
+
+        if (response.hasError() || TextUtils.isEmpty(uploadKey)) {
+            if (this.callback != null) {
+                this.callback.onSimpleUploadApiError(this.upload, response);
+            }
+            return;
+        }
+
+        if (this.callback != null) {
+            this.callback.onSimpleUploadReadyToPoll(this.upload, uploadKey);
+        }
+    }
+
+    private byte[] readData() throws IOException {
+        long length = this.data.getSize();
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("file too large for a simple upload: " + length);
+        }
+        MFUploadData.Reader reader = this.data.open();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            try {
+                reader.readFully(buffer, 0);
+            } catch (EOFException e) {
+                throw new IOException("file changed while reading: " + this.upload.getFileName(), e);
+            }
+            return buffer.array();
+        } finally {
+            reader.close();
+        }
+    }
+
+    public interface OnSimpleUploadStatusListener {
+        void onSimpleUploadReadyToPoll(MediaFireFileUpload upload, String uploadKey);
+        void onSimpleUploadSdkException(MediaFireFileUpload upload, MediaFireException e);
+        void onSimpleUploadIOException(MediaFireFileUpload upload, IOException e);
+        void onSimpleUploadApiError(MediaFireFileUpload upload, MediaFireApiResponse response);
+    }
+}
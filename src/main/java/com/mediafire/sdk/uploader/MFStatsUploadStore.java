@@ -0,0 +1,194 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.MediaFireApiResponse;
+
+import java.io.IOException;
+
+/**
+ * Passes every call on to the uploader's store and feeds the upload's stage and bytes to MFUploadStats on the way.
+ */
+class MFStatsUploadStore implements MediaFireUploadStore, MediaFireUploadCancelListener {
+
+    private final MediaFireUploadStore store;
+    private final MFUploadStats stats;
+
+    MFStatsUploadStore(MediaFireUploadStore store, MFUploadStats stats) {
+        this.store = store;
+        this.stats = stats;
+    }
+
+    @Override
+    public void insert(MediaFireWebUpload upload) {
+        this.store.insert(upload);
+        this.stats.added(upload, 0);
+    }
+
+    @Override
+    public void insert(MediaFireFileUpload upload) {
+        this.store.insert(upload);
+        long fileSize = upload.getFileSize() == 0 && upload.getFile() != null ? upload.getFile().length() : upload.getFileSize();
+        this.stats.added(upload, fileSize);
+    }
+
+    @Override
+    public MediaFireUpload getNextUpload() {
+        return this.store.getNextUpload();
+    }
+
+    @Override
+    public void uploadQueued(MediaFireWebUpload upload) {
+        this.store.uploadQueued(upload);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.TRANSFERRING);
+    }
+
+    @Override
+    public void uploadQueued(MediaFireFileUpload upload) {
+        this.store.uploadQueued(upload);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.CHECKING);
+    }
+
+    @Override
+    public void polling(MediaFireWebUpload upload, int statusCode, String description) {
+        this.store.polling(upload, statusCode, description);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.POLLING);
+    }
+
+    @Override
+    public void polling(MediaFireFileUpload upload, int statusCode, String description) {
+        this.store.polling(upload, statusCode, description);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.POLLING);
+    }
+
+    @Override
+    public void uploadFinished(MediaFireWebUpload upload, String quickKey, String filename) {
+        this.store.uploadFinished(upload, quickKey, filename);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void uploadFinished(MediaFireFileUpload upload, String quickKey, String fileName) {
+        this.store.uploadFinished(upload, quickKey, fileName);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void pollingError(MediaFireWebUpload upload, int statusCode, int errorStatus, String description) {
+        this.store.pollingError(upload, statusCode, errorStatus, description);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void pollingError(MediaFireFileUpload upload, int fileErrorCode, int resultCode, int statusCode, String description) {
+        this.store.pollingError(upload, fileErrorCode, resultCode, statusCode, description);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void sdkException(MediaFireWebUpload upload, MediaFireException e) {
+        this.store.sdkException(upload, e);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void sdkException(MediaFireFileUpload upload, MediaFireException e) {
+        this.store.sdkException(upload, e);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void fileIOException(MediaFireFileUpload upload, IOException e) {
+        this.store.fileIOException(upload, e);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void pollingInterrupted(MediaFireWebUpload upload, InterruptedException e) {
+        this.store.pollingInterrupted(upload, e);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void pollingInterrupted(MediaFireFileUpload upload, InterruptedException e) {
+        this.store.pollingInterrupted(upload, e);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void pollingLimitExceeded(MediaFireWebUpload upload) {
+        this.store.pollingLimitExceeded(upload);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void pollingLimitExceeded(MediaFireFileUpload upload) {
+        this.store.pollingLimitExceeded(upload);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void apiError(MediaFireFileUpload upload, MediaFireApiResponse response) {
+        this.store.apiError(upload, response);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void pollingReady(MediaFireWebUpload upload, String uploadKey) {
+        this.store.pollingReady(upload, uploadKey);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.POLLING);
+    }
+
+    @Override
+    public void pollingReady(MediaFireFileUpload upload, String uploadKey) {
+        this.store.pollingReady(upload, uploadKey);
+        // every byte is on the server once it is processing the upload
+        this.stats.bytesOnServer(upload, Long.MAX_VALUE);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.POLLING);
+    }
+
+    @Override
+    public void checkFinished(MediaFireFileUpload upload) {
+        this.store.checkFinished(upload);
+    }
+
+    @Override
+    public void uploadProgress(MediaFireFileUpload upload, double percentFinished) {
+        this.store.uploadProgress(upload, percentFinished);
+    }
+
+    @Override
+    public void resumableFinishedWithoutAllUnitsReady(MediaFireFileUpload upload) {
+        this.store.resumableFinishedWithoutAllUnitsReady(upload);
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void resumableUploadStarting(MediaFireFileUpload upload) {
+        this.store.resumableUploadStarting(upload);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.TRANSFERRING);
+    }
+
+    @Override
+    public void instantUploadStarting(MediaFireFileUpload upload) {
+        this.store.instantUploadStarting(upload);
+        // the content is already on the server
+        this.stats.bytesOnServer(upload, Long.MAX_VALUE);
+        this.stats.stage(upload, MediaFireUploadStats.Stage.TRANSFERRING);
+    }
+
+    @Override
+    public void uploadCancelled(MediaFireWebUpload upload) {
+        if (this.store instanceof MediaFireUploadCancelListener) {
+            ((MediaFireUploadCancelListener) this.store).uploadCancelled(upload);
+        }
+        this.stats.ended(upload);
+    }
+
+    @Override
+    public void uploadCancelled(MediaFireFileUpload upload) {
+        if (this.store instanceof MediaFireUploadCancelListener) {
+            ((MediaFireUploadCancelListener) this.store).uploadCancelled(upload);
+        }
+        this.stats.ended(upload);
+    }
+}
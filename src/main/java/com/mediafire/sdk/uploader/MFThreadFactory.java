@@ -0,0 +1,24 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates named daemon threads for the uploader's internal work so they never keep the JVM alive.
+ */
+class MFThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger count = new AtomicInteger();
+
+    MFThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, this.prefix + "-" + this.count.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
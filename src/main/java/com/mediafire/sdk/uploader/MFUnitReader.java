@@ -0,0 +1,219 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireHasher;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read and hash stage of a resumable upload. Runs ahead of the thread sending units, reading and hashing the next
+ * units into a bounded queue so disk, cpu and network work overlap. The queue depth bounds how many unit buffers
+ * are held in memory at once per upload; an optional budget shared by every upload bounds them overall. A unit's
+ * bytes are taken from the budget before it is read and given back once the sender releases the unit.
+ */
+class MFUnitReader implements Runnable {
+
+    private static final MFUploadUnit END_OF_UNITS = new MFUploadUnit(-1, new byte[0], null);
+    private static final long OFFER_TIMEOUT_MILLIS = 500;
+
+    private final MFUploadData data;
+    private final long fileSize;
+    private final int numUnits;
+    private final int unitSize;
+    private final MFResumableBitmap bitmap;
+    private final MediaFireHasher hasher;
+    private final BlockingQueue<MFUploadUnit> units;
+    private final MFByteBudget budget;
+
+    private volatile boolean cancelled;
+    private volatile IOException exception;
+
+    MFUnitReader(MFUploadData data, long fileSize, int numUnits, int unitSize, MFResumableBitmap bitmap, MediaFireHasher hasher, int queueDepth, MFByteBudget budget) {
+        this.data = data;
+        this.fileSize = fileSize;
+        this.numUnits = numUnits;
+        this.unitSize = unitSize;
+        this.bitmap = bitmap;
+        this.hasher = hasher;
+        this.units = new ArrayBlockingQueue<>(Math.max(1, queueDepth));
+        this.budget = budget;
+    }
+
+    /**
+     * number of units that fit in the memory budget, at least one and no more than maxQueueDepth
+     * @param maxQueueDepth
+     * @param memoryBudget bytes available for buffered units
+     * @param unitSize
+     * @return
+     */
+    static int getQueueDepth(int maxQueueDepth, long memoryBudget, int unitSize) {
+        if (unitSize <= 0) {
+            return Math.max(1, maxQueueDepth);
+        }
+        long fit = memoryBudget / unitSize;
+        return (int) Math.max(1, Math.min(maxQueueDepth, fit));
+    }
+
+    @Override
+    public void run() {
+        MFUploadData.Reader reader = null;
+        try {
+            reader = this.data.open();
+            for (int unitId = 0; unitId < this.numUnits && !this.cancelled; unitId++) {
+                if (this.bitmap.isUploaded(unitId)) {
+                    continue;
+                }
+
+                int size = getUnitSize(unitId);
+                if (!acquire(size)) {
+                    return;
+                }
+                MFUploadUnit unit;
+                try {
+                    byte[] data = read(reader, unitId, size);
+                    unit = new MFUploadUnit(unitId, data, this.hasher.sha256(data));
+                } catch (IOException e) {
+                    releaseBytes(size);
+                    throw e;
+                }
+                if (!put(unit)) {
+                    releaseBytes(size);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            this.exception = e;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException ignored) {
+                }
+            }
+            finish();
+        }
+    }
+
+    /**
+     * waits for the next unit
+     * @return null once every unit that still needed uploading has been returned
+     * @throws IOException if reading the file failed or the calling thread was interrupted
+     */
+    MFUploadUnit take() throws IOException {
+        MFUploadUnit unit;
+        try {
+            unit = this.units.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InterruptedIOException("interrupted waiting for unit");
+        }
+
+        if (unit == END_OF_UNITS) {
+            // leave the marker for any later call
+            this.units.offer(END_OF_UNITS);
+            if (this.exception != null) {
+                throw this.exception;
+            }
+            return null;
+        }
+        return unit;
+    }
+
+    /**
+     * gives a unit returned by take() back to the memory budget once it has been sent or skipped
+     * @param unit
+     */
+    void release(MFUploadUnit unit) {
+        if (unit != null && unit != END_OF_UNITS) {
+            releaseBytes(unit.getSize());
+        }
+    }
+
+    /**
+     * stops reading and releases any buffered units
+     */
+    void cancel() {
+        this.cancelled = true;
+        drain();
+    }
+
+    private int getUnitSize(int unitId) {
+        long offset = (long) unitId * this.unitSize;
+        return (int) Math.max(0, Math.min(this.unitSize, this.fileSize - offset));
+    }
+
+    private boolean acquire(int size) {
+        if (this.budget == null || size == 0) {
+            return true;
+        }
+        try {
+            while (!this.budget.tryAcquire(size, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (this.cancelled) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.exception = new InterruptedIOException("interrupted waiting for memory budget");
+            this.cancelled = true;
+            return false;
+        }
+    }
+
+    private void releaseBytes(int size) {
+        if (this.budget != null && size > 0) {
+            this.budget.release(size);
+        }
+    }
+
+    private void drain() {
+        List<MFUploadUnit> drained = new ArrayList<>();
+        this.units.drainTo(drained);
+        for (MFUploadUnit unit : drained) {
+            release(unit);
+        }
+    }
+
+    private byte[] read(MFUploadData.Reader reader, int unitId, int size) throws IOException {
+        if (size <= 0) {
+            return new byte[0];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        reader.readFully(buffer, (long) unitId * this.unitSize);
+        return buffer.array();
+    }
+
+    private boolean put(MFUploadUnit unit) {
+        try {
+            while (!this.units.offer(unit, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (this.cancelled) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.exception = new InterruptedIOException("interrupted reading units");
+            this.cancelled = true;
+            return false;
+        }
+    }
+
+    private void finish() {
+        if (!this.cancelled && put(END_OF_UNITS)) {
+            return;
+        }
+        // nobody is going to drain the queue, make room for the marker
+        drain();
+        this.units.offer(END_OF_UNITS);
+    }
+}
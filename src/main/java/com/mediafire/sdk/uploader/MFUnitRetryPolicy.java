@@ -0,0 +1,124 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.data_models.DoUploadResumableModel;
+import com.mediafire.sdk.response_models.upload.UploadResumableResponse;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed upload/resumable request for a unit is sent again and how long to wait first. Waits grow
+ * exponentially from the initial backoff up to a cap, with jitter so uploads which failed together do not retry
+ * together.
+ */
+class MFUnitRetryPolicy {
+
+    /**
+     * api error returned when the session (or action) token is missing or invalid
+     */
+    static final int ERROR_INVALID_TOKEN = 105;
+
+    private static final long MAX_BACKOFF_MILLIS = 30 * 1000;
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+
+    /**
+     * @param maxAttempts attempts per unit including the first, 1 to never retry
+     * @param initialBackoffMillis wait before the first retry
+     */
+    MFUnitRetryPolicy(int maxAttempts, long initialBackoffMillis) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(0, initialBackoffMillis);
+    }
+
+    /**
+     * @param e thrown by the request
+     * @return NETWORK if an IOException caused it, otherwise FATAL
+     */
+    static Failure classify(MediaFireException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return Failure.NETWORK;
+            }
+        }
+        return Failure.FATAL;
+    }
+
+    /**
+     * @param response
+     * @return null if the unit was accepted
+     */
+    static Failure classify(UploadResumableResponse response) {
+        if (response.hasError()) {
+            return response.getError() == ERROR_INVALID_TOKEN ? Failure.TOKEN_EXPIRED : Failure.FATAL;
+        }
+        DoUploadResumableModel doUpload = response.getDoUpload();
+        if (doUpload != null && doUpload.getResultCode() != 0) {
+            // the server refused the unit, normally because its data did not match x-unit-hash
+            return Failure.HASH_MISMATCH;
+        }
+        return null;
+    }
+
+    /**
+     * @param failure
+     * @param attempt number of the attempt that failed, starting at 1
+     * @return
+     */
+    boolean shouldRetry(Failure failure, int attempt) {
+        return failure.isRetryable() && attempt < this.maxAttempts;
+    }
+
+    /**
+     * @param attempt number of the attempt that failed, starting at 1
+     * @return milliseconds to wait before the next attempt
+     */
+    long getBackoff(int attempt) {
+        long backoff = this.initialBackoffMillis;
+        for (int i = 1; i < attempt && backoff < MAX_BACKOFF_MILLIS; i++) {
+            backoff *= 2;
+        }
+        backoff = Math.min(backoff, MAX_BACKOFF_MILLIS);
+        if (backoff <= 1) {
+            return backoff;
+        }
+        // between half and all of the backoff
+        long half = backoff / 2;
+        return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+    }
+
+    int getMaxAttempts() {
+        return this.maxAttempts;
+    }
+
+    enum Failure {
+        /**
+         * the connection failed or timed out, the unit may or may not have arrived
+         */
+        NETWORK(true),
+        /**
+         * the server received the unit but did not accept its data
+         */
+        HASH_MISMATCH(true),
+        /**
+         * the action token expired, a new one is requested before retrying
+         */
+        TOKEN_EXPIRED(true),
+        /**
+         * retrying would fail the same way
+         */
+        FATAL(false);
+
+        private final boolean retryable;
+
+        Failure(boolean retryable) {
+            this.retryable = retryable;
+        }
+
+        boolean isRetryable() {
+            return this.retryable;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireHasher;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The bytes a file upload sends, wherever they are: a local file, a spool of a source or a source read as it is sent.
+ * Only data which can be read more than once supports a second pass over units the server did not get.
+ */
+abstract class MFUploadData {
+
+    /**
+     * @param upload
+     * @return the upload's data, null if it comes from a source which has to be spooled first
+     */
+    static MFUploadData forUpload(MediaFireFileUpload upload) {
+        if (upload.getFile() != null) {
+            return new FileData(upload.getFile(), upload.getFileSize());
+        }
+        MediaFireUploadSource source = MFFileUpload.sourceOf(upload);
+        if (source != null && source.getSize() >= 0 && source.getSha256Hash() != null) {
+            return new SourceData(source);
+        }
+        return null;
+    }
+
+    /**
+     * @return size in bytes
+     */
+    abstract long getSize();
+
+    /**
+     * @param hasher used if the hash is not known
+     * @return lower case hex
+     * @throws IOException if the data could not be read to hash it
+     */
+    abstract String getSha256Hash(MediaFireHasher hasher) throws IOException;
+
+    /**
+     * @return false if the data can only be read once, front to back
+     */
+    abstract boolean isRereadable();
+
+    /**
+     * @return reader to be closed once done
+     * @throws IOException
+     */
+    abstract Reader open() throws IOException;
+
+    /**
+     * frees anything held for the data once the upload has ended, e.g. a spool file
+     */
+    void release() {
+    }
+
+    /**
+     * @param bytes a digest
+     * @return the bytes as lower case hex, as the api expects hashes
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes) {
+            sb.append(Integer.toString((b & 0xff) + 0x100, 16).substring(1));
+        }
+        return sb.toString();
+    }
+
+    interface Reader extends Closeable {
+        /**
+         * fills the buffer with the data at the position
+         * @param buffer
+         * @param position
+         * @throws IOException
+         */
+        void readFully(ByteBuffer buffer, long position) throws IOException;
+    }
+
+    static class FileData extends MFUploadData {
+        private final File file;
+        private final long size;
+
+        /**
+         * @param file
+         * @param size 0 to use the file's length
+         */
+        FileData(File file, long size) {
+            this.file = file;
+            this.size = size;
+        }
+
+        @Override
+        long getSize() {
+            return this.size == 0 ? this.file.length() : this.size;
+        }
+
+        @Override
+        String getSha256Hash(MediaFireHasher hasher) throws IOException {
+            String sha256Hash = hasher.sha256(this.file);
+            if (sha256Hash == null) {
+                throw new IOException("could not hash " + this.file);
+            }
+            return sha256Hash;
+        }
+
+        @Override
+        boolean isRereadable() {
+            return true;
+        }
+
+        @Override
+        Reader open() throws IOException {
+            return new ChannelReader(new RandomAccessFile(this.file, "r"), this.file.toString());
+        }
+    }
+
+    /**
+     * reads a source with known size and hash as units are sent, without storing it
+     */
+    static class SourceData extends MFUploadData {
+        private final MediaFireUploadSource source;
+        private final AtomicBoolean opened = new AtomicBoolean();
+
+        SourceData(MediaFireUploadSource source) {
+            this.source = source;
+        }
+
+        @Override
+        long getSize() {
+            return this.source.getSize();
+        }
+
+        @Override
+        String getSha256Hash(MediaFireHasher hasher) {
+            return this.source.getSha256Hash();
+        }
+
+        @Override
+        boolean isRereadable() {
+            return false;
+        }
+
+        @Override
+        Reader open() throws IOException {
+            this.opened.set(true);
+            final ReadableByteChannel channel = this.source.open();
+            return new Reader() {
+                private long position;
+
+                @Override
+                public void readFully(ByteBuffer buffer, long position) throws IOException {
+                    if (position < this.position) {
+                        throw new IOException("upload source can not be read backwards");
+                    }
+                    skip(position - this.position);
+                    while (buffer.hasRemaining()) {
+                        int read = channel.read(buffer);
+                        if (read < 0) {
+                            throw new EOFException("unexpected end of upload source at " + this.position);
+                        }
+                        this.position += read;
+                    }
+                }
+
+                private void skip(long bytes) throws IOException {
+                    // units already on the server
+                    ByteBuffer skipped = ByteBuffer.allocate((int) Math.min(bytes, 64 * 1024));
+                    while (bytes > 0) {
+                        skipped.clear();
+                        skipped.limit((int) Math.min(bytes, skipped.capacity()));
+                        int read = channel.read(skipped);
+                        if (read < 0) {
+                            throw new EOFException("unexpected end of upload source at " + this.position);
+                        }
+                        bytes -= read;
+                        this.position += read;
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    channel.close();
+                }
+            };
+        }
+
+        @Override
+        void release() {
+            if (this.opened.compareAndSet(false, true)) {
+                // not read, e.g. finished with upload/instant, the channel is still ours to close
+                try {
+                    this.source.open().close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * positional reads of a file, independent of other readers of the same file
+     */
+    static class ChannelReader implements Reader {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final String name;
+
+        ChannelReader(RandomAccessFile file, String name) {
+            this.file = file;
+            this.channel = file.getChannel();
+            this.name = name;
+        }
+
+        @Override
+        public void readFully(ByteBuffer buffer, long position) throws IOException {
+            long offset = position;
+            while (buffer.hasRemaining()) {
+                int read = this.channel.read(buffer, offset);
+                if (read < 0) {
+                    throw new EOFException("unexpected end of " + this.name + " at " + offset);
+                }
+                offset += read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.file.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFBandwidthLimiter;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The uploader's record of a scheduled upload: its priority and bandwidth limit, whether it has started and been
+ * cancelled, the threads working on it and its status poll, so cancel() can reach work wherever it is.
+ */
+class MFUploadHandle implements MediaFireUploadHandle {
+
+    private final MFUploader uploader;
+    private final MediaFireUpload upload;
+    private final int priority;
+    private final MFBandwidthLimiter bandwidthLimiter;
+    private final Set<Thread> threads = new HashSet<>();
+    private final Set<Thread> interrupted = new HashSet<>();
+    private boolean started;
+    private volatile boolean cancelled;
+    private volatile MFPollScheduler.Poll poll;
+    private volatile MFUploadData data;
+
+    MFUploadHandle(MFUploader uploader, MediaFireUpload upload, int priority, long bandwidthLimit) {
+        this.uploader = uploader;
+        this.upload = upload;
+        this.priority = priority;
+        this.bandwidthLimiter = new MFBandwidthLimiter(bandwidthLimit);
+    }
+
+    @Override
+    public MediaFireUpload getUpload() {
+        return this.upload;
+    }
+
+    @Override
+    public boolean cancel() {
+        return this.uploader.cancel(this.upload);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    @Override
+    public void setBandwidthLimit(long bytesPerSecond) {
+        this.bandwidthLimiter.setRate(bytesPerSecond);
+    }
+
+    MFBandwidthLimiter getBandwidthLimiter() {
+        return this.bandwidthLimiter;
+    }
+
+    int getPriority() {
+        return this.priority;
+    }
+
+    /**
+     * @return false if the upload was cancelled before it could start
+     */
+    synchronized boolean markStarted() {
+        if (this.cancelled) {
+            return false;
+        }
+        this.started = true;
+        return true;
+    }
+
+    synchronized boolean isStarted() {
+        return this.started;
+    }
+
+    /**
+     * marks the upload cancelled and interrupts the threads working on it
+     * @return false if it was already cancelled
+     */
+    synchronized boolean markCancelled() {
+        if (this.cancelled) {
+            return false;
+        }
+        this.cancelled = true;
+        for (Thread thread : this.threads) {
+            this.interrupted.add(thread);
+            thread.interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * called by a thread before it works on the upload
+     * @return false if the upload was cancelled and the work should be skipped
+     */
+    synchronized boolean enter() {
+        if (this.cancelled) {
+            return false;
+        }
+        this.threads.add(Thread.currentThread());
+        return true;
+    }
+
+    /**
+     * called by a thread once it is done with the upload. an interrupt left by cancel() is cleared so it does not
+     * reach the thread's next task; an interrupt from anywhere else, e.g. shutdownNow(), is kept.
+     */
+    void exit() {
+        boolean interruptedByCancel;
+        synchronized (this) {
+            Thread thread = Thread.currentThread();
+            this.threads.remove(thread);
+            interruptedByCancel = this.interrupted.remove(thread);
+        }
+        if (interruptedByCancel) {
+            Thread.interrupted();
+        }
+    }
+
+    MFPollScheduler.Poll getPoll() {
+        return this.poll;
+    }
+
+    void setPoll(MFPollScheduler.Poll poll) {
+        this.poll = poll;
+    }
+
+    /**
+     * @return the file upload's data once it has started, null before and for web uploads
+     */
+    MFUploadData getData() {
+        return this.data;
+    }
+
+    void setData(MFUploadData data) {
+        this.data = data;
+    }
+}
@@ -0,0 +1,286 @@
+package com.mediafire.sdk.uploader;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * MediaFireUploadJournal backed by an append only file. The journal is replayed into memory when it is opened and
+ * compacted down to the live entries once enough records have been superseded. Failures writing the journal are
+ * ignored, the worst case is that an upload starts over on the next run.
+ */
+public class MFUploadJournal implements MediaFireUploadJournal {
+
+    private static final String RECORD_HASH = "H";
+    private static final String RECORD_RESUMABLE = "R";
+    private static final String RECORD_UNIT = "U";
+    private static final String RECORD_POLL = "P";
+    private static final String RECORD_REMOVE = "X";
+
+    private static final long MIN_RECORDS_BEFORE_COMPACTION = 1000;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final MFAppendLog log;
+    private final ConcurrentMap<String, State> entries = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private volatile long recordsAfterCompaction;
+
+    /**
+     * opens or creates a journal which forces each record to disk before returning
+     * @param file
+     * @throws IOException
+     */
+    public MFUploadJournal(File file) throws IOException {
+        this(file, true);
+    }
+
+    /**
+     * opens or creates a journal
+     * @param file
+     * @param sync false to leave flushing records to the operating system, faster but records may be lost if the
+     *             machine (not just the process) goes down
+     * @throws IOException
+     */
+    public MFUploadJournal(File file, boolean sync) throws IOException {
+        this.log = new MFAppendLog(file, sync);
+        this.log.open(new MFAppendLog.RecordCallback() {
+            @Override
+            public void onRecord(String[] fields) {
+                replay(fields);
+            }
+        });
+        compactIfNeeded();
+    }
+
+    @Override
+    public Entry get(MediaFireFileUpload upload) {
+        String key = getKey(upload);
+        if (key == null) {
+            return null;
+        }
+        State state = this.entries.get(key);
+        return state == null ? null : state.toEntry();
+    }
+
+    @Override
+    public void hashed(MediaFireFileUpload upload, String sha256Hash) {
+        String key = getKey(upload);
+        if (key == null || sha256Hash == null) {
+            return;
+        }
+        getOrCreate(key).setHash(sha256Hash);
+        append(RECORD_HASH, key, sha256Hash);
+    }
+
+    @Override
+    public void resumableStarted(MediaFireFileUpload upload, int numberOfUnits, int unitSize) {
+        String key = getKey(upload);
+        if (key == null) {
+            return;
+        }
+        getOrCreate(key).setLayout(numberOfUnits, unitSize);
+        append(RECORD_RESUMABLE, key, String.valueOf(numberOfUnits), String.valueOf(unitSize));
+    }
+
+    @Override
+    public void unitUploaded(MediaFireFileUpload upload, int unitId, String unitHash) {
+        String key = getKey(upload);
+        if (key == null) {
+            return;
+        }
+        getOrCreate(key).setUnit(unitId, unitHash);
+        append(RECORD_UNIT, key, String.valueOf(unitId), unitHash);
+    }
+
+    @Override
+    public void readyToPoll(MediaFireFileUpload upload, String uploadKey) {
+        String key = getKey(upload);
+        if (key == null || uploadKey == null) {
+            return;
+        }
+        getOrCreate(key).setUploadKey(uploadKey);
+        append(RECORD_POLL, key, uploadKey);
+    }
+
+    @Override
+    public void remove(MediaFireFileUpload upload) {
+        String key = getKey(upload);
+        if (key == null || this.entries.remove(key) == null) {
+            return;
+        }
+        append(RECORD_REMOVE, key);
+    }
+
+    /**
+     * closes the journal file. the journal can not be written after it is closed.
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        this.log.close();
+    }
+
+    private State getOrCreate(String key) {
+        State state = this.entries.get(key);
+        if (state == null) {
+            State newState = new State();
+            state = this.entries.putIfAbsent(key, newState);
+            if (state == null) {
+                state = newState;
+            }
+        }
+        return state;
+    }
+
+    private void append(String... fields) {
+        this.compactionLock.readLock().lock();
+        try {
+            this.log.append(fields);
+        } catch (IOException ignored) {
+            // losing a record only means more work when resuming
+        } finally {
+            this.compactionLock.readLock().unlock();
+        }
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        long records = this.log.getRecordCount();
+        if (records < MIN_RECORDS_BEFORE_COMPACTION || records < 2 * this.recordsAfterCompaction) {
+            return;
+        }
+
+        this.compactionLock.writeLock().lock();
+        try {
+            if (this.log.getRecordCount() != records) {
+                // another thread compacted first
+                return;
+            }
+            List<String[]> live = new ArrayList<>();
+            for (Map.Entry<String, State> entry : this.entries.entrySet()) {
+                entry.getValue().snapshot(entry.getKey(), live);
+            }
+            this.log.rewrite(live);
+            this.recordsAfterCompaction = live.size();
+        } catch (IOException ignored) {
+            // keep appending to the uncompacted log
+        } finally {
+            this.compactionLock.writeLock().unlock();
+        }
+    }
+
+    private void replay(String[] fields) {
+        if (fields.length < 2 || fields[1] == null) {
+            return;
+        }
+        String type = fields[0];
+        String key = fields[1];
+        try {
+            if (RECORD_HASH.equals(type) && fields.length >= 3) {
+                getOrCreate(key).setHash(fields[2]);
+            } else if (RECORD_RESUMABLE.equals(type) && fields.length >= 4) {
+                getOrCreate(key).setLayout(Integer.parseInt(fields[2]), Integer.parseInt(fields[3]));
+            } else if (RECORD_UNIT.equals(type) && fields.length >= 4) {
+                getOrCreate(key).setUnit(Integer.parseInt(fields[2]), fields[3]);
+            } else if (RECORD_POLL.equals(type) && fields.length >= 3) {
+                getOrCreate(key).setUploadKey(fields[2]);
+            } else if (RECORD_REMOVE.equals(type)) {
+                this.entries.remove(key);
+            }
+        } catch (NumberFormatException ignored) {
+            // skip the record
+        }
+    }
+
+    /**
+     * the key identifies the content of the local file (by path, size and modification time) and where it goes,
+     * including the file it replaces for an update.
+     * @param upload
+     * @return null if the upload has no local file
+     */
+    static String getKey(MediaFireFileUpload upload) {
+        File file = upload.getFile();
+        if (file == null) {
+            return null;
+        }
+        String key = file.getAbsolutePath() + KEY_SEPARATOR +
+                file.length() + KEY_SEPARATOR +
+                file.lastModified() + KEY_SEPARATOR +
+                upload.getFolderKey() + KEY_SEPARATOR +
+                upload.getMediaFirePath() + KEY_SEPARATOR +
+                upload.getFileName();
+        // keys of new uploads stay as they were before updates were supported
+        String quickKey = MFFileUpload.quickKeyOf(upload);
+        return quickKey != null ? key + KEY_SEPARATOR + quickKey : key;
+    }
+
+    private static class State {
+        private String sha256Hash;
+        private int numberOfUnits;
+        private int unitSize;
+        private BitSet uploadedUnits = new BitSet();
+        private String[] unitHashes;
+        private String uploadKey;
+
+        synchronized void setHash(String sha256Hash) {
+            if (this.sha256Hash != null && !this.sha256Hash.equals(sha256Hash)) {
+                reset();
+            }
+            this.sha256Hash = sha256Hash;
+        }
+
+        synchronized void setLayout(int numberOfUnits, int unitSize) {
+            if (this.numberOfUnits != numberOfUnits || this.unitSize != unitSize) {
+                this.uploadedUnits = new BitSet(numberOfUnits);
+                this.unitHashes = new String[numberOfUnits];
+            }
+            this.numberOfUnits = numberOfUnits;
+            this.unitSize = unitSize;
+        }
+
+        synchronized void setUnit(int unitId, String unitHash) {
+            if (unitId < 0 || unitId >= this.numberOfUnits) {
+                return;
+            }
+            this.uploadedUnits.set(unitId);
+            this.unitHashes[unitId] = unitHash;
+        }
+
+        synchronized void setUploadKey(String uploadKey) {
+            this.uploadKey = uploadKey;
+        }
+
+        synchronized Entry toEntry() {
+            return new Entry(this.sha256Hash, this.numberOfUnits, this.unitSize, (BitSet) this.uploadedUnits.clone(),
+                    this.unitHashes == null ? null : this.unitHashes.clone(), this.uploadKey);
+        }
+
+        synchronized void snapshot(String key, List<String[]> records) {
+            if (this.sha256Hash != null) {
+                records.add(new String[]{RECORD_HASH, key, this.sha256Hash});
+            }
+            if (this.numberOfUnits > 0) {
+                records.add(new String[]{RECORD_RESUMABLE, key, String.valueOf(this.numberOfUnits), String.valueOf(this.unitSize)});
+                for (int unit = this.uploadedUnits.nextSetBit(0); unit >= 0; unit = this.uploadedUnits.nextSetBit(unit + 1)) {
+                    records.add(new String[]{RECORD_UNIT, key, String.valueOf(unit), this.unitHashes[unit]});
+                }
+            }
+            if (this.uploadKey != null) {
+                records.add(new String[]{RECORD_POLL, key, this.uploadKey});
+            }
+        }
+
+        private void reset() {
+            this.numberOfUnits = 0;
+            this.unitSize = 0;
+            this.uploadedUnits = new BitSet();
+            this.unitHashes = null;
+            this.uploadKey = null;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Orders the uploader's work before it reaches the executor. Work is queued in one lane per upload stage and lanes
+ * share the executor's threads in proportion to their weight, so cheap checks, instant uploads and polls are not
+ * stuck behind long resumable transfers. Within a lane higher priority work goes first, and waiting work gains
+ * priority over time so nothing starves.
+ *
+ * Each task is handed to the executor as a placeholder that takes the best queued task when a thread picks it up,
+ * so the executor's own FIFO order does not matter. While paused, queued tasks stay queued and no thread is held
+ * waiting for them; the placeholders are handed to the executor again on resume.
+ */
+class MFUploadScheduler {
+
+    enum Lane {
+        CHECK(4), INSTANT(8), SIMPLE(6), RESUMABLE(2), POLL(4), WEB(4);
+
+        private final int weight;
+
+        Lane(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * milliseconds of waiting that are worth one priority level
+     */
+    private static final long AGING_MILLIS = 10 * 1000;
+    private static final long STRIDE = 1 << 20;
+
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Lane, LaneQueue> lanes = new EnumMap<>(Lane.class);
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean paused;
+    // placeholders not handed to the executor because the scheduler was paused
+    private int parked;
+
+    MFUploadScheduler(Executor executor) {
+        this.executor = executor;
+        for (Lane lane : Lane.values()) {
+            this.lanes.put(lane, new LaneQueue(lane));
+        }
+    }
+
+    /**
+     * queues the task and hands a placeholder to the executor
+     * @param lane
+     * @param priority higher runs first, 0 is normal
+     * @param task
+     * @throws RejectedExecutionException if the executor rejects the placeholder
+     */
+    void execute(Lane lane, int priority, Runnable task) {
+        Task queued = new Task(task, priority, System.currentTimeMillis(), this.sequence.getAndIncrement());
+        lock.lock();
+        try {
+            LaneQueue queue = this.lanes.get(lane);
+            if (queue.tasks.isEmpty()) {
+                // an idle lane does not get credit for the time it was idle
+                queue.pass = Math.max(queue.pass, getMinimumPassLocked());
+            }
+            queue.tasks.add(queued);
+            if (this.paused) {
+                this.parked++;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            this.executor.execute(newPlaceholder());
+        } catch (RejectedExecutionException e) {
+            lock.lock();
+            try {
+                this.lanes.get(lane).tasks.remove(queued);
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * stops handing queued tasks to threads. tasks already running are not affected.
+     */
+    void pause() {
+        lock.lock();
+        try {
+            this.paused = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * hands the tasks queued while paused to the executor
+     */
+    void resume() {
+        int count;
+        lock.lock();
+        try {
+            this.paused = false;
+            count = this.parked;
+            this.parked = 0;
+        } finally {
+            lock.unlock();
+        }
+
+        for (int i = 0; i < count; i++) {
+            try {
+                this.executor.execute(newPlaceholder());
+            } catch (RejectedExecutionException e) {
+                // the executor is shut down, the remaining tasks can not run
+                return;
+            }
+        }
+    }
+
+    boolean isPaused() {
+        return this.paused;
+    }
+
+    /**
+     * @param lane
+     * @param priority
+     * @return an Executor which queues its tasks in the lane with the priority
+     */
+    Executor getExecutor(final Lane lane, final int priority) {
+        return new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                MFUploadScheduler.this.execute(lane, priority, command);
+            }
+        };
+    }
+
+    /**
+     * @return number of tasks waiting for a thread
+     */
+    int getQueuedCount() {
+        lock.lock();
+        try {
+            int count = 0;
+            for (LaneQueue queue : this.lanes.values()) {
+                count += queue.tasks.size();
+            }
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Runnable newPlaceholder() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Task next = take();
+                if (next != null) {
+                    next.task.run();
+                }
+            }
+        };
+    }
+
+    private Task take() {
+        lock.lock();
+        try {
+            if (this.paused) {
+                this.parked++;
+                return null;
+            }
+            LaneQueue best = null;
+            for (LaneQueue queue : this.lanes.values()) {
+                if (!queue.tasks.isEmpty() && (best == null || queue.pass < best.pass)) {
+                    best = queue;
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            best.pass += STRIDE / best.lane.weight;
+            return best.tasks.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long getMinimumPassLocked() {
+        long min = Long.MAX_VALUE;
+        for (LaneQueue queue : this.lanes.values()) {
+            if (!queue.tasks.isEmpty()) {
+                min = Math.min(min, queue.pass);
+            }
+        }
+        return min == Long.MAX_VALUE ? 0 : min;
+    }
+
+    private static class LaneQueue {
+        private final Lane lane;
+        private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+        private long pass;
+
+        LaneQueue(Lane lane) {
+            this.lane = lane;
+        }
+    }
+
+    private static class Task implements Comparable<Task> {
+        private final Runnable task;
+        private final long rank;
+        private final long sequence;
+
+        Task(Runnable task, int priority, long queuedTime, long sequence) {
+            this.task = task;
+            // priority + (now - queuedTime) / AGING_MILLIS orders the same way at any time as this rank
+            this.rank = priority * AGING_MILLIS - queuedTime;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (this.rank != other.rank) {
+                return this.rank > other.rank ? -1 : 1;
+            }
+            return this.sequence < other.sequence ? -1 : this.sequence == other.sequence ? 0 : 1;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mediafire.sdk.uploader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MediaFireUploadSource over a channel or stream which can be read once.
+ */
+public class MFUploadSource implements MediaFireUploadSource {
+
+    private final ReadableByteChannel channel;
+    private final long size;
+    private final String sha256Hash;
+    private final AtomicBoolean opened = new AtomicBoolean();
+
+    /**
+     * @param channel
+     * @param size -1 if not known
+     * @param sha256Hash null if not known
+     */
+    public MFUploadSource(ReadableByteChannel channel, long size, String sha256Hash) {
+        this.channel = channel;
+        this.size = size;
+        this.sha256Hash = sha256Hash;
+    }
+
+    public MFUploadSource(ReadableByteChannel channel) {
+        this(channel, -1, null);
+    }
+
+    /**
+     * @param in
+     * @param size -1 if not known
+     * @param sha256Hash null if not known
+     */
+    public MFUploadSource(InputStream in, long size, String sha256Hash) {
+        this(Channels.newChannel(in), size, sha256Hash);
+    }
+
+    public MFUploadSource(InputStream in) {
+        this(in, -1, null);
+    }
+
+    @Override
+    public long getSize() {
+        return this.size;
+    }
+
+    @Override
+    public String getSha256Hash() {
+        return this.sha256Hash;
+    }
+
+    @Override
+    public ReadableByteChannel open() throws IOException {
+        if (!this.opened.compareAndSet(false, true)) {
+            throw new IOException("upload source can only be read once");
+        }
+        return this.channel;
+    }
+}
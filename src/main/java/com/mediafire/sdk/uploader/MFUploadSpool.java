@@ -0,0 +1,182 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireHasher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reads an upload source once, computing its size and SHA-256 hash while keeping its bytes for the upload. Data up
+ * to the memory threshold stays in memory; once the source grows past it, what was read so far and the rest go to a
+ * temporary file, which is deleted when the upload ends.
+ */
+class MFUploadSpool {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private MFUploadSpool() {
+    }
+
+    /**
+     * @param source
+     * @param memoryThreshold most bytes kept in memory
+     * @param directory where spool files are created, null for the default temporary directory
+     * @return
+     * @throws IOException if there is no source, or reading it or writing the spool file failed
+     */
+    static MFUploadData spool(MediaFireUploadSource source, long memoryThreshold, File directory) throws IOException {
+        if (source == null) {
+            throw new IOException("upload has neither a file nor a source");
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+
+        ByteArrayOutputStream memory = new ByteArrayOutputStream();
+        File file = null;
+        RandomAccessFile spool = null;
+        long size = 0;
+        ReadableByteChannel channel = source.open();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer.array(), 0, buffer.limit());
+                size += buffer.limit();
+                if (spool == null && size > memoryThreshold) {
+                    file = File.createTempFile("mf-upload", ".spool", directory);
+                    spool = new RandomAccessFile(file, "rw");
+                    writeFully(spool.getChannel(), ByteBuffer.wrap(memory.toByteArray()));
+                    memory = null;
+                }
+                if (spool != null) {
+                    writeFully(spool.getChannel(), buffer);
+                } else {
+                    memory.write(buffer.array(), 0, buffer.limit());
+                }
+                buffer.clear();
+            }
+        } catch (IOException e) {
+            if (spool != null) {
+                closeQuietly(spool);
+            }
+            if (file != null) {
+                file.delete();
+            }
+            throw e;
+        } finally {
+            closeQuietly(channel);
+        }
+
+        String sha256Hash = MFUploadData.toHex(digest.digest());
+        if (spool == null) {
+            return new MemoryData(memory.toByteArray(), sha256Hash);
+        }
+        spool.close();
+        return new SpoolFileData(file, size, sha256Hash);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    static class MemoryData extends MFUploadData {
+        private final byte[] data;
+        private final String sha256Hash;
+
+        MemoryData(byte[] data, String sha256Hash) {
+            this.data = data;
+            this.sha256Hash = sha256Hash;
+        }
+
+        @Override
+        long getSize() {
+            return this.data.length;
+        }
+
+        @Override
+        String getSha256Hash(MediaFireHasher hasher) {
+            return this.sha256Hash;
+        }
+
+        @Override
+        boolean isRereadable() {
+            return true;
+        }
+
+        @Override
+        Reader open() {
+            return new Reader() {
+                @Override
+                public void readFully(ByteBuffer buffer, long position) throws IOException {
+                    if (position + buffer.remaining() > data.length) {
+                        throw new EOFException("unexpected end of spooled data at " + data.length);
+                    }
+                    buffer.put(data, (int) position, buffer.remaining());
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+
+    static class SpoolFileData extends MFUploadData {
+        private final File file;
+        private final long size;
+        private final String sha256Hash;
+
+        SpoolFileData(File file, long size, String sha256Hash) {
+            this.file = file;
+            this.size = size;
+            this.sha256Hash = sha256Hash;
+        }
+
+        @Override
+        long getSize() {
+            return this.size;
+        }
+
+        @Override
+        String getSha256Hash(MediaFireHasher hasher) {
+            return this.sha256Hash;
+        }
+
+        @Override
+        boolean isRereadable() {
+            return true;
+        }
+
+        @Override
+        Reader open() throws IOException {
+            return new ChannelReader(new RandomAccessFile(this.file, "r"), this.file.toString());
+        }
+
+        @Override
+        void release() {
+            this.file.delete();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * MediaFireUploadStats kept up to date by an MFStatsUploadStore in front of the uploader's store and by the unit
+ * loop of resumable uploads. Totals are atomics updated on each change, per upload figures are found in a concurrent
+ * map by identity, so reads never lock.
+ */
+class MFUploadStats implements MediaFireUploadStats {
+
+    private final MFRateMeter throughput = new MFRateMeter();
+    private final ConcurrentMap<Key, Entry> uploads = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray stageCounts = new AtomicIntegerArray(Stage.values().length);
+    private final AtomicLong bytesRemaining = new AtomicLong();
+
+    @Override
+    public double getThroughput() {
+        return this.throughput.getRate();
+    }
+
+    @Override
+    public long getBytesRemaining() {
+        return Math.max(0, this.bytesRemaining.get());
+    }
+
+    @Override
+    public long getEstimatedTimeRemaining() {
+        return getEstimatedTimeRemaining(getBytesRemaining(), this.throughput.getRate());
+    }
+
+    @Override
+    public long getEstimatedTimeRemaining(MediaFireUpload upload) {
+        Entry entry = this.uploads.get(new Key(upload));
+        if (entry == null) {
+            return -1;
+        }
+        return getEstimatedTimeRemaining(entry.remaining.get(), entry.throughput.getRate());
+    }
+
+    @Override
+    public int getUploadCount(Stage stage) {
+        return this.stageCounts.get(stage.ordinal());
+    }
+
+    /**
+     * starts tracking an upload in the QUEUED stage
+     * @param upload
+     * @param totalBytes 0 for uploads without data of their own, such as web uploads
+     */
+    void added(MediaFireUpload upload, long totalBytes) {
+        Entry entry = new Entry(totalBytes);
+        if (this.uploads.putIfAbsent(new Key(upload), entry) != null) {
+            return;
+        }
+        this.stageCounts.incrementAndGet(Stage.QUEUED.ordinal());
+        this.bytesRemaining.addAndGet(totalBytes);
+    }
+
+    void stage(MediaFireUpload upload, Stage stage) {
+        Entry entry = this.uploads.get(new Key(upload));
+        if (entry == null) {
+            return;
+        }
+        while (true) {
+            Stage current = entry.stage.get();
+            if (current == null || current == stage) {
+                // ended, or already there
+                return;
+            }
+            if (entry.stage.compareAndSet(current, stage)) {
+                this.stageCounts.decrementAndGet(current.ordinal());
+                this.stageCounts.incrementAndGet(stage.ordinal());
+                return;
+            }
+        }
+    }
+
+    /**
+     * sets the size of an upload whose size was not known when it was added, e.g. a spooled source
+     * @param upload
+     * @param totalBytes
+     */
+    void setTotalBytes(MediaFireUpload upload, long totalBytes) {
+        Entry entry = this.uploads.get(new Key(upload));
+        if (entry != null) {
+            this.bytesRemaining.addAndGet(totalBytes - entry.remaining.getAndSet(totalBytes));
+        }
+    }
+
+    /**
+     * counts bytes the upload sent, towards its own and the overall throughput
+     * @param upload
+     * @param bytes
+     */
+    void bytesSent(MediaFireUpload upload, long bytes) {
+        this.throughput.record(bytes);
+        Entry entry = this.uploads.get(new Key(upload));
+        if (entry != null) {
+            entry.throughput.record(bytes);
+            this.bytesRemaining.addAndGet(-entry.take(bytes));
+        }
+    }
+
+    /**
+     * counts bytes which are on the server without being sent now, e.g. units sent before a restart or content
+     * found by upload/instant
+     * @param upload
+     * @param bytes Long.MAX_VALUE for all that remain
+     */
+    void bytesOnServer(MediaFireUpload upload, long bytes) {
+        Entry entry = this.uploads.get(new Key(upload));
+        if (entry != null) {
+            this.bytesRemaining.addAndGet(-entry.take(bytes));
+        }
+    }
+
+    /**
+     * stops tracking an upload which finished, failed or was cancelled
+     * @param upload
+     */
+    void ended(MediaFireUpload upload) {
+        Entry entry = this.uploads.remove(new Key(upload));
+        if (entry == null) {
+            return;
+        }
+        Stage stage = entry.stage.getAndSet(null);
+        if (stage != null) {
+            this.stageCounts.decrementAndGet(stage.ordinal());
+        }
+        this.bytesRemaining.addAndGet(-entry.take(Long.MAX_VALUE));
+    }
+
+    private static long getEstimatedTimeRemaining(long bytes, double bytesPerSecond) {
+        if (bytes <= 0) {
+            return 0;
+        }
+        if (bytesPerSecond <= 0) {
+            return -1;
+        }
+        return (long) Math.ceil(bytes * 1000d / bytesPerSecond);
+    }
+
+    private static final class Entry {
+        private final AtomicReference<Stage> stage = new AtomicReference<>(Stage.QUEUED);
+        private final AtomicLong remaining;
+        private final MFRateMeter throughput = new MFRateMeter();
+
+        Entry(long totalBytes) {
+            this.remaining = new AtomicLong(totalBytes);
+        }
+
+        /**
+         * @param bytes
+         * @return bytes actually taken off what remains
+         */
+        long take(long bytes) {
+            while (true) {
+                long current = this.remaining.get();
+                long taken = Math.min(current, bytes);
+                if (taken <= 0 || this.remaining.compareAndSet(current, current - taken)) {
+                    return Math.max(0, taken);
+                }
+            }
+        }
+    }
+
+    /**
+     * uploads compare equal by content, the same upload object is what identifies one in progress
+     */
+    private static final class Key {
+        private final MediaFireUpload upload;
+
+        Key(MediaFireUpload upload) {
+            this.upload = upload;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).upload == this.upload;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.upload);
+        }
+    }
+}
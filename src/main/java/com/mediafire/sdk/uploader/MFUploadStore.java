@@ -0,0 +1,496 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.MediaFireApiResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * In memory MediaFireUploadStore. Each upload's status is an immutable Status swapped in with compare and set, so
+ * uploader callbacks never block each other, and uploads can be looked up by id or upload key in constant time. Once
+ * an upload is finished or has failed its status no longer changes.
+ */
+public class MFUploadStore implements MediaFireUploadStore, MediaFireUploadCancelListener {
+
+    private static final int KEEP = Integer.MIN_VALUE;
+
+    private final ConcurrentMap<Long, Tracked> uploads;
+    private final ConcurrentMap<String, Tracked> uploadKeys;
+    private final Queue<Tracked> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicInteger unfinished = new AtomicInteger();
+
+    public MFUploadStore() {
+        this(16);
+    }
+
+    /**
+     * @param expectedUploads number of uploads expected to be tracked at once, used to size the lookup tables
+     */
+    public MFUploadStore(int expectedUploads) {
+        this.uploads = new ConcurrentHashMap<>(Math.max(16, expectedUploads));
+        this.uploadKeys = new ConcurrentHashMap<>(Math.max(16, expectedUploads));
+    }
+
+    @Override
+    public void insert(MediaFireWebUpload upload) {
+        track(upload);
+    }
+
+    @Override
+    public void insert(MediaFireFileUpload upload) {
+        track(upload);
+    }
+
+    /**
+     * @return the oldest inserted upload which has not been queued yet, null if there is none
+     */
+    @Override
+    public MediaFireUpload getNextUpload() {
+        Tracked tracked;
+        while ((tracked = this.pending.poll()) != null) {
+            if (tracked.status.get().getState() == State.INSERTED && this.uploads.get(tracked.upload.getId()) == tracked) {
+                return tracked.upload;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void uploadQueued(MediaFireWebUpload upload) {
+        transition(upload, State.QUEUED, null, null, null, KEEP, KEEP, null, Double.NaN);
+    }
+
+    @Override
+    public void uploadQueued(MediaFireFileUpload upload) {
+        transition(upload, State.QUEUED, null, null, null, KEEP, KEEP, null, Double.NaN);
+    }
+
+    @Override
+    public void polling(MediaFireWebUpload upload, int statusCode, String description) {
+        transition(upload, State.POLLING, null, null, null, statusCode, KEEP, description, Double.NaN);
+    }
+
+    @Override
+    public void polling(MediaFireFileUpload upload, int statusCode, String description) {
+        transition(upload, State.POLLING, null, null, null, statusCode, KEEP, description, Double.NaN);
+    }
+
+    @Override
+    public void uploadFinished(MediaFireWebUpload upload, String quickKey, String filename) {
+        transition(upload, State.FINISHED, null, quickKey, filename, KEEP, KEEP, null, 100);
+    }
+
+    @Override
+    public void uploadFinished(MediaFireFileUpload upload, String quickKey, String fileName) {
+        transition(upload, State.FINISHED, null, quickKey, fileName, KEEP, KEEP, null, 100);
+    }
+
+    @Override
+    public void pollingError(MediaFireWebUpload upload, int statusCode, int errorStatus, String description) {
+        transition(upload, State.FAILED, null, null, null, statusCode, errorStatus, description, Double.NaN);
+    }
+
+    @Override
+    public void pollingError(MediaFireFileUpload upload, int fileErrorCode, int resultCode, int statusCode, String description) {
+        transition(upload, State.FAILED, null, null, null, statusCode, fileErrorCode != 0 ? fileErrorCode : resultCode, description, Double.NaN);
+    }
+
+    @Override
+    public void sdkException(MediaFireWebUpload upload, MediaFireException e) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, String.valueOf(e.getMessage()), Double.NaN);
+    }
+
+    @Override
+    public void sdkException(MediaFireFileUpload upload, MediaFireException e) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, String.valueOf(e.getMessage()), Double.NaN);
+    }
+
+    @Override
+    public void fileIOException(MediaFireFileUpload upload, IOException e) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, String.valueOf(e.getMessage()), Double.NaN);
+    }
+
+    @Override
+    public void pollingInterrupted(MediaFireWebUpload upload, InterruptedException e) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, String.valueOf(e.getMessage()), Double.NaN);
+    }
+
+    @Override
+    public void pollingInterrupted(MediaFireFileUpload upload, InterruptedException e) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, String.valueOf(e.getMessage()), Double.NaN);
+    }
+
+    @Override
+    public void pollingLimitExceeded(MediaFireWebUpload upload) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, "polling limit exceeded", Double.NaN);
+    }
+
+    @Override
+    public void pollingLimitExceeded(MediaFireFileUpload upload) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, "polling limit exceeded", Double.NaN);
+    }
+
+    @Override
+    public void apiError(MediaFireFileUpload upload, MediaFireApiResponse response) {
+        int errorCode = response != null ? response.getError() : KEEP;
+        String message = response != null ? response.getMessage() : null;
+        transition(upload, State.FAILED, null, null, null, KEEP, errorCode, message, Double.NaN);
+    }
+
+    @Override
+    public void pollingReady(MediaFireWebUpload upload, String uploadKey) {
+        transition(upload, State.READY_TO_POLL, uploadKey, null, null, KEEP, KEEP, null, Double.NaN);
+    }
+
+    @Override
+    public void pollingReady(MediaFireFileUpload upload, String uploadKey) {
+        transition(upload, State.READY_TO_POLL, uploadKey, null, null, KEEP, KEEP, null, 100);
+    }
+
+    @Override
+    public void checkFinished(MediaFireFileUpload upload) {
+        transition(upload, State.CHECKED, null, null, null, KEEP, KEEP, null, Double.NaN);
+    }
+
+    @Override
+    public void uploadProgress(MediaFireFileUpload upload, double percentFinished) {
+        // progress is delivered asynchronously and may arrive after the upload moved on, so it keeps the state
+        transition(upload, null, null, null, null, KEEP, KEEP, null, percentFinished);
+    }
+
+    @Override
+    public void resumableFinishedWithoutAllUnitsReady(MediaFireFileUpload upload) {
+        transition(upload, State.FAILED, null, null, null, KEEP, KEEP, "resumable upload finished without all units ready", Double.NaN);
+    }
+
+    @Override
+    public void uploadCancelled(MediaFireWebUpload upload) {
+        transition(upload, State.CANCELLED, null, null, null, KEEP, KEEP, "cancelled", Double.NaN);
+    }
+
+    @Override
+    public void uploadCancelled(MediaFireFileUpload upload) {
+        transition(upload, State.CANCELLED, null, null, null, KEEP, KEEP, "cancelled", Double.NaN);
+    }
+
+    @Override
+    public void resumableUploadStarting(MediaFireFileUpload upload) {
+        transition(upload, State.RESUMABLE, null, null, null, KEEP, KEEP, null, Double.NaN);
+    }
+
+    @Override
+    public void instantUploadStarting(MediaFireFileUpload upload) {
+        transition(upload, State.INSTANT, null, null, null, KEEP, KEEP, null, Double.NaN);
+    }
+
+    /**
+     * @param upload
+     * @return the current status of the upload, null if it is not tracked
+     */
+    public Status getStatus(MediaFireUpload upload) {
+        return getStatus(upload.getId());
+    }
+
+    /**
+     * @param id
+     * @return the current status of the upload with the id, null if it is not tracked
+     */
+    public Status getStatus(long id) {
+        Tracked tracked = this.uploads.get(id);
+        return tracked == null ? null : tracked.status.get();
+    }
+
+    /**
+     * @param id
+     * @return the tracked upload with the id, null if there is none
+     */
+    public MediaFireUpload getUpload(long id) {
+        Tracked tracked = this.uploads.get(id);
+        return tracked == null ? null : tracked.upload;
+    }
+
+    /**
+     * @param uploadKey key returned by the api once the upload is ready to poll
+     * @return the tracked upload with the key, null if there is none
+     */
+    public MediaFireUpload getUploadByUploadKey(String uploadKey) {
+        Tracked tracked = uploadKey == null ? null : this.uploadKeys.get(uploadKey);
+        return tracked == null ? null : tracked.upload;
+    }
+
+    /**
+     * @return every tracked upload which has not finished or failed
+     */
+    public List<MediaFireUpload> getUnfinishedUploads() {
+        List<MediaFireUpload> unfinishedUploads = new ArrayList<>();
+        for (Tracked tracked : this.uploads.values()) {
+            if (!tracked.status.get().getState().isTerminal()) {
+                unfinishedUploads.add(tracked.upload);
+            }
+        }
+        return unfinishedUploads;
+    }
+
+    /**
+     * @return number of tracked uploads which have not finished or failed
+     */
+    public int getUnfinishedCount() {
+        return this.unfinished.get();
+    }
+
+    /**
+     * @return true while any tracked upload has not finished or failed
+     */
+    public boolean isWaitingForUploads() {
+        return this.unfinished.get() > 0;
+    }
+
+    /**
+     * @return number of tracked uploads
+     */
+    public int size() {
+        return this.uploads.size();
+    }
+
+    /**
+     * stops tracking uploads which have finished or failed
+     * @return number of uploads removed
+     */
+    public int clearFinished() {
+        int removed = 0;
+        for (Tracked tracked : this.uploads.values()) {
+            Status status = tracked.status.get();
+            if (status.getState().isTerminal() && this.uploads.remove(tracked.upload.getId(), tracked)) {
+                if (status.getUploadKey() != null) {
+                    this.uploadKeys.remove(status.getUploadKey(), tracked);
+                }
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * called after an upload starts being tracked
+     * @param upload
+     * @param status
+     */
+    protected void onInserted(MediaFireUpload upload, Status status) {
+        // nothing by default
+    }
+
+    /**
+     * called after the status of an upload changed. calls for the same upload may arrive out of order from
+     * different threads, Status.getVersion() orders them.
+     * @param upload
+     * @param status
+     */
+    protected void onStatusChanged(MediaFireUpload upload, Status status) {
+        // nothing by default
+    }
+
+    /**
+     * tracks an upload with a known status without calling onInserted() or onStatusChanged(), used to reload
+     * uploads from storage
+     * @param upload an upload with an id
+     * @param status
+     */
+    protected void restore(MediaFireUpload upload, Status status) {
+        Tracked tracked = new Tracked(upload, status);
+        raiseNextId(upload.getId());
+        Tracked previous = this.uploads.put(upload.getId(), tracked);
+        if (previous != null && !previous.status.get().getState().isTerminal()) {
+            this.unfinished.decrementAndGet();
+        }
+        if (!status.getState().isTerminal()) {
+            this.unfinished.incrementAndGet();
+        }
+        if (status.getUploadKey() != null) {
+            this.uploadKeys.put(status.getUploadKey(), tracked);
+        }
+        if (status.getState() == State.INSERTED) {
+            this.pending.add(tracked);
+        }
+    }
+
+    private void track(MediaFireUpload upload) {
+        if (upload.getId() < 1) {
+            upload.setId(this.nextId.getAndIncrement());
+        } else {
+            raiseNextId(upload.getId());
+        }
+
+        Tracked previous = this.uploads.get(upload.getId());
+        // versions keep increasing when an upload is inserted again, e.g. rescheduled after a restart
+        long version = previous != null ? previous.status.get().getVersion() + 1 : 0;
+        Status status = new Status(State.INSERTED, version, null, null, upload.getFileName(), 0, 0, null, 0);
+        Tracked tracked = new Tracked(upload, status);
+        previous = this.uploads.put(upload.getId(), tracked);
+        if (previous != null && !previous.status.get().getState().isTerminal()) {
+            this.unfinished.decrementAndGet();
+        }
+        this.unfinished.incrementAndGet();
+        this.pending.add(tracked);
+        onInserted(upload, status);
+    }
+
+    private void raiseNextId(long id) {
+        long next;
+        while ((next = this.nextId.get()) <= id) {
+            if (this.nextId.compareAndSet(next, id + 1)) {
+                return;
+            }
+        }
+    }
+
+    private void transition(MediaFireUpload upload, State state, String uploadKey, String quickKey, String fileName, int statusCode, int errorCode, String description, double percentFinished) {
+        Tracked tracked = this.uploads.get(upload.getId());
+        if (tracked == null || tracked.upload != upload) {
+            return;
+        }
+
+        Status current;
+        Status next;
+        do {
+            current = tracked.status.get();
+            if (current.getState().isTerminal()) {
+                return;
+            }
+            next = new Status(state != null ? state : current.getState(),
+                    current.getVersion() + 1,
+                    uploadKey != null ? uploadKey : current.getUploadKey(),
+                    quickKey != null ? quickKey : current.getQuickKey(),
+                    fileName != null ? fileName : current.getFileName(),
+                    statusCode != KEEP ? statusCode : current.getStatusCode(),
+                    errorCode != KEEP ? errorCode : current.getErrorCode(),
+                    description != null ? description : current.getDescription(),
+                    !Double.isNaN(percentFinished) ? percentFinished : current.getPercentFinished());
+        } while (!tracked.status.compareAndSet(current, next));
+
+        if (uploadKey != null && !uploadKey.equals(current.getUploadKey())) {
+            this.uploadKeys.put(uploadKey, tracked);
+        }
+        if (next.getState().isTerminal()) {
+            this.unfinished.decrementAndGet();
+        }
+        onStatusChanged(upload, next);
+    }
+
+    public enum State {
+        INSERTED, QUEUED, CHECKED, INSTANT, RESUMABLE, READY_TO_POLL, POLLING, FINISHED, FAILED, CANCELLED;
+
+        public boolean isTerminal() {
+            return this == FINISHED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    /**
+     * immutable snapshot of an upload's progress
+     */
+    public static final class Status {
+        private final State state;
+        private final long version;
+        private final String uploadKey;
+        private final String quickKey;
+        private final String fileName;
+        private final int statusCode;
+        private final int errorCode;
+        private final String description;
+        private final double percentFinished;
+
+        public Status(State state, long version, String uploadKey, String quickKey, String fileName, int statusCode, int errorCode, String description, double percentFinished) {
+            this.state = state;
+            this.version = version;
+            this.uploadKey = uploadKey;
+            this.quickKey = quickKey;
+            this.fileName = fileName;
+            this.statusCode = statusCode;
+            this.errorCode = errorCode;
+            this.description = description;
+            this.percentFinished = percentFinished;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * @return number of changes made to the upload's status, higher is newer
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        public String getUploadKey() {
+            return uploadKey;
+        }
+
+        public String getQuickKey() {
+            return quickKey;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return last status code reported while polling
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * @return api or upload error code if the upload failed, 0 otherwise
+         */
+        public int getErrorCode() {
+            return errorCode;
+        }
+
+        /**
+         * @return last status description, or the reason the upload failed
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        public double getPercentFinished() {
+            return percentFinished;
+        }
+
+        @Override
+        public String toString() {
+            return "Status{" +
+                    "state=" + state +
+                    ", version=" + version +
+                    ", uploadKey='" + uploadKey + '\'' +
+                    ", quickKey='" + quickKey + '\'' +
+                    ", fileName='" + fileName + '\'' +
+                    ", statusCode=" + statusCode +
+                    ", errorCode=" + errorCode +
+                    ", description='" + description + '\'' +
+                    ", percentFinished=" + percentFinished +
+                    '}';
+        }
+    }
+
+    private static class Tracked {
+        private final MediaFireUpload upload;
+        private final AtomicReference<Status> status;
+
+        Tracked(MediaFireUpload upload, Status status) {
+            this.upload = upload;
+            this.status = new AtomicReference<>(status);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mediafire.sdk.uploader;
+
+/**
+ * A unit of a resumable upload that has been read from disk and hashed.
+ */
+class MFUploadUnit {
+    private final int id;
+    private final byte[] data;
+    private final String hash;
+
+    MFUploadUnit(int id, byte[] data, String hash) {
+        this.id = id;
+        this.data = data;
+        this.hash = hash;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    int getSize() {
+        return data.length;
+    }
+
+    String getHash() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "MFUploadUnit{" +
+                "id=" + id +
+                ", size=" + data.length +
+                ", hash='" + hash + '\'' +
+                '}';
+    }
+}
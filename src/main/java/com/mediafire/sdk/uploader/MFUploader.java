@@ -1,89 +1,438 @@
 package com.mediafire.sdk.uploader;
 
+import com.mediafire.sdk.MFApiRequest;
+import com.mediafire.sdk.MFBandwidthLimiter;
 import com.mediafire.sdk.MediaFireClient;
 import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.MediaFireHttpProgressListener;
 import com.mediafire.sdk.response_models.MediaFireApiResponse;
+import com.mediafire.sdk.response_models.data_models.FileInfoModel;
 import com.mediafire.sdk.response_models.data_models.ResumableUploadModel;
+import com.mediafire.sdk.response_models.file.FileGetInfoResponse;
+import com.mediafire.sdk.response_models.system.SystemGetInfoResponse;
 import com.mediafire.sdk.response_models.upload.UploadCheckResponse;
 import com.mediafire.sdk.response_models.upload.UploadPollUploadResponse;
 import com.mediafire.sdk.uploader.MFRunnablePollUpload.OnPollUploadStatusListener;
+import com.mediafire.sdk.util.TextUtils;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Uploader which handles MediaFireUploadRunnable requests. Pausable.
+ * Uploader which handles MediaFireUploadRunnable requests. Pausable. Work is queued per stage and priority by an
+ * MFUploadScheduler before it reaches the executor. The number of uploads in progress and waiting to start can be
+ * bounded, in which case schedule() blocks, trySchedule() refuses and scheduleAsync() defers uploads that do not fit.
+ * Units of resumable uploads are sent in parallel, per upload and across uploads, as far as measured throughput keeps
+ * improving.
  */
 public class MFUploader implements MediaFireRunnableUploadStatusListener, OnPollUploadStatusListener {
 
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    private static final int DEFAULT_INITIAL_CONCURRENT_UNITS = 4;
+
+    /**
+     * @return true if uploaders built without an executor run on virtual threads
+     */
+    public static boolean isVirtualThreadsAvailable() {
+        return MFVirtualThreads.isAvailable();
+    }
+
     private final ExecutorService executor;
+    private final MFUploadScheduler scheduler;
 
     private final MediaFireClient mediaFire;
-    private final MediaFireUploadStore store;
+    private final MFStatsUploadStore store;
+    private final MFEventBus storeEvents;
     private final int statusCodeToFinish;
-
+    private final MediaFireUploadJournal journal;
+    private final Executor unitReadExecutor;
+    private final int unitQueueDepth;
+    private final long simpleUploadThreshold;
+    private final MFDedupGroups dedupGroups;
+    private final MFProgressTracker progressTracker;
+    private final long unitMemoryBudget;
+    private final MFByteBudget memoryBudget;
+    private final MFUnitRetryPolicy unitRetryPolicy;
+    private final Executor unitSendExecutor;
+    private final int maxUnitsPerUpload;
+    private final MFConcurrencyController unitConcurrency;
+    private final AtomicBoolean probeStarted = new AtomicBoolean();
+    private volatile long probeRttNanos;
+    private final MFAdmissionQueue admission;
+    private volatile long uploadBandwidthLimit;
+    private final MFPollScheduler pollScheduler;
+    private final MFPollPolicy filePollPolicy = new MFPollPolicy();
+    private final MFPollPolicy webPollPolicy = new MFPollPolicy();
+    private final MFWebUploadSweep webUploadSweep;
+    private final Semaphore webUploadRequests;
+    private final Queue<MediaFireWebUpload> waitingWebUploads = new ConcurrentLinkedQueue<>();
+    private final MFUploadStats stats = new MFUploadStats();
+    private final long spoolMemoryThreshold;
+    private final File spoolDirectory;
+    private final Map<MediaFireUpload, MFUploadHandle> handles = Collections.synchronizedMap(new IdentityHashMap<MediaFireUpload, MFUploadHandle>());
 
     public MFUploader(MediaFireClient mediaFire, MediaFireUploadStore store, ExecutorService executor, int statusCodeToFinish) {
-        this.mediaFire = mediaFire;
-        this.store = store;
-        this.executor = executor;
-        this.statusCodeToFinish = statusCodeToFinish;
+        this(new Builder(mediaFire, store, executor).statusCodeToFinish(statusCodeToFinish));
+    }
+
+    protected MFUploader(Builder builder) {
+        this.mediaFire = builder.mediaFire;
+        this.storeEvents = builder.storeEventBuffer > 0 ? new MFEventBus(builder.storeEventConsumers, builder.storeEventBuffer, new MFThreadFactory("mf-store-events")) : null;
+        this.store = new MFStatsUploadStore(this.storeEvents != null ? new MFAsyncUploadStore(builder.store, this.storeEvents) : builder.store, this.stats);
+        this.executor = builder.executor != null ? builder.executor : MFVirtualThreads.newExecutor("mf-upload");
+        this.scheduler = new MFUploadScheduler(this.executor);
+        this.statusCodeToFinish = builder.statusCodeToFinish;
+        this.journal = builder.journal;
+        this.unitReadExecutor = builder.unitReadExecutor != null ? builder.unitReadExecutor : MFVirtualThreads.newExecutor("mf-unit-reader");
+        this.unitQueueDepth = builder.unitQueueDepth;
+        this.simpleUploadThreshold = builder.simpleUploadThreshold;
+        this.dedupGroups = builder.deduplicate ? new MFDedupGroups() : null;
+        final MediaFireUploadProgressListener progressListener = builder.progressListener;
+        ScheduledExecutorService progressDispatcher = Executors.newSingleThreadScheduledExecutor(new MFThreadFactory("mf-progress"));
+        this.progressTracker = new MFProgressTracker(progressDispatcher, builder.progressInterval, new MediaFireUploadProgressListener() {
+            @Override
+            public void onUploadProgress(MediaFireFileUpload upload, long bytesSent, long totalBytes) {
+                store.uploadProgress(upload, totalBytes > 0 ? 100d * bytesSent / totalBytes : 0);
+                if (progressListener != null) {
+                    progressListener.onUploadProgress(upload, bytesSent, totalBytes);
+                }
+            }
+        });
+        this.unitMemoryBudget = builder.unitMemoryBudget;
+        this.memoryBudget = builder.memoryBudget > 0 ? new MFByteBudget(builder.memoryBudget) : null;
+        this.unitRetryPolicy = new MFUnitRetryPolicy(builder.unitRetryAttempts, builder.unitRetryBackoff);
+        this.unitSendExecutor = builder.unitSendExecutor != null ? builder.unitSendExecutor : MFVirtualThreads.newExecutor("mf-unit-sender");
+        this.maxUnitsPerUpload = Math.max(1, builder.maxUnitsPerUpload);
+        this.spoolMemoryThreshold = builder.spoolMemoryThreshold;
+        this.spoolDirectory = builder.spoolDirectory;
+        this.unitConcurrency = new MFConcurrencyController(Math.min(DEFAULT_INITIAL_CONCURRENT_UNITS, builder.maxConcurrentUnits), 1, builder.maxConcurrentUnits);
+        this.uploadBandwidthLimit = builder.uploadBandwidthLimit;
+        this.admission = new MFAdmissionQueue(builder.maxActiveUploads, builder.maxPendingUploads);
+        ScheduledExecutorService pollTimer = builder.pollTimer != null ? builder.pollTimer : Executors.newSingleThreadScheduledExecutor(new MFThreadFactory("mf-poll-timer"));
+        this.pollScheduler = new MFPollScheduler(pollTimer, this.scheduler);
+        this.webUploadSweep = builder.webUploadSweepInterval > 0 ? new MFWebUploadSweep(this.mediaFire, this, this.statusCodeToFinish, this.pollScheduler, this.webPollPolicy, builder.webUploadSweepInterval) : null;
+        this.webUploadRequests = builder.maxConcurrentWebUploadRequests < Integer.MAX_VALUE ? new Semaphore(Math.max(1, builder.maxConcurrentWebUploadRequests)) : null;
+    }
+
+    public MediaFireUploadHandle schedule(MediaFireWebUpload upload) {
+        return schedule(upload, PRIORITY_NORMAL);
+    }
+
+    public MediaFireUploadHandle schedule(MediaFireFileUpload upload) {
+        return schedule(upload, PRIORITY_NORMAL);
+    }
+
+    /**
+     * schedules the web upload ahead of queued work with a lower priority in the same stage. blocks while the
+     * uploader is full.
+     * @param upload
+     * @param priority higher runs first, PRIORITY_NORMAL by default
+     * @return handle which cancels the upload
+     */
+    public MediaFireUploadHandle schedule(MediaFireWebUpload upload, int priority) {
+        MFUploadHandle handle = new MFUploadHandle(this, upload, priority, this.uploadBandwidthLimit);
+        this.admission.admit(priority, admitted(handle), webUploadStart(upload));
+        return handle;
+    }
+
+    /**
+     * schedules the file upload ahead of queued work with a lower priority in the same stage. blocks while the
+     * uploader is full.
+     * @param upload
+     * @param priority higher runs first, PRIORITY_NORMAL by default
+     * @return handle which cancels the upload
+     */
+    public MediaFireUploadHandle schedule(MediaFireFileUpload upload, int priority) {
+        MFUploadHandle handle = new MFUploadHandle(this, upload, priority, this.uploadBandwidthLimit);
+        this.admission.admit(priority, admitted(handle), fileUploadStart(upload));
+        return handle;
+    }
+
+    public boolean trySchedule(MediaFireWebUpload upload) {
+        return trySchedule(upload, PRIORITY_NORMAL);
+    }
+
+    public boolean trySchedule(MediaFireFileUpload upload) {
+        return trySchedule(upload, PRIORITY_NORMAL);
     }
 
-    public void schedule(MediaFireWebUpload upload) {
-        this.store.insert(upload);
-        startWebUpload(upload);
+    /**
+     * schedules the web upload only if the uploader has room for it right away
+     * @param upload
+     * @param priority
+     * @return false if the upload was rejected, it is not added to the store in that case
+     */
+    public boolean trySchedule(MediaFireWebUpload upload, int priority) {
+        return this.admission.tryAdmit(priority, admitted(new MFUploadHandle(this, upload, priority, this.uploadBandwidthLimit)), webUploadStart(upload));
     }
 
-    public void schedule(MediaFireFileUpload upload) {
-        this.store.insert(upload);
-        startFileUpload(upload);
+    /**
+     * schedules the file upload only if the uploader has room for it right away
+     * @param upload
+     * @param priority
+     * @return false if the upload was rejected, it is not added to the store in that case
+     */
+    public boolean trySchedule(MediaFireFileUpload upload, int priority) {
+        return this.admission.tryAdmit(priority, admitted(new MFUploadHandle(this, upload, priority, this.uploadBandwidthLimit)), fileUploadStart(upload));
+    }
+
+    public Future<MediaFireWebUpload> scheduleAsync(MediaFireWebUpload upload) {
+        return scheduleAsync(upload, PRIORITY_NORMAL);
+    }
+
+    public Future<MediaFireFileUpload> scheduleAsync(MediaFireFileUpload upload) {
+        return scheduleAsync(upload, PRIORITY_NORMAL);
+    }
+
+    /**
+     * schedules the web upload without blocking. if the uploader is full the upload waits, in order with other
+     * uploads scheduled this way, until there is room.
+     * @param upload
+     * @param priority
+     * @return completes when the upload has been added to the store, cancelling it before then drops the upload
+     */
+    public Future<MediaFireWebUpload> scheduleAsync(MediaFireWebUpload upload, int priority) {
+        FutureTask<MediaFireWebUpload> admitted = new FutureTask<>(admitted(new MFUploadHandle(this, upload, priority, this.uploadBandwidthLimit)), upload);
+        this.admission.admitAsync(priority, admitted, webUploadStart(upload));
+        return admitted;
+    }
+
+    /**
+     * schedules the file upload without blocking. if the uploader is full the upload waits, in order with other
+     * uploads scheduled this way, until there is room.
+     * @param upload
+     * @param priority
+     * @return completes when the upload has been added to the store, cancelling it before then drops the upload
+     */
+    public Future<MediaFireFileUpload> scheduleAsync(MediaFireFileUpload upload, int priority) {
+        FutureTask<MediaFireFileUpload> admitted = new FutureTask<>(admitted(new MFUploadHandle(this, upload, priority, this.uploadBandwidthLimit)), upload);
+        this.admission.admitAsync(priority, admitted, fileUploadStart(upload));
+        return admitted;
+    }
+
+    /**
+     * cancels a scheduled upload, see MediaFireUploadHandle.cancel(). an upload still waiting in scheduleAsync() is
+     * cancelled through its future instead.
+     * @param upload
+     * @return false if the upload is not in progress or was already cancelled
+     */
+    public boolean cancel(MediaFireUpload upload) {
+        MFUploadHandle handle = this.handles.get(upload);
+        if (handle == null || !handle.markCancelled()) {
+            return false;
+        }
+        MFPollScheduler.Poll poll = handle.getPoll();
+        if (poll != null) {
+            this.pollScheduler.cancel(poll);
+        }
+        if (upload instanceof MediaFireFileUpload) {
+            if (this.journal != null) {
+                this.journal.remove((MediaFireFileUpload) upload);
+            }
+            this.store.uploadCancelled((MediaFireFileUpload) upload);
+        } else {
+            this.store.uploadCancelled((MediaFireWebUpload) upload);
+        }
+        this.uploadEnded(upload);
+        return true;
+    }
+
+    /**
+     * limits how fast each file upload's data is sent, for uploads in progress and scheduled later. a limit set on
+     * an upload's handle is replaced. a limit across all requests is set on the http requester instead.
+     * @param bytesPerSecond 0 for no limit
+     */
+    public void setUploadBandwidthLimit(long bytesPerSecond) {
+        this.uploadBandwidthLimit = bytesPerSecond;
+        List<MFUploadHandle> current;
+        synchronized (this.handles) {
+            current = new ArrayList<>(this.handles.values());
+        }
+        for (MFUploadHandle handle : current) {
+            handle.setBandwidthLimit(bytesPerSecond);
+        }
+    }
+
+    /**
+     * stops starting queued work. resumable uploads in progress stop after the units they are sending, releasing
+     * their threads and buffers, and continue from the units already on the server after resume(). requests
+     * already in flight, such as a simple upload, are finished. uploads can still be scheduled while paused.
+     */
+    public void pause() {
+        this.scheduler.pause();
+    }
+
+    /**
+     * starts the work queued while paused, including resumable uploads which stopped at a unit boundary
+     */
+    public void resume() {
+        this.scheduler.resume();
+    }
+
+    public boolean isPaused() {
+        return this.scheduler.isPaused();
+    }
+
+    /**
+     * waits for the store to be told of everything that happened before the call, e.g. before the application exits.
+     * returns at once if store events are not buffered.
+     * @param timeout
+     * @param unit
+     * @return false if the timeout passed first
+     * @throws InterruptedException
+     */
+    public boolean flushStoreEvents(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.storeEvents == null || this.storeEvents.flush(timeout, unit);
+    }
+
+    /**
+     * tells the store of everything that happened before the call and ends the threads which buffer store events.
+     * uploads still in progress keep telling the store on their own threads. the executors given to the builder are
+     * the caller's to shut down.
+     * @param timeout
+     * @param unit
+     * @return false if the timeout passed before the store was told
+     * @throws InterruptedException
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        if (this.storeEvents == null) {
+            return true;
+        }
+        // the consumers run every event already published before they end
+        this.storeEvents.shutdown();
+        return this.storeEvents.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * @return live throughput, remaining bytes, time estimates and stage counts of the uploads in progress
+     */
+    public MediaFireUploadStats getStats() {
+        return this.stats;
+    }
+
+    /**
+     * @return number of uploads started and not yet finished or failed
+     */
+    public int getActiveUploadCount() {
+        return this.admission.getActiveCount();
+    }
+
+    /**
+     * @return number of uploads admitted and waiting for an active upload to end, plus those waiting to be admitted
+     */
+    public int getPendingUploadCount() {
+        return this.admission.getPendingCount() + this.admission.getWaitingCount();
     }
 
     @Override
     public void onGetWebUploadsProgress(MediaFireWebUpload upload, int statusCode, String description) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.polling(upload, statusCode, description);
     }
 
     @Override
     public void onGetWebUploadsFinished(MediaFireWebUpload upload, String quickKey, String filename) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.uploadFinished(upload, quickKey, filename);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onGetWebUploadsError(MediaFireWebUpload upload, int statusCode, int errorStatus, String description) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.pollingError(upload, statusCode, errorStatus, description);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onGetWebUploadsSdkException(MediaFireWebUpload upload, MediaFireException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.sdkException(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onGetWebUploadsInterrupted(MediaFireWebUpload upload, InterruptedException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.pollingInterrupted(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onGetWebUploadsLimitExceeded(MediaFireWebUpload upload) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.pollingLimitExceeded(upload);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onWebUploadException(MediaFireWebUpload upload, MediaFireException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.sdkException(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onWebUploadFinish(MediaFireWebUpload upload, String uploadKey) {
+        if (!isActive(upload)) {
+            return;
+        }
+        if (this.webUploadSweep != null) {
+            if (TextUtils.isEmpty(uploadKey)) {
+                this.store.sdkException(upload, new MediaFireException("no upload key for web upload " + upload.getUrl()));
+                this.uploadEnded(upload);
+                return;
+            }
+            this.store.pollingReady(upload, uploadKey);
+            this.webUploadSweep.track(upload, uploadKey);
+            return;
+        }
         this.store.pollingReady(upload, uploadKey);
-        MFRunnableGetWebUpload runnableGetWebUpload = new MFRunnableGetWebUpload(this.mediaFire, upload, uploadKey, this, statusCodeToFinish);
-        this.executor.execute(runnableGetWebUpload);
+        MFRunnableGetWebUpload runnableGetWebUpload = new MFRunnableGetWebUpload(this.mediaFire, upload, uploadKey, this, statusCodeToFinish, this.pollScheduler, this.webPollPolicy, getPriority(upload));
+        this.schedulePoll(upload, runnableGetWebUpload, this.webPollPolicy.getInitialDelay(0));
     }
 
     @Override
-    public void onCheckUploadFinished(MediaFireFileUpload upload, UploadCheckResponse response) {
+    public void onCheckUploadFinished(MediaFireFileUpload upload, String sha256Hash, UploadCheckResponse response) {
+        if (!isActive(upload)) {
+            return;
+        }
 
         String hashExists = response.getHashExists();
         String inAccount = response.getInAccount();
@@ -92,148 +441,1080 @@ public class MFUploader implements MediaFireRunnableUploadStatusListener, OnPoll
 
         this.store.checkFinished(upload);
 
+        if (this.journal != null) {
+            this.journal.hashed(upload, sha256Hash);
+        }
+
+        String quickKey = MFFileUpload.quickKeyOf(upload);
+        if (!TextUtils.isEmpty(quickKey)) {
+            if ("yes".equals(inAccount)) {
+                // the file being updated may be the one in the account with this content
+                this.startUpdateCheck(upload, quickKey, sha256Hash);
+                return;
+            }
+            if ("yes".equals(hashExists)) {
+                // the content is on the server, upload/instant replaces the file's without sending it
+                this.startInstantUpload(upload, sha256Hash);
+                return;
+            }
+        }
+
         if ("yes".equals(inAccount)) {
             switch (upload.getActionOnInAccount()) {
                 case UPLOAD_ALWAYS:
-                    this.startInstantUpload(upload);
+                    this.startInstantUpload(upload, sha256Hash);
                     break;
                 case UPLOAD_IF_NOT_IN_FOLDER:
                     if ("no".equals(inFolder)) {
-                        this.startInstantUpload(upload);
+                        this.startInstantUpload(upload, sha256Hash);
                     } else {
-                        this.store.uploadFinished(upload, duplicateQuickKey, null);
+                        this.fileUploadFinished(upload, duplicateQuickKey, null);
                     }
                     break;
                 case DO_NOT_UPLOAD:
                 default:
-                    this.store.uploadFinished(upload, duplicateQuickKey, null);
+                    this.fileUploadFinished(upload, duplicateQuickKey, null);
                     break;
             }
             return;
         }
 
         if ("yes".equals(hashExists)) {
-            this.startInstantUpload(upload);
+            this.startInstantUpload(upload, sha256Hash);
         } else {
+            if (this.dedupGroups != null && !this.dedupGroups.join(sha256Hash, upload)) {
+                // the same content is being transferred by another upload, check again once it is done
+                this.stats.stage(upload, MediaFireUploadStats.Stage.QUEUED);
+                return;
+            }
             ResumableUploadModel resumableUpload = response.getResumableUpload();
-            this.startResumableUpload(upload, resumableUpload);
+            MFResumableBitmap bitmap = new MFResumableBitmap(resumableUpload.getNumberOfUnits());
+            bitmap.update(resumableUpload.getBitmap());
+            if (this.journal != null) {
+                this.journal.resumableStarted(upload, resumableUpload.getNumberOfUnits(), resumableUpload.getUnitSize());
+            }
+            this.startResumableUpload(upload, sha256Hash, resumableUpload.getNumberOfUnits(), resumableUpload.getUnitSize(), bitmap);
         }
     }
 
     @Override
     public void onCheckUploadSdkException(MediaFireFileUpload upload, MediaFireException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.sdkException(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onCheckUploadApiError(MediaFireFileUpload upload, MediaFireApiResponse response) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.apiError(upload, response);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onInstantUploadSdkException(MediaFireFileUpload upload, MediaFireException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.sdkException(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onInstantUploadApiError(MediaFireFileUpload upload, MediaFireApiResponse response) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.apiError(upload, response);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onInstantUploadFinished(MediaFireFileUpload upload, String quickKey, String fileName) {
-        this.store.uploadFinished(upload, quickKey, fileName);
+        if (!isActive(upload)) {
+            return;
+        }
+        this.fileUploadFinished(upload, quickKey, fileName);
     }
 
     @Override
     public void onResumableUploadReadyToPoll(MediaFireFileUpload upload, String uploadKey) {
-        this.store.pollingReady(upload, uploadKey);
-        MFRunnablePollUpload runnablePollUpload = new MFRunnablePollUpload(this.mediaFire, upload, uploadKey, this, statusCodeToFinish);
-        this.executor.execute(runnablePollUpload);
+        if (!isActive(upload)) {
+            return;
+        }
+        if (this.journal != null) {
+            this.journal.readyToPoll(upload, uploadKey);
+        }
+        this.startPollUpload(upload, uploadKey);
+    }
+
+    @Override
+    public void onResumableUploadUnitFinished(MediaFireFileUpload upload, int unitId, String unitHash) {
+        if (!isActive(upload)) {
+            return;
+        }
+        if (this.journal != null) {
+            this.journal.unitUploaded(upload, unitId, unitHash);
+        }
     }
 
     @Override
-    public void onResumableUploadProgress(MediaFireFileUpload upload, double percentFinished) {
-        this.store.uploadProgress(upload, percentFinished);
+    public void onResumableUploadPaused(MediaFireFileUpload upload, Runnable resume) {
+        if (!isActive(upload)) {
+            return;
+        }
+        // queued behind the pause, it holds no thread or buffers until it runs again
+        this.execute(MFUploadScheduler.Lane.RESUMABLE, upload, resume);
     }
 
     @Override
     public void onResumableUploadSdkException(MediaFireFileUpload upload, MediaFireException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.sdkException(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onResumableUploadFinishedIncomplete(MediaFireFileUpload upload) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.resumableFinishedWithoutAllUnitsReady(upload);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onResumableUploadIOException(MediaFireFileUpload upload, IOException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.fileIOException(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onResumableUploadApiError(MediaFireFileUpload upload, MediaFireApiResponse response) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.apiError(upload, response);
+        this.uploadEnded(upload);
+    }
+
+    @Override
+    public void onSimpleUploadReadyToPoll(MediaFireFileUpload upload, String uploadKey) {
+        if (!isActive(upload)) {
+            return;
+        }
+        if (this.journal != null) {
+            this.journal.readyToPoll(upload, uploadKey);
+        }
+        this.stats.bytesSent(upload, getFileSize(upload));
+        this.store.pollingReady(upload, uploadKey);
+        this.startPollUpload(upload, uploadKey);
+    }
+
+    @Override
+    public void onSimpleUploadSdkException(MediaFireFileUpload upload, MediaFireException e) {
+        if (!isActive(upload)) {
+            return;
+        }
+        this.store.sdkException(upload, e);
+        this.uploadEnded(upload);
+    }
+
+    @Override
+    public void onSimpleUploadIOException(MediaFireFileUpload upload, IOException e) {
+        if (!isActive(upload)) {
+            return;
+        }
+        this.store.fileIOException(upload, e);
+        this.uploadEnded(upload);
+    }
+
+    @Override
+    public void onSimpleUploadApiError(MediaFireFileUpload upload, MediaFireApiResponse response) {
+        if (!isActive(upload)) {
+            return;
+        }
+        this.store.apiError(upload, response);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onPollUploadFinished(MediaFireFileUpload upload, String quickKey, String fileName) {
-        this.store.uploadFinished(upload, quickKey, fileName);
+        if (!isActive(upload)) {
+            return;
+        }
+        this.fileUploadFinished(upload, quickKey, fileName);
     }
 
     @Override
     public void onPollUploadProgress(MediaFireFileUpload upload, int statusCode, String description) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.polling(upload, statusCode, description);
     }
 
     @Override
     public void onPollUploadError(MediaFireFileUpload upload, int fileErrorCode, int resultCode, int statusCode, String description) {
+        if (!isActive(upload)) {
+            return;
+        }
+        if (this.journal != null) {
+            this.journal.remove(upload);
+        }
         this.store.pollingError(upload, fileErrorCode, resultCode, statusCode, description);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onPollUploadSdkException(MediaFireFileUpload upload, MediaFireException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.sdkException(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onPollUploadThreadInterrupted(MediaFireFileUpload upload, InterruptedException e) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.pollingInterrupted(upload, e);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onPollUploadApiError(MediaFireFileUpload upload, UploadPollUploadResponse response) {
+        if (!isActive(upload)) {
+            return;
+        }
+        if (this.journal != null) {
+            this.journal.remove(upload);
+        }
         this.store.apiError(upload, response);
+        this.uploadEnded(upload);
     }
 
     @Override
     public void onPollUploadLimitExceeded(MediaFireFileUpload upload) {
+        if (!isActive(upload)) {
+            return;
+        }
         this.store.pollingLimitExceeded(upload);
+        this.uploadEnded(upload);
+    }
+
+    private Runnable admitted(final MFUploadHandle handle) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                MediaFireUpload upload = handle.getUpload();
+                if (upload instanceof MediaFireFileUpload) {
+                    store.insert((MediaFireFileUpload) upload);
+                } else {
+                    store.insert((MediaFireWebUpload) upload);
+                }
+                handles.put(upload, handle);
+            }
+        };
+    }
+
+    private Runnable webUploadStart(final MediaFireWebUpload upload) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (markStarted(upload)) {
+                    startWebUpload(upload);
+                }
+            }
+        };
+    }
+
+    private Runnable fileUploadStart(final MediaFireFileUpload upload) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (markStarted(upload)) {
+                    startFileUpload(upload);
+                }
+            }
+        };
+    }
+
+    /**
+     * @param upload
+     * @return false if the upload was cancelled while it waited to start, the slot it was given is freed
+     */
+    private boolean markStarted(MediaFireUpload upload) {
+        MFUploadHandle handle = this.handles.get(upload);
+        if (handle != null && handle.markStarted()) {
+            return true;
+        }
+        this.admission.onEnded();
+        return false;
+    }
+
+    /**
+     * queues work for the upload unless it has ended or been cancelled. the threads running it are registered with
+     * the upload's handle so cancel() can interrupt them.
+     * @param lane
+     * @param upload
+     * @param task
+     */
+    private void execute(MFUploadScheduler.Lane lane, MediaFireUpload upload, final Runnable task) {
+        final MFUploadHandle handle = this.handles.get(upload);
+        if (handle == null || handle.isCancelled()) {
+            return;
+        }
+        this.scheduler.execute(lane, handle.getPriority(), new Runnable() {
+            @Override
+            public void run() {
+                if (!handle.enter()) {
+                    return;
+                }
+                try {
+                    task.run();
+                } finally {
+                    handle.exit();
+                }
+            }
+        });
+    }
+
+    /**
+     * @param upload
+     * @param poll
+     * @param delayMillis
+     */
+    private void schedulePoll(MediaFireUpload upload, MFPollScheduler.Poll poll, long delayMillis) {
+        MFUploadHandle handle = this.handles.get(upload);
+        if (handle == null) {
+            return;
+        }
+        handle.setPoll(poll);
+        if (handle.isCancelled()) {
+            // cancel() may have looked for the poll before it was set
+            this.pollScheduler.cancel(poll);
+            return;
+        }
+        this.pollScheduler.schedule(poll, delayMillis);
+    }
+
+    /**
+     * @param upload
+     * @param progressListener
+     * @return listener which also paces the upload's writes to its handle's bandwidth limit
+     */
+    private MediaFireHttpProgressListener limitBandwidth(MediaFireFileUpload upload, final MediaFireHttpProgressListener progressListener) {
+        MFUploadHandle handle = this.handles.get(upload);
+        if (handle == null) {
+            return progressListener;
+        }
+        final MFBandwidthLimiter limiter = handle.getBandwidthLimiter();
+        return new MediaFireHttpProgressListener() {
+            @Override
+            public void onBytesSent(long bytes) {
+                progressListener.onBytesSent(bytes);
+                try {
+                    limiter.acquire(bytes);
+                } catch (InterruptedIOException ignored) {
+                    // the interrupt status is kept, the request is aborted before the next chunk
+                }
+            }
+        };
+    }
+
+    /**
+     * @param upload
+     * @return false if the upload has ended or been cancelled, its late callbacks are ignored
+     */
+    private boolean isActive(MediaFireUpload upload) {
+        MFUploadHandle handle = this.handles.get(upload);
+        return handle != null && !handle.isCancelled();
     }
 
     private void startWebUpload(MediaFireWebUpload upload) {
         this.store.uploadQueued(upload);
-        MFRunnableWebUpload runnableWebUpload = new MFRunnableWebUpload(this.mediaFire, upload, this);
-        this.executor.execute(runnableWebUpload);
+        if (this.webUploadRequests == null) {
+            MFRunnableWebUpload runnableWebUpload = new MFRunnableWebUpload(this.mediaFire, upload, this);
+            this.execute(MFUploadScheduler.Lane.WEB, upload, runnableWebUpload);
+            return;
+        }
+        this.waitingWebUploads.add(upload);
+        this.submitWebUploads();
+    }
+
+    /**
+     * starts waiting web uploads while fewer upload/add_web_upload requests than the limit are in flight. a request
+     * gives its permit back when it is done or skipped and starts the next waiting upload, so no thread waits for one.
+     */
+    private void submitWebUploads() {
+        while (!this.waitingWebUploads.isEmpty() && this.webUploadRequests.tryAcquire()) {
+            final MediaFireWebUpload upload = this.waitingWebUploads.poll();
+            final MFUploadHandle handle = upload != null ? this.handles.get(upload) : null;
+            if (handle == null || handle.isCancelled()) {
+                this.webUploadRequests.release();
+                continue;
+            }
+            final MFRunnableWebUpload runnableWebUpload = new MFRunnableWebUpload(this.mediaFire, upload, this);
+            Runnable request = new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (handle.enter()) {
+                            try {
+                                runnableWebUpload.run();
+                            } finally {
+                                handle.exit();
+                            }
+                        }
+                    } finally {
+                        webUploadRequests.release();
+                        submitWebUploads();
+                    }
+                }
+            };
+            try {
+                this.scheduler.execute(MFUploadScheduler.Lane.WEB, handle.getPriority(), request);
+            } catch (RuntimeException e) {
+                this.webUploadRequests.release();
+                throw e;
+            }
+        }
     }
 
     private void startFileUpload(MediaFireFileUpload upload) {
         this.store.uploadQueued(upload);
-        MFRunnableCheckUpload runnableCheckUpload = new MFRunnableCheckUpload(this.mediaFire, upload, this);
-        this.executor.execute(runnableCheckUpload);
+
+        MFUploadData data = MFUploadData.forUpload(upload);
+        if (data == null) {
+            this.spoolFileUpload(upload);
+        } else {
+            this.startFileUpload(upload, data);
+        }
     }
 
-    private void startResumableUpload(MediaFireFileUpload upload, ResumableUploadModel resumableUpload) {
+    /**
+     * reads a source of unknown size or hash once, keeping its data for the upload, and then starts the upload
+     * @param upload
+     */
+    private void spoolFileUpload(final MediaFireFileUpload upload) {
+        this.stats.stage(upload, MediaFireUploadStats.Stage.HASHING);
+        this.execute(MFUploadScheduler.Lane.CHECK, upload, new Runnable() {
+            @Override
+            public void run() {
+                MFUploadData data;
+                try {
+                    data = MFUploadSpool.spool(MFFileUpload.sourceOf(upload), spoolMemoryThreshold, spoolDirectory);
+                } catch (IOException e) {
+                    onSpoolIOException(upload, e);
+                    return;
+                }
+                stats.setTotalBytes(upload, data.getSize());
+                startFileUpload(upload, data);
+            }
+        });
+    }
+
+    private void onSpoolIOException(MediaFireFileUpload upload, IOException e) {
+        if (!isActive(upload)) {
+            return;
+        }
+        this.store.fileIOException(upload, e);
+        this.uploadEnded(upload);
+    }
+
+    private void startFileUpload(MediaFireFileUpload upload, MFUploadData data) {
+        MFUploadHandle handle = this.handles.get(upload);
+        if (handle == null) {
+            data.release();
+            return;
+        }
+        handle.setData(data);
+        if (!isActive(upload)) {
+            // ended while the data was prepared
+            data.release();
+            return;
+        }
+
+        MediaFireUploadJournal.Entry entry = this.journal != null ? this.journal.get(upload) : null;
+        if (entry != null && entry.getUploadKey() != null) {
+            // every unit is already on the server
+            this.store.pollingReady(upload, entry.getUploadKey());
+            this.startPollUpload(upload, entry.getUploadKey());
+        } else if (entry != null && entry.getSha256Hash() != null && entry.getNumberOfUnits() > 0) {
+            // continue the resumable upload from the recorded units, the server bitmap corrects any drift
+            MFResumableBitmap bitmap = new MFResumableBitmap(entry.getNumberOfUnits());
+            BitSet uploadedUnits = entry.getUploadedUnits();
+            for (int unit = uploadedUnits.nextSetBit(0); unit >= 0; unit = uploadedUnits.nextSetBit(unit + 1)) {
+                bitmap.markUploaded(unit);
+            }
+            this.startResumableUpload(upload, entry.getSha256Hash(), entry.getNumberOfUnits(), entry.getUnitSize(), bitmap);
+        } else if (entry == null && isSimpleUpload(upload, data)) {
+            long fileSize = data.getSize();
+            MediaFireHttpProgressListener progressListener = limitBandwidth(upload, this.progressTracker.track(upload, fileSize, 0));
+            MFRunnableSimpleUpload runnableSimpleUpload = new MFRunnableSimpleUpload(this.mediaFire, upload, data, this.memoryBudget, progressListener, this);
+            this.stats.stage(upload, MediaFireUploadStats.Stage.TRANSFERRING);
+            this.execute(MFUploadScheduler.Lane.SIMPLE, upload, runnableSimpleUpload);
+        } else {
+            String sha256Hash = entry != null ? entry.getSha256Hash() : null;
+            if (sha256Hash == null && upload.getSha256Hash() == null && upload.isPreemptive() && data instanceof MFUploadData.FileData) {
+                // hashes while the upload waits to check and keeps the first units so sending starts as soon as
+                // upload/check answers
+                MFPreemptiveData preemptiveData = new MFPreemptiveData(data, this.unitMemoryBudget, this.memoryBudget);
+                handle.setData(preemptiveData);
+                preemptiveData.start(this.unitReadExecutor);
+            }
+            this.startCheckUpload(upload, sha256Hash);
+        }
+    }
+
+    private void startCheckUpload(MediaFireFileUpload upload, String sha256Hash) {
+        boolean hashed = sha256Hash != null || upload.getSha256Hash() != null;
+        this.stats.stage(upload, hashed ? MediaFireUploadStats.Stage.CHECKING : MediaFireUploadStats.Stage.HASHING);
+        MFRunnableCheckUpload runnableCheckUpload = new MFRunnableCheckUpload(this.mediaFire, upload, getData(upload), sha256Hash, this);
+        this.execute(MFUploadScheduler.Lane.CHECK, upload, runnableCheckUpload);
+    }
+
+    /**
+     * small files which would be uploaded whatever upload/check says are sent in one upload/simple request
+     * @param upload
+     * @return
+     */
+    private boolean isSimpleUpload(MediaFireFileUpload upload, MFUploadData data) {
+        if (this.simpleUploadThreshold <= 0) {
+            return false;
+        }
+        if (upload.getActionOnInAccount() != MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS) {
+            // the other actions depend on whether the hash is already in the account or folder
+            return false;
+        }
+        long fileSize = data.getSize();
+        return fileSize > 0 && fileSize <= this.simpleUploadThreshold;
+    }
+
+    private void startResumableUpload(MediaFireFileUpload upload, String sha256Hash, int numUnits, int unitSize, MFResumableBitmap bitmap) {
         this.store.resumableUploadStarting(upload);
-        MFRunnableResumableUpload runnableResumableUpload = new MFRunnableResumableUpload(this.mediaFire, upload, resumableUpload, this);
-        this.executor.execute(runnableResumableUpload);
+        int queueDepth = MFUnitReader.getQueueDepth(this.unitQueueDepth, this.unitMemoryBudget, unitSize);
+        long fileSize = getFileSize(upload);
+        long alreadySent = Math.min(fileSize, (long) bitmap.getUploadedCount() * unitSize);
+        this.stats.bytesOnServer(upload, alreadySent);
+        MediaFireHttpProgressListener progressListener = limitBandwidth(upload, this.progressTracker.track(upload, fileSize, alreadySent));
+        MFConcurrencyController fileConcurrency = new MFConcurrencyController(1, 1, this.maxUnitsPerUpload);
+        if (this.probeRttNanos > 0) {
+            fileConcurrency.setProbeRtt(this.probeRttNanos);
+        }
+        MFRunnableResumableUpload runnableResumableUpload = new MFRunnableResumableUpload(this.mediaFire, upload, getData(upload), sha256Hash, numUnits, unitSize, bitmap, this.unitReadExecutor, queueDepth, this.memoryBudget, this.unitRetryPolicy, this.scheduler, unitSender(upload), fileConcurrency, this.unitConcurrency, this.stats, progressListener, this);
+        this.probeRoundTrip();
+        this.execute(MFUploadScheduler.Lane.RESUMABLE, upload, runnableResumableUpload);
+    }
+
+    /**
+     * runs a resumable upload's unit sends on the unit send executor, registered with the upload's handle so
+     * cancelling the upload interrupts them
+     * @param upload
+     * @return
+     */
+    private Executor unitSender(MediaFireFileUpload upload) {
+        final MFUploadHandle handle = this.handles.get(upload);
+        if (handle == null || this.maxUnitsPerUpload == 1) {
+            return null;
+        }
+        return new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                unitSendExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        boolean entered = handle.enter();
+                        if (!entered) {
+                            // the send sees the interrupt and only gives its unit back
+                            Thread.currentThread().interrupt();
+                        }
+                        try {
+                            command.run();
+                        } finally {
+                            if (entered) {
+                                handle.exit();
+                            } else {
+                                Thread.interrupted();
+                            }
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * times one request without a payload the first time a resumable upload starts. file uploads started after it
+     * seed their unit concurrency from it and the time their first unit takes.
+     */
+    private void probeRoundTrip() {
+        if (!this.probeStarted.compareAndSet(false, true)) {
+            return;
+        }
+        this.scheduler.execute(MFUploadScheduler.Lane.CHECK, PRIORITY_HIGH, new Runnable() {
+            @Override
+            public void run() {
+                long started = System.nanoTime();
+                try {
+                    mediaFire.noAuthRequest(new MFApiRequest("/system/get_info.php", null, null, null), SystemGetInfoResponse.class);
+                } catch (MediaFireException ignored) {
+                    // no seed, units start one at a time
+                    return;
+                }
+                probeRttNanos = System.nanoTime() - started;
+            }
+        });
+    }
+
+    /**
+     * upload/check compares the content with the file of the same name in the folder, not with the file being
+     * updated. asks for that file's hash: if it already has the content the upload is done, otherwise upload/instant
+     * replaces its content without sending it.
+     * @param upload
+     * @param quickKey of the file being updated
+     * @param sha256Hash
+     */
+    private void startUpdateCheck(final MediaFireFileUpload upload, final String quickKey, final String sha256Hash) {
+        this.execute(MFUploadScheduler.Lane.CHECK, upload, new Runnable() {
+            @Override
+            public void run() {
+                LinkedHashMap<String, Object> params = new LinkedHashMap<>();
+                params.put("quick_key", quickKey);
+                FileGetInfoResponse response;
+                try {
+                    response = mediaFire.sessionRequest(new MFApiRequest("/file/get_info.php", params, null, null), FileGetInfoResponse.class);
+                } catch (MediaFireException e) {
+                    onCheckUploadSdkException(upload, e);
+                    return;
+                }
+                if (response.hasError()) {
+                    onCheckUploadApiError(upload, response);
+                    return;
+                }
+                if (!isActive(upload)) {
+                    return;
+                }
+                FileInfoModel fileInfo = response.getFileInfo();
+                if (fileInfo != null && sha256Hash != null && sha256Hash.equalsIgnoreCase(fileInfo.getHash())) {
+                    fileUploadFinished(upload, quickKey, fileInfo.getFileName());
+                } else {
+                    startInstantUpload(upload, sha256Hash);
+                }
+            }
+        });
     }
 
-    private void startInstantUpload(MediaFireFileUpload upload) {
+    private void startInstantUpload(MediaFireFileUpload upload, String sha256Hash) {
         this.store.instantUploadStarting(upload);
-        MFRunnableInstantUpload runnableInstantUpload = new MFRunnableInstantUpload(this.mediaFire, upload, this);
-        this.executor.execute(runnableInstantUpload);
+        MFRunnableInstantUpload runnableInstantUpload = new MFRunnableInstantUpload(this.mediaFire, upload, getData(upload), sha256Hash, this);
+        this.execute(MFUploadScheduler.Lane.INSTANT, upload, runnableInstantUpload);
     }
 
+    private void startPollUpload(MediaFireFileUpload upload, String uploadKey) {
+        MFRunnablePollUpload runnablePollUpload = new MFRunnablePollUpload(this.mediaFire, upload, uploadKey, this, statusCodeToFinish, this.pollScheduler, this.filePollPolicy, getPriority(upload));
+        this.schedulePoll(upload, runnablePollUpload, this.filePollPolicy.getInitialDelay(getFileSize(upload)));
+    }
+
+    private void fileUploadFinished(MediaFireFileUpload upload, String quickKey, String fileName) {
+        if (this.journal != null) {
+            this.journal.remove(upload);
+        }
+        this.store.uploadFinished(upload, quickKey, fileName);
+        this.uploadEnded(upload);
+    }
+
+    private void uploadEnded(MediaFireUpload upload) {
+        if (this.dedupGroups != null && upload instanceof MediaFireFileUpload) {
+            // a follower cancelled while it waits must not be started again with its group
+            this.dedupGroups.leave((MediaFireFileUpload) upload);
+            String sha256Hash = this.dedupGroups.getLeaderHash((MediaFireFileUpload) upload);
+            for (MediaFireFileUpload follower : this.dedupGroups.leaderEnded((MediaFireFileUpload) upload)) {
+                // normally finds the content on the server now and goes through upload/instant
+                startCheckUpload(follower, sha256Hash);
+            }
+        }
+        if (upload instanceof MediaFireFileUpload) {
+            this.progressTracker.untrack((MediaFireFileUpload) upload);
+        } else if (this.webUploadSweep != null && upload instanceof MediaFireWebUpload) {
+            this.webUploadSweep.untrack((MediaFireWebUpload) upload);
+        }
+        MFUploadHandle handle = this.handles.remove(upload);
+        if (handle != null && handle.getData() != null) {
+            handle.getData().release();
+        }
+        if (handle != null && handle.isStarted()) {
+            this.admission.onEnded();
+        }
+    }
+
+    /**
+     * @param upload
+     * @return the data the upload was started with, or its file's if it has not started
+     */
+    private MFUploadData getData(MediaFireFileUpload upload) {
+        MFUploadHandle handle = this.handles.get(upload);
+        MFUploadData data = handle != null ? handle.getData() : null;
+        return data != null ? data : MFUploadData.forUpload(upload);
+    }
+
+    private long getFileSize(MediaFireFileUpload upload) {
+        MFUploadData data = getData(upload);
+        return data != null ? data.getSize() : upload.getFileSize();
+    }
+
+    private int getPriority(MediaFireUpload upload) {
+        MFUploadHandle handle = this.handles.get(upload);
+        return handle != null ? handle.getPriority() : PRIORITY_NORMAL;
+    }
+
+    public static class Builder {
+        private static final int DEFAULT_STATUS_CODE_TO_FINISH = 99;
+        private static final int DEFAULT_UNIT_QUEUE_DEPTH = 2;
+        private static final long DEFAULT_UNIT_MEMORY_BUDGET = 16 * 1024 * 1024;
+        private static final long DEFAULT_PROGRESS_INTERVAL = 250;
+        private static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+        private static final int DEFAULT_UNIT_RETRY_ATTEMPTS = 5;
+        private static final long DEFAULT_UNIT_RETRY_BACKOFF = 1000;
+        private static final int DEFAULT_MAX_UNITS_PER_UPLOAD = 4;
+        private static final int DEFAULT_MAX_CONCURRENT_UNITS = 16;
+        private static final long DEFAULT_SPOOL_MEMORY_THRESHOLD = 8 * 1024 * 1024;
+        private static final int DEFAULT_STORE_EVENT_CONSUMERS = 1;
+
+        private final MediaFireClient mediaFire;
+        private final MediaFireUploadStore store;
+        private final ExecutorService executor;
+
+        private int statusCodeToFinish = DEFAULT_STATUS_CODE_TO_FINISH;
+        private MediaFireUploadJournal journal;
+        private Executor unitReadExecutor;
+        private int unitQueueDepth = DEFAULT_UNIT_QUEUE_DEPTH;
+        private long unitMemoryBudget = DEFAULT_UNIT_MEMORY_BUDGET;
+        private long memoryBudget = DEFAULT_MEMORY_BUDGET;
+        private int maxActiveUploads = Integer.MAX_VALUE;
+        private int maxPendingUploads = Integer.MAX_VALUE;
+        private int unitRetryAttempts = DEFAULT_UNIT_RETRY_ATTEMPTS;
+        private long uploadBandwidthLimit = MFBandwidthLimiter.UNLIMITED;
+        private long unitRetryBackoff = DEFAULT_UNIT_RETRY_BACKOFF;
+        private Executor unitSendExecutor;
+        private int maxUnitsPerUpload = DEFAULT_MAX_UNITS_PER_UPLOAD;
+        private int maxConcurrentUnits = DEFAULT_MAX_CONCURRENT_UNITS;
+        private long spoolMemoryThreshold = DEFAULT_SPOOL_MEMORY_THRESHOLD;
+        private File spoolDirectory;
+        private long simpleUploadThreshold;
+        private boolean deduplicate = true;
+        private MediaFireUploadProgressListener progressListener;
+        private long progressInterval = DEFAULT_PROGRESS_INTERVAL;
+        private ScheduledExecutorService pollTimer;
+        private int storeEventBuffer;
+        private int storeEventConsumers = DEFAULT_STORE_EVENT_CONSUMERS;
+        private long webUploadSweepInterval;
+        private int maxConcurrentWebUploadRequests = Integer.MAX_VALUE;
+
+        public Builder(MediaFireClient mediaFire, MediaFireUploadStore store, ExecutorService executor) {
+            this.mediaFire = mediaFire;
+            this.store = store;
+            this.executor = executor;
+        }
+
+        /**
+         * runs every upload task on its own virtual thread if the runtime supports them, otherwise on a cached pool
+         * of daemon threads, so the number of concurrent uploads and polls is not limited by a hand sized pool.
+         * @param mediaFire
+         * @param store
+         */
+        public Builder(MediaFireClient mediaFire, MediaFireUploadStore store) {
+            this(mediaFire, store, null);
+        }
+
+        /**
+         * poll_upload status code at which a file upload is considered finished
+         * @param statusCodeToFinish
+         * @return
+         */
+        public Builder statusCodeToFinish(int statusCodeToFinish) {
+            this.statusCodeToFinish = statusCodeToFinish;
+            return this;
+        }
+
+        /**
+         * journal used to resume file uploads after a restart. uploads are not journaled if not set.
+         * @param journal
+         * @return
+         */
+        public Builder journal(MediaFireUploadJournal journal) {
+            this.journal = journal;
+            return this;
+        }
+
+        /**
+         * executor which reads and hashes the units of resumable uploads ahead of the thread sending them. defaults
+         * to virtual threads if available, otherwise a cached pool of daemon threads.
+         * @param unitReadExecutor
+         * @return
+         */
+        public Builder unitReadExecutor(Executor unitReadExecutor) {
+            this.unitReadExecutor = unitReadExecutor;
+            return this;
+        }
+
+        /**
+         * maximum number of units read and hashed ahead of the unit being sent, per upload. default 2
+         * @param unitQueueDepth
+         * @return
+         */
+        public Builder unitQueueDepth(int unitQueueDepth) {
+            this.unitQueueDepth = unitQueueDepth;
+            return this;
+        }
+
+        /**
+         * maximum bytes of units read ahead of the unit being sent, per upload. at least one unit is always read
+         * ahead. default 16MB
+         * @param unitMemoryBudget
+         * @return
+         */
+        public Builder unitMemoryBudget(long unitMemoryBudget) {
+            this.unitMemoryBudget = unitMemoryBudget;
+            return this;
+        }
+
+        /**
+         * maximum bytes of file data held in memory by all uploads together, covering read ahead units and files
+         * sent with upload/simple. reading waits while the budget is used up. a single unit or file larger than the
+         * budget is still read on its own. 0 for no limit. default 64MB
+         * @param memoryBudget
+         * @return
+         */
+        public Builder memoryBudget(long memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        /**
+         * maximum number of uploads in progress at once, further admitted uploads wait to start. default no limit
+         * @param maxActiveUploads
+         * @return
+         */
+        public Builder maxActiveUploads(int maxActiveUploads) {
+            this.maxActiveUploads = maxActiveUploads;
+            return this;
+        }
+
+        /**
+         * maximum number of admitted uploads waiting for one in progress to end. once it is reached schedule()
+         * blocks, trySchedule() returns false and scheduleAsync() returns a future which completes later. default no
+         * limit
+         * @param maxPendingUploads
+         * @return
+         */
+        public Builder maxPendingUploads(int maxPendingUploads) {
+            this.maxPendingUploads = maxPendingUploads;
+            return this;
+        }
+
+        /**
+         * limit on how fast each file upload's data is sent, see MFUploader.setUploadBandwidthLimit(). default no
+         * limit
+         * @param uploadBandwidthLimit bytes per second
+         * @return
+         */
+        public Builder uploadBandwidthLimit(long uploadBandwidthLimit) {
+            this.uploadBandwidthLimit = uploadBandwidthLimit;
+            return this;
+        }
+
+        /**
+         * attempts to send each unit of a resumable upload, including the first, before the upload fails. network
+         * errors, refused unit data and expired upload tokens are retried, other errors fail right away. 1 to never
+         * retry. default 5
+         * @param unitRetryAttempts
+         * @return
+         */
+        public Builder unitRetryAttempts(int unitRetryAttempts) {
+            this.unitRetryAttempts = unitRetryAttempts;
+            return this;
+        }
+
+        /**
+         * wait before the first retry of a unit, doubled for each further retry up to 30 seconds. default 1000ms
+         * @param unitRetryBackoff milliseconds
+         * @return
+         */
+        public Builder unitRetryBackoff(long unitRetryBackoff) {
+            this.unitRetryBackoff = unitRetryBackoff;
+            return this;
+        }
+
+        /**
+         * executor which sends the units of resumable uploads once more than one unit of an upload is in flight.
+         * defaults to virtual threads if available, otherwise a cached pool of daemon threads.
+         * @param unitSendExecutor
+         * @return
+         */
+        public Builder unitSendExecutor(Executor unitSendExecutor) {
+            this.unitSendExecutor = unitSendExecutor;
+            return this;
+        }
+
+        /**
+         * most units of one resumable upload sent at once. each upload starts with one, seeded from a round trip
+         * probe, and adds units while that raises its throughput. 1 to send units one after another. default 4
+         * @param maxUnitsPerUpload
+         * @return
+         */
+        public Builder maxUnitsPerUpload(int maxUnitsPerUpload) {
+            this.maxUnitsPerUpload = maxUnitsPerUpload;
+            return this;
+        }
+
+        /**
+         * most units of all resumable uploads sent at once. the limit in use starts lower and is tuned the same way
+         * as the per upload limit, backing off on failed or slow units. default 16
+         * @param maxConcurrentUnits
+         * @return
+         */
+        public Builder maxConcurrentUnits(int maxConcurrentUnits) {
+            this.maxConcurrentUnits = maxConcurrentUnits;
+            return this;
+        }
+
+        /**
+         * most bytes of an upload source kept in memory while it is spooled to find its size and hash. larger
+         * sources are spooled to a temporary file. sources which know both are not spooled. default 8MB
+         * @param spoolMemoryThreshold bytes
+         * @return
+         */
+        public Builder spoolMemoryThreshold(long spoolMemoryThreshold) {
+            this.spoolMemoryThreshold = spoolMemoryThreshold;
+            return this;
+        }
+
+        /**
+         * directory for the temporary files of spooled upload sources. defaults to the system temporary directory.
+         * @param spoolDirectory
+         * @return
+         */
+        public Builder spoolDirectory(File spoolDirectory) {
+            this.spoolDirectory = spoolDirectory;
+            return this;
+        }
+
+        /**
+         * files up to this size which are uploaded with ActionOnInAccount.UPLOAD_ALWAYS skip upload/check and
+         * upload/resumable and are sent in a single upload/simple request. such uploads never finish with
+         * upload/instant and are not deduplicated, so a file already in the account is sent again. 0 to disable. default 0
+         * @param simpleUploadThreshold bytes
+         * @return
+         */
+        public Builder simpleUploadThreshold(long simpleUploadThreshold) {
+            this.simpleUploadThreshold = simpleUploadThreshold;
+            return this;
+        }
+
+        /**
+         * true to transfer only one copy of file uploads with the same content at a time. the other copies wait
+         * for it and then normally finish with upload/instant. default true
+         * @param deduplicate
+         * @return
+         */
+        public Builder deduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+            return this;
+        }
+
+        /**
+         * listener told how many bytes of each file upload have been sent, at most once per progress interval per
+         * upload. the store is told the same progress as a percentage.
+         * @param progressListener
+         * @return
+         */
+        public Builder progressListener(MediaFireUploadProgressListener progressListener) {
+            this.progressListener = progressListener;
+            return this;
+        }
+
+        /**
+         * minimum time between progress updates of the same upload. default 250ms
+         * @param progressInterval milliseconds
+         * @return
+         */
+        public Builder progressInterval(long progressInterval) {
+            this.progressInterval = progressInterval;
+            return this;
+        }
+
+        /**
+         * timer used to wait between status polls of uploads being processed by the server. polls themselves run on
+         * the uploader's executor. defaults to a single daemon thread.
+         * @param pollTimer
+         * @return
+         */
+        public Builder pollTimer(ScheduledExecutorService pollTimer) {
+            this.pollTimer = pollTimer;
+            return this;
+        }
+
+        /**
+         * calls the store from threads of its own instead of the threads transferring uploads. events wait in a ring
+         * of this many slots per consumer thread; a transfer thread only waits when its ring is full. calls about
+         * the same upload are made in order. default 0, the store is called on the transferring thread.
+         * @param storeEventBuffer events, rounded up to a power of two
+         * @return
+         */
+        public Builder storeEventBuffer(int storeEventBuffer) {
+            this.storeEventBuffer = storeEventBuffer;
+            return this;
+        }
+
+        /**
+         * threads calling the store when store events are buffered. each upload's events go to the same thread.
+         * the threads are daemons and run until shutdown(). default 1
+         * @param storeEventConsumers
+         * @return
+         */
+        public Builder storeEventConsumers(int storeEventConsumers) {
+            this.storeEventConsumers = storeEventConsumers;
+            return this;
+        }
+
+        /**
+         * follows every web upload waiting on the server with one upload/get_web_uploads request per interval for
+         * all of them, matched by upload key, instead of polling each upload on its own. meant for importing many
+         * urls at once. default 0, each web upload is polled on its own.
+         * @param webUploadSweepInterval milliseconds
+         * @return
+         */
+        public Builder webUploadSweepInterval(long webUploadSweepInterval) {
+            this.webUploadSweepInterval = webUploadSweepInterval;
+            return this;
+        }
+
+        /**
+         * most upload/add_web_upload requests in flight at once, further web uploads wait their turn without holding
+         * a thread. default no limit
+         * @param maxConcurrentWebUploadRequests
+         * @return
+         */
+        public Builder maxConcurrentWebUploadRequests(int maxConcurrentWebUploadRequests) {
+            this.maxConcurrentWebUploadRequests = maxConcurrentWebUploadRequests;
+            return this;
+        }
+
+        public MFUploader build() {
+            return new MFUploader(this);
+        }
+    }
 }
@@ -0,0 +1,51 @@
+package com.mediafire.sdk.uploader;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Looks up Executors.newVirtualThreadPerTaskExecutor() at runtime so the sdk keeps building for older JDKs and
+ * Android while still using virtual threads on runtimes that have them. Every stage of the uploader only blocks in
+ * java.util.concurrent or socket calls, so running each task on its own virtual thread removes the need to size a
+ * platform thread pool by hand.
+ */
+class MFVirtualThreads {
+
+    private static final Method NEW_EXECUTOR = findFactory();
+
+    private MFVirtualThreads() {
+        // no instances
+    }
+
+    /**
+     * @return true if the runtime can create virtual threads
+     */
+    static boolean isAvailable() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * @param fallbackPrefix name of the daemon threads used when virtual threads are not available
+     * @return an executor which runs every task on a new virtual thread, or a cached pool of daemon threads if the
+     * runtime has no virtual threads
+     */
+    static ExecutorService newExecutor(String fallbackPrefix) {
+        if (NEW_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                // fall through to platform threads
+            }
+        }
+        return Executors.newCachedThreadPool(new MFThreadFactory(fallbackPrefix));
+    }
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFApiRequest;
+import com.mediafire.sdk.MediaFireApiRequest;
+import com.mediafire.sdk.MediaFireClient;
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.data_models.WebUploadsModel;
+import com.mediafire.sdk.response_models.upload.UploadGetWebUploadsResponse;
+import com.mediafire.sdk.uploader.MFRunnableGetWebUpload.OnGetWebUploadStatusListener;
+import com.mediafire.sdk.util.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks every web upload waiting on the server with one periodic upload/get_web_uploads request for all of them,
+ * instead of a poll per upload. Each sweep matches the returned uploads to the tracked ones by upload key and tells
+ * the listener as a per upload poll would. The sweep only runs while something is tracked; a failed request is tried
+ * again on the next sweep, and each upload still gives up at its own deadline. Once several sweeps in a row have
+ * failed every tracked upload is told of the last failure and dropped.
+ */
+class MFWebUploadSweep implements MFPollScheduler.Poll {
+
+    private static final String PARAM_ALL_WEB_UPLOADS = "all_web_uploads";
+    private static final int MAX_FAILED_SWEEPS = 3;
+
+    private final MediaFireClient mediaFire;
+    private final OnGetWebUploadStatusListener callback;
+    private final int statusToFinish;
+    private final MFPollScheduler scheduler;
+    private final MFPollPolicy policy;
+    private final long interval;
+    private final ConcurrentMap<String, Tracked> tracked = new ConcurrentHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // only touched by sweeps, which never overlap
+    private int failedSweeps;
+
+    /**
+     * @param mediaFire
+     * @param callback
+     * @param statusToFinish
+     * @param scheduler
+     * @param policy gives each upload its deadline and learns how long uploads take
+     * @param interval milliseconds between sweeps
+     */
+    MFWebUploadSweep(MediaFireClient mediaFire, OnGetWebUploadStatusListener callback, int statusToFinish, MFPollScheduler scheduler, MFPollPolicy policy, long interval) {
+        this.mediaFire = mediaFire;
+        this.callback = callback;
+        this.statusToFinish = statusToFinish;
+        this.scheduler = scheduler;
+        this.policy = policy;
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * includes the upload in the following sweeps
+     * @param upload
+     * @param uploadKey returned by upload/add_web_upload
+     */
+    void track(MediaFireWebUpload upload, String uploadKey) {
+        this.tracked.put(uploadKey, new Tracked(upload, this.policy.getDeadline(0)));
+        scheduleNext();
+    }
+
+    /**
+     * stops tracking the upload, e.g. once cancelled
+     * @param upload
+     */
+    void untrack(MediaFireWebUpload upload) {
+        for (Iterator<Tracked> iterator = this.tracked.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().upload == upload) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return number of web uploads the sweep is following
+     */
+    int getTrackedCount() {
+        return this.tracked.size();
+    }
+
+    @Override
+    public void run() {
+        if (!this.tracked.isEmpty()) {
+            sweep();
+        }
+        // uploads tracked during the sweep found it scheduled, look again
+        this.scheduled.set(false);
+        if (!this.tracked.isEmpty()) {
+            scheduleNext();
+        }
+    }
+
+    private void sweep() {
+        LinkedHashMap<String, Object> params = new LinkedHashMap<>();
+        params.put(PARAM_ALL_WEB_UPLOADS, "yes");
+
+        MediaFireApiRequest request = new MFApiRequest("/upload/get_web_uploads.php", params, null, null);
+        UploadGetWebUploadsResponse response;
+        try {
+            response = this.mediaFire.sessionRequest(request, UploadGetWebUploadsResponse.class);
+        } catch (MediaFireException e) {
+            onFailed(e);
+            return;
+        }
+        if (response.hasError()) {
+            onFailed(new MediaFireException("upload/get_web_uploads failed: " + response.getMessage()));
+            return;
+        }
+        this.failedSweeps = 0;
+
+        long now = System.currentTimeMillis();
+        if (response.getWebUploads() != null) {
+            for (WebUploadsModel webUpload : response.getWebUploads()) {
+                if (webUpload == null || webUpload.getUploadKey() == null) {
+                    continue;
+                }
+                Tracked tracked = this.tracked.get(webUpload.getUploadKey());
+                if (tracked != null && update(webUpload, tracked, now)) {
+                    this.tracked.remove(webUpload.getUploadKey(), tracked);
+                }
+            }
+        }
+
+        expire(now);
+    }
+
+    /**
+     * tries again next sweep until too many sweeps in a row failed, then fails every tracked upload
+     * @param e
+     */
+    private void onFailed(MediaFireException e) {
+        if (++this.failedSweeps < MAX_FAILED_SWEEPS) {
+            expire(System.currentTimeMillis());
+            return;
+        }
+        this.failedSweeps = 0;
+        List<MediaFireWebUpload> failed = new ArrayList<>();
+        for (Iterator<Tracked> iterator = this.tracked.values().iterator(); iterator.hasNext(); ) {
+            failed.add(iterator.next().upload);
+            iterator.remove();
+        }
+        if (this.callback != null) {
+            for (MediaFireWebUpload upload : failed) {
+                this.callback.onGetWebUploadsSdkException(upload, e);
+            }
+        }
+    }
+
+    private void expire(long now) {
+        List<MediaFireWebUpload> expired = new ArrayList<>();
+        for (Iterator<Map.Entry<String, Tracked>> iterator = this.tracked.entrySet().iterator(); iterator.hasNext(); ) {
+            Tracked tracked = iterator.next().getValue();
+            if (now >= tracked.deadline) {
+                iterator.remove();
+                expired.add(tracked.upload);
+            }
+        }
+        if (this.callback != null) {
+            for (MediaFireWebUpload upload : expired) {
+                this.callback.onGetWebUploadsLimitExceeded(upload);
+            }
+        }
+    }
+
+    /**
+     * @return true if the upload is done, finished or failed
+     */
+    private boolean update(WebUploadsModel webUpload, Tracked tracked, long now) {
+        int statusCode = webUpload.getStatusCode();
+        String quickKey = webUpload.getQuickKey();
+
+        if (webUpload.getSize() > 0 && tracked.fileSize == 0) {
+            // the size is only known once the server starts fetching the url
+            tracked.fileSize = webUpload.getSize();
+            tracked.deadline = tracked.readyTime + this.policy.getDeadline(tracked.fileSize);
+        }
+
+        if (!TextUtils.isEmpty(quickKey) || statusCode >= this.statusToFinish) {
+            this.policy.onFinished(tracked.fileSize, now - tracked.readyTime);
+            if (this.callback != null) {
+                this.callback.onGetWebUploadsFinished(tracked.upload, quickKey, webUpload.getFilename());
+            }
+            return true;
+        }
+
+        if (webUpload.getErrorStatus() != 0) {
+            if (this.callback != null) {
+                this.callback.onGetWebUploadsError(tracked.upload, statusCode, webUpload.getErrorStatus(), webUpload.getStatus());
+            }
+            return true;
+        }
+
+        if (statusCode != tracked.lastStatusCode) {
+            tracked.lastStatusCode = statusCode;
+            if (this.callback != null) {
+                this.callback.onGetWebUploadsProgress(tracked.upload, statusCode, webUpload.getStatus());
+            }
+        }
+        return false;
+    }
+
+    private void scheduleNext() {
+        if (this.scheduled.compareAndSet(false, true)) {
+            this.scheduler.schedule(this, this.interval);
+        }
+    }
+
+    @Override
+    public int getPriority() {
+        return MFUploader.PRIORITY_NORMAL;
+    }
+
+    @Override
+    public void cancel() {
+        // runs for as long as the uploader, uploads leave it through untrack()
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public void onRejected(RejectedExecutionException e) {
+        this.scheduled.set(false);
+        List<Tracked> dropped = new ArrayList<>(this.tracked.values());
+        this.tracked.clear();
+        if (this.callback != null) {
+            for (Tracked tracked : dropped) {
+                InterruptedException interruptedException = new InterruptedException("poll could not be scheduled");
+                interruptedException.initCause(e);
+                this.callback.onGetWebUploadsInterrupted(tracked.upload, interruptedException);
+            }
+        }
+    }
+
+    private static final class Tracked {
+        private final MediaFireWebUpload upload;
+        private final long readyTime;
+        private long deadline;
+        private long fileSize;
+        private int lastStatusCode = -1;
+
+        Tracked(MediaFireWebUpload upload, long timeout) {
+            this.upload = upload;
+            this.readyTime = System.currentTimeMillis();
+            this.deadline = this.readyTime + timeout;
+        }
+    }
+}
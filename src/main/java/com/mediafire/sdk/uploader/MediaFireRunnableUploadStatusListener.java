@@ -5,5 +5,6 @@ public interface MediaFireRunnableUploadStatusListener extends
         MFRunnableCheckUpload.OnCheckUploadStatusListener,
         MFRunnableGetWebUpload.OnGetWebUploadStatusListener,
         MFRunnableInstantUpload.OnInstantUploadStatusListener,
-        MFRunnableResumableUpload.OnResumableUploadStatusListener {
+        MFRunnableResumableUpload.OnResumableUploadStatusListener,
+        MFRunnableSimpleUpload.OnSimpleUploadStatusListener {
 }
@@ -0,0 +1,11 @@
+package com.mediafire.sdk.uploader;
+
+/**
+ * Implemented by a MediaFireUploadStore which wants to know when an upload is cancelled through its
+ * MediaFireUploadHandle. Stores which do not implement it get no call for the cancelled upload.
+ */
+public interface MediaFireUploadCancelListener {
+    void uploadCancelled(MediaFireWebUpload upload);
+
+    void uploadCancelled(MediaFireFileUpload upload);
+}
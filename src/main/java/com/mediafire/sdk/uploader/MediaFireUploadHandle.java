@@ -0,0 +1,25 @@
+package com.mediafire.sdk.uploader;
+
+/**
+ * Returned when an upload is scheduled, used to cancel it or limit its bandwidth.
+ */
+public interface MediaFireUploadHandle {
+    MediaFireUpload getUpload();
+
+    /**
+     * stops the upload wherever it is: queued work is dropped, a unit being sent is aborted between chunks and a
+     * waiting status poll is removed from the timer. a store which is a MediaFireUploadCancelListener is told the
+     * upload was cancelled.
+     * @return false if the upload had already ended or been cancelled
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+
+    /**
+     * limits how fast this upload's data is sent, on top of any limit on the http requester. takes effect from the
+     * next chunk written.
+     * @param bytesPerSecond 0 for no limit
+     */
+    void setBandwidthLimit(long bytesPerSecond);
+}
@@ -0,0 +1,117 @@
+package com.mediafire.sdk.uploader;
+
+import java.util.BitSet;
+
+/**
+ * Durable record of file upload progress. MFUploader writes every state transition of a file upload to the journal
+ * so an upload interrupted by a restart can continue where it left off instead of rehashing and re-sending the file.
+ * Entries are keyed by the identity of the local file (path, size, last modified) and the upload target.
+ */
+public interface MediaFireUploadJournal {
+
+    /**
+     * gets the recorded state of an upload
+     * @param upload
+     * @return null if nothing is recorded for the upload or the file has changed since
+     */
+    Entry get(MediaFireFileUpload upload);
+
+    /**
+     * records the SHA-256 hash of the file
+     * @param upload
+     * @param sha256Hash
+     */
+    void hashed(MediaFireFileUpload upload, String sha256Hash);
+
+    /**
+     * records the unit layout of a resumable upload
+     * @param upload
+     * @param numberOfUnits
+     * @param unitSize
+     */
+    void resumableStarted(MediaFireFileUpload upload, int numberOfUnits, int unitSize);
+
+    /**
+     * records a unit that the server accepted
+     * @param upload
+     * @param unitId
+     * @param unitHash
+     */
+    void unitUploaded(MediaFireFileUpload upload, int unitId, String unitHash);
+
+    /**
+     * records the upload key once all units are on the server and the upload only needs polling
+     * @param upload
+     * @param uploadKey
+     */
+    void readyToPoll(MediaFireFileUpload upload, String uploadKey);
+
+    /**
+     * removes the entry for an upload that finished or can no longer be resumed
+     * @param upload
+     */
+    void remove(MediaFireFileUpload upload);
+
+    class Entry {
+        private final String sha256Hash;
+        private final int numberOfUnits;
+        private final int unitSize;
+        private final BitSet uploadedUnits;
+        private final String[] unitHashes;
+        private final String uploadKey;
+
+        public Entry(String sha256Hash, int numberOfUnits, int unitSize, BitSet uploadedUnits, String[] unitHashes, String uploadKey) {
+            this.sha256Hash = sha256Hash;
+            this.numberOfUnits = numberOfUnits;
+            this.unitSize = unitSize;
+            this.uploadedUnits = uploadedUnits;
+            this.unitHashes = unitHashes;
+            this.uploadKey = uploadKey;
+        }
+
+        public String getSha256Hash() {
+            return sha256Hash;
+        }
+
+        /**
+         * @return 0 if the resumable upload has not started
+         */
+        public int getNumberOfUnits() {
+            return numberOfUnits;
+        }
+
+        public int getUnitSize() {
+            return unitSize;
+        }
+
+        public BitSet getUploadedUnits() {
+            return (BitSet) uploadedUnits.clone();
+        }
+
+        /**
+         * @param unitId
+         * @return null if the unit has not been uploaded
+         */
+        public String getUnitHash(int unitId) {
+            return unitHashes == null || unitId < 0 || unitId >= unitHashes.length ? null : unitHashes[unitId];
+        }
+
+        /**
+         * @return null if the upload is not ready to poll
+         */
+        public String getUploadKey() {
+            return uploadKey;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "sha256Hash='" + sha256Hash + '\'' +
+                    ", numberOfUnits=" + numberOfUnits +
+                    ", unitSize=" + unitSize +
+                    ", uploadedUnits=" + uploadedUnits.cardinality() +
+                    ", uploadKey='" + uploadKey + '\'' +
+                    '}';
+        }
+    }
+}
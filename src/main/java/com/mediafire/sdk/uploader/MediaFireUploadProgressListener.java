@@ -0,0 +1,11 @@
+package com.mediafire.sdk.uploader;
+
+public interface MediaFireUploadProgressListener {
+    /**
+     * called at a bounded rate while a file upload is sending data, from the uploader's progress thread
+     * @param upload
+     * @param bytesSent bytes of the file on the server or sent so far
+     * @param totalBytes size of the file
+     */
+    void onUploadProgress(MediaFireFileUpload upload, long bytesSent, long totalBytes);
+}
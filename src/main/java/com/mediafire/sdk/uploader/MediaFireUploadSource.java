@@ -0,0 +1,29 @@
+package com.mediafire.sdk.uploader;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Data of a file upload which is not in a local file, e.g. arriving from the network or generated in process. The
+ * uploader opens it once. upload/check needs the size and SHA-256 hash before any data is sent, so if both are known
+ * up front the units are sent as the data is read; otherwise the data is spooled once, in memory up to the uploader's
+ * spool threshold and to a temporary file beyond it, while its size and hash are computed.
+ */
+public interface MediaFireUploadSource {
+    /**
+     * @return size in bytes, -1 if not known until the data has been read
+     */
+    long getSize();
+
+    /**
+     * @return SHA-256 hash of the data, null if not known until the data has been read
+     */
+    String getSha256Hash();
+
+    /**
+     * opens the data, called at most once. the uploader closes the channel.
+     * @return
+     * @throws IOException
+     */
+    ReadableByteChannel open() throws IOException;
+}
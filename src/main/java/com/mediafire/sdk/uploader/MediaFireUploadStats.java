@@ -0,0 +1,53 @@
+package com.mediafire.sdk.uploader;
+
+/**
+ * Live figures across all uploads of an uploader. Every getter reads atomics maintained as uploads progress, so it
+ * can be called from any thread as often as needed without taking a lock or slowing uploads down.
+ */
+public interface MediaFireUploadStats {
+
+    /**
+     * where an upload in progress is
+     */
+    enum Stage {
+        /** admitted and waiting to start */
+        QUEUED,
+        /** asking upload/check what to send */
+        CHECKING,
+        /** hashing the file before upload/check */
+        HASHING,
+        /** sending data, or asking the server to copy it for instant and web uploads */
+        TRANSFERRING,
+        /** waiting for the server to finish processing */
+        POLLING
+    }
+
+    /**
+     * @return exponentially weighted moving average of the bytes per second sent by all uploads
+     */
+    double getThroughput();
+
+    /**
+     * @return bytes of file uploads in progress not yet on the server
+     */
+    long getBytesRemaining();
+
+    /**
+     * @return milliseconds until every file upload in progress has sent its data at the current throughput, 0 if
+     * none has data left, -1 if nothing has been sent recently to estimate from
+     */
+    long getEstimatedTimeRemaining();
+
+    /**
+     * @param upload
+     * @return milliseconds until the upload has sent its data at its own recent throughput, 0 if it has no data
+     * left, -1 if it is not in progress or has not sent anything recently
+     */
+    long getEstimatedTimeRemaining(MediaFireUpload upload);
+
+    /**
+     * @param stage
+     * @return number of uploads in the stage
+     */
+    int getUploadCount(Stage stage);
+}
@@ -0,0 +1,50 @@
+package com.mediafire.sdk;
+
+import com.google.gson.Gson;
+import com.mediafire.sdk.response_models.data_models.UserSettingsModel;
+import junit.framework.TestCase;
+
+public class MFBandwidthLimiterTest extends TestCase {
+
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testUnlimitedNeverWaits() throws Exception {
+        MFBandwidthLimiter limiter = new MFBandwidthLimiter(MFBandwidthLimiter.UNLIMITED);
+        long start = System.nanoTime();
+        limiter.acquire(1024L * 1024 * 1024);
+        assertTrue(System.nanoTime() - start < 50 * 1000000L);
+    }
+
+    public void testDebtIsSleptOff() throws Exception {
+        MFBandwidthLimiter limiter = new MFBandwidthLimiter(10000);
+        // the first second's worth is a burst
+        limiter.acquire(10000);
+        long start = System.nanoTime();
+        limiter.acquire(2000);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000L;
+        assertTrue(elapsedMillis >= 150);
+        assertTrue(elapsedMillis < 1000);
+    }
+
+    public void testRateChangesAtRuntime() throws Exception {
+        MFBandwidthLimiter limiter = new MFBandwidthLimiter(1000);
+        limiter.setRate(MFBandwidthLimiter.UNLIMITED);
+        assertEquals(MFBandwidthLimiter.UNLIMITED, limiter.getRate());
+        long start = System.nanoTime();
+        limiter.acquire(100000);
+        assertTrue(System.nanoTime() - start < 50 * 1000000L);
+    }
+
+    public void testAutoBandwidthRate() throws Exception {
+        UserSettingsModel enabled = new Gson().fromJson("{\"auto_bandwidth\":{\"enabled\":true}}", UserSettingsModel.class);
+        UserSettingsModel disabled = new Gson().fromJson("{}", UserSettingsModel.class);
+        assertEquals(500, MFBandwidthLimiter.getAutoBandwidthRate(enabled, 500));
+        assertEquals(MFBandwidthLimiter.UNLIMITED, MFBandwidthLimiter.getAutoBandwidthRate(disabled, 500));
+    }
+}
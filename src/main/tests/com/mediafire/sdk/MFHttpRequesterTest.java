@@ -0,0 +1,227 @@
+package com.mediafire.sdk;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MFHttpRequesterTest extends TestCase {
+
+    private static final byte[] PAYLOAD = "unit of file data".getBytes();
+    private static final int READ_TIMEOUT = 1000;
+
+    private ServerSocket serverSocket;
+    private List<Exchange> exchanges;
+    private Thread server;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        serverSocket = new ServerSocket(0);
+        exchanges = Collections.synchronizedList(new ArrayList<Exchange>());
+    }
+
+    public void tearDown() throws Exception {
+        serverSocket.close();
+        if (server != null) {
+            server.join(5000);
+        }
+    }
+
+    public void testPayloadSentAfterContinue() throws Exception {
+        serve(Answer.CONTINUE);
+        MFHttpRequester requester = new MFHttpRequester(null, READ_TIMEOUT, READ_TIMEOUT, null, null, true);
+
+        MediaFireHttpResponse response = requester.post(request());
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals("ok", new String(response.getBody()));
+        assertEquals(1, exchanges.size());
+        assertTrue(exchanges.get(0).expect);
+        assertEquals(new String(PAYLOAD), new String(exchanges.get(0).body));
+    }
+
+    public void testExpectationFailedFallsBack() throws Exception {
+        serve(Answer.EXPECTATION_FAILED, Answer.OK, Answer.OK);
+        MFHttpRequester requester = new MFHttpRequester(null, READ_TIMEOUT, READ_TIMEOUT, null, null, true);
+
+        MediaFireHttpResponse response = requester.post(request());
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(2, exchanges.size());
+        assertTrue(exchanges.get(0).expect);
+        assertEquals(0, exchanges.get(0).body.length);
+        assertFalse(exchanges.get(1).expect);
+        assertEquals(new String(PAYLOAD), new String(exchanges.get(1).body));
+
+        // the host is remembered, the next request goes straight to the payload
+        assertEquals(200, requester.post(request()).getStatusCode());
+        assertEquals(3, exchanges.size());
+        assertFalse(exchanges.get(2).expect);
+    }
+
+    public void testRefusalIsReturnedWithItsBody() throws Exception {
+        serve(Answer.UNAUTHORIZED, Answer.UNAUTHORIZED);
+        MFHttpRequester requester = new MFHttpRequester(null, READ_TIMEOUT, READ_TIMEOUT, null, null, true);
+
+        MediaFireHttpResponse response = requester.post(request());
+
+        assertEquals(401, response.getStatusCode());
+        assertEquals("expired", new String(response.getBody()));
+        // HttpURLConnection drops the early refusal's body, it is asked for again with the payload
+        assertEquals(2, exchanges.size());
+        assertEquals(0, exchanges.get(0).body.length);
+        assertFalse(exchanges.get(1).expect);
+    }
+
+    public void testSilentServerFallsBackAfterReadTimeout() throws Exception {
+        serve(Answer.SILENT, Answer.OK);
+        MFHttpRequester requester = new MFHttpRequester(null, READ_TIMEOUT, READ_TIMEOUT, null, null, true);
+
+        long start = System.currentTimeMillis();
+        MediaFireHttpResponse response = requester.post(request());
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(200, response.getStatusCode());
+        assertTrue(elapsed >= READ_TIMEOUT);
+        assertEquals(2, exchanges.size());
+        assertTrue(exchanges.get(0).expect);
+        assertFalse(exchanges.get(1).expect);
+        assertEquals(new String(PAYLOAD), new String(exchanges.get(1).body));
+    }
+
+    public void testExpectationOffByDefault() throws Exception {
+        serve(Answer.OK);
+        MFHttpRequester requester = new MFHttpRequester(null, READ_TIMEOUT, READ_TIMEOUT);
+        Map<String, Object> headers = new LinkedHashMap<>();
+        headers.put("Expect", "100-continue");
+
+        MediaFireHttpResponse response = requester.post(new MFHttpRequest(url(), PAYLOAD, headers));
+
+        assertEquals(200, response.getStatusCode());
+        assertEquals(1, exchanges.size());
+        assertFalse(exchanges.get(0).expect);
+        assertEquals(new String(PAYLOAD), new String(exchanges.get(0).body));
+    }
+
+    private MediaFireHttpRequest request() {
+        return new MFHttpRequest(url(), PAYLOAD, new LinkedHashMap<String, Object>());
+    }
+
+    private String url() {
+        return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/api/upload/resumable.php";
+    }
+
+    /**
+     * answers one connection per answer, in order
+     */
+    private void serve(final Answer... answers) {
+        server = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (Answer answer : answers) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        try {
+                            answer(socket, answer, exchanges);
+                        } finally {
+                            socket.close();
+                        }
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * records the exchange before answering so the client never sees the answer first
+     */
+    private static void answer(Socket socket, Answer answer, List<Exchange> exchanges) throws IOException {
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+        Exchange exchange = new Exchange();
+        int contentLength = 0;
+        for (String line = readLine(in); line != null && !line.isEmpty(); line = readLine(in)) {
+            String lower = line.toLowerCase();
+            if (lower.startsWith("expect:") && lower.contains("100-continue")) {
+                exchange.expect = true;
+            } else if (lower.startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring(line.indexOf(':') + 1).trim());
+            }
+        }
+
+        switch (answer) {
+            case SILENT:
+                // neither accepts nor refuses, until the client gives up
+                exchange.body = new byte[0];
+                exchanges.add(exchange);
+                readBody(in, 1);
+                return;
+            case EXPECTATION_FAILED:
+                exchange.body = new byte[0];
+                exchanges.add(exchange);
+                out.write("HTTP/1.1 417 Expectation Failed\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes());
+                out.flush();
+                return;
+            case UNAUTHORIZED:
+                exchange.body = exchange.expect ? new byte[0] : readBody(in, contentLength);
+                exchanges.add(exchange);
+                out.write("HTTP/1.1 401 Unauthorized\r\nContent-Length: 7\r\nConnection: close\r\n\r\nexpired".getBytes());
+                out.flush();
+                return;
+            case CONTINUE:
+                out.write("HTTP/1.1 100 Continue\r\n\r\n".getBytes());
+                out.flush();
+                // fall through
+            case OK:
+            default:
+                exchange.body = readBody(in, contentLength);
+                exchanges.add(exchange);
+                out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: close\r\n\r\nok".getBytes());
+                out.flush();
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return c == -1 && line.length() == 0 ? null : line.toString();
+    }
+
+    private static byte[] readBody(InputStream in, int length) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (int i = 0; i < length; i++) {
+            int c = in.read();
+            if (c == -1) {
+                break;
+            }
+            body.write(c);
+        }
+        return body.toByteArray();
+    }
+
+    private enum Answer {
+        CONTINUE, OK, EXPECTATION_FAILED, UNAUTHORIZED, SILENT
+    }
+
+    private static final class Exchange {
+        private boolean expect;
+        private byte[] body;
+    }
+}
@@ -0,0 +1,156 @@
+package com.mediafire.sdk.uploader;
+
+import com.google.gson.Gson;
+import com.mediafire.sdk.MFHasher;
+import com.mediafire.sdk.MediaFireApiRequest;
+import com.mediafire.sdk.MediaFireApiResponseParser;
+import com.mediafire.sdk.MediaFireClient;
+import com.mediafire.sdk.MediaFireCredentialsStore;
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.MediaFireHasher;
+import com.mediafire.sdk.MediaFireHttpRequester;
+import com.mediafire.sdk.MediaFireHttpResponse;
+import com.mediafire.sdk.MediaFireSessionStore;
+import com.mediafire.sdk.MediaFireSessionToken;
+import com.mediafire.sdk.response_models.MediaFireApiResponse;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * answers api requests with canned json by path, and throws for any path without an answer
+ */
+class FakeMediaFireClient implements MediaFireClient {
+    private final Map<String, Answer> responses = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Object>> requests = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+    private final MediaFireHasher hasher = new MFHasher();
+
+    /**
+     * @param path
+     * @param json answer to requests for the path, null to fail them
+     */
+    void respond(String path, final String json) {
+        if (json == null) {
+            responses.remove(path);
+        } else {
+            respond(path, new Answer() {
+                @Override
+                public String json(MediaFireApiRequest request) {
+                    return json;
+                }
+            });
+        }
+    }
+
+    /**
+     * @param path
+     * @param answer gives the json for each request, null to fail it
+     */
+    void respond(String path, Answer answer) {
+        responses.put(path, answer);
+    }
+
+    /**
+     * @return number of requests made for the path
+     */
+    int requestCount(String path) {
+        AtomicInteger count = counts.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    boolean requested(String path) {
+        return requests.containsKey(path);
+    }
+
+    /**
+     * @return the parameter as sent by the last request for the path
+     */
+    Object parameter(String path, String name) {
+        return requests.get(path).get(name);
+    }
+
+    @Override
+    public <T extends MediaFireApiResponse> T sessionRequest(MediaFireApiRequest request, Class<T> classOfT) throws MediaFireException {
+        requests.put(request.getPath(), request.getQueryParameters());
+        counts.putIfAbsent(request.getPath(), new AtomicInteger());
+        counts.get(request.getPath()).incrementAndGet();
+        Answer answer = responses.get(request.getPath());
+        String json = answer == null ? null : answer.json(request);
+        if (json == null) {
+            throw new MediaFireException("unexpected request " + request.getPath());
+        }
+        return new Gson().fromJson(json, classOfT);
+    }
+
+    @Override
+    public <T extends MediaFireApiResponse> T noAuthRequest(MediaFireApiRequest request, Class<T> classOfT) throws MediaFireException {
+        return sessionRequest(request, classOfT);
+    }
+
+    @Override
+    public <T extends MediaFireApiResponse> T uploadRequest(MediaFireApiRequest request, Class<T> classOfT) throws MediaFireException {
+        return sessionRequest(request, classOfT);
+    }
+
+    @Override
+    public MediaFireHttpResponse conversionServerRequest(String hash, Map<String, Object> requestParameters) throws MediaFireException {
+        throw new MediaFireException("not supported");
+    }
+
+    @Override
+    public <T extends MediaFireApiResponse> T authenticationRequest(Class<T> classOfT) throws MediaFireException {
+        throw new MediaFireException("not supported");
+    }
+
+    @Override
+    public MediaFireHttpRequester getHttpRequester() {
+        return null;
+    }
+
+    @Override
+    public MediaFireSessionStore getSessionStore() {
+        return null;
+    }
+
+    @Override
+    public MediaFireCredentialsStore getCredentialStore() {
+        return null;
+    }
+
+    @Override
+    public MediaFireHasher getHasher() {
+        return hasher;
+    }
+
+    @Override
+    public MediaFireApiResponseParser getResponseParser() {
+        return null;
+    }
+
+    @Override
+    public String getApplicationId() {
+        return null;
+    }
+
+    @Override
+    public String getApiKey() {
+        return null;
+    }
+
+    @Override
+    public String getApiVersion() {
+        return null;
+    }
+
+    @Override
+    public String getSessionSignature(MediaFireSessionToken token, String uri, Map<String, Object> query) throws MediaFireException {
+        return null;
+    }
+
+    interface Answer {
+        String json(MediaFireApiRequest request);
+    }
+}
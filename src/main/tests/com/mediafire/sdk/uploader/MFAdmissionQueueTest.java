@@ -0,0 +1,207 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+public class MFAdmissionQueueTest extends TestCase {
+
+    private List<String> events;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        events = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testTryAdmitRejectsWhenFull() throws Exception {
+        MFAdmissionQueue queue = new MFAdmissionQueue(1, 1);
+        assertTrue(queue.tryAdmit(0, record("admit a"), record("start a")));
+        assertTrue(queue.tryAdmit(0, record("admit b"), record("start b")));
+        assertFalse(queue.tryAdmit(0, record("admit c"), record("start c")));
+
+        assertEquals(1, queue.getActiveCount());
+        assertEquals(1, queue.getPendingCount());
+        assertEquals(3, events.size());
+        assertFalse(events.contains("admit c"));
+    }
+
+    public void testPendingStartsInPriorityOrder() throws Exception {
+        MFAdmissionQueue queue = new MFAdmissionQueue(1, 2);
+        queue.tryAdmit(0, record("admit a"), record("start a"));
+        queue.tryAdmit(0, record("admit low"), record("start low"));
+        queue.tryAdmit(10, record("admit high"), record("start high"));
+        events.clear();
+
+        queue.onEnded();
+        assertEquals(Collections.singletonList("start high"), events);
+        queue.onEnded();
+        assertEquals("start low", events.get(1));
+    }
+
+    public void testAsyncCompletesWhenAdmitted() throws Exception {
+        MFAdmissionQueue queue = new MFAdmissionQueue(1, 0);
+        queue.tryAdmit(0, record("admit a"), record("start a"));
+
+        FutureTask<String> future = new FutureTask<>(record("admit b"), "b");
+        queue.admitAsync(0, future, record("start b"));
+        assertFalse(future.isDone());
+        assertEquals(1, queue.getWaitingCount());
+
+        queue.onEnded();
+        assertEquals("b", future.get(1, TimeUnit.SECONDS));
+        assertTrue(events.contains("start b"));
+        assertEquals(0, queue.getWaitingCount());
+    }
+
+    public void testCancelledAsyncIsSkipped() throws Exception {
+        MFAdmissionQueue queue = new MFAdmissionQueue(1, 0);
+        queue.tryAdmit(0, record("admit a"), record("start a"));
+
+        FutureTask<String> future = new FutureTask<>(record("admit b"), "b");
+        queue.admitAsync(0, future, record("start b"));
+        future.cancel(false);
+
+        queue.onEnded();
+        assertFalse(events.contains("start b"));
+        assertEquals(0, queue.getActiveCount());
+    }
+
+    public void testAdmitBlocksUntilRoom() throws Exception {
+        final MFAdmissionQueue queue = new MFAdmissionQueue(1, 0);
+        queue.tryAdmit(0, record("admit a"), record("start a"));
+
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.admit(0, record("admit b"), record("start b"));
+            }
+        });
+        thread.start();
+        thread.join(200);
+        assertTrue(thread.isAlive());
+
+        queue.onEnded();
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertTrue(events.contains("start b"));
+    }
+
+    public void testPendingNotStartedBeforeAdmittedCallback() throws Exception {
+        final MFAdmissionQueue queue = new MFAdmissionQueue(1, 1);
+        queue.tryAdmit(0, record("admit a"), record("start a"));
+
+        final CountDownLatch inAdmitted = new CountDownLatch(1);
+        final CountDownLatch finishAdmitted = new CountDownLatch(1);
+        Thread scheduling = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.admit(0, new Runnable() {
+                    @Override
+                    public void run() {
+                        inAdmitted.countDown();
+                        try {
+                            finishAdmitted.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        events.add("admit b");
+                    }
+                }, record("start b"));
+            }
+        });
+        scheduling.start();
+        assertTrue(inAdmitted.await(1, TimeUnit.SECONDS));
+
+        try {
+            // a ends while b's admitted callback is still running
+            queue.onEnded();
+            assertFalse(events.contains("start b"));
+            assertEquals(1, queue.getPendingCount());
+        } finally {
+            finishAdmitted.countDown();
+        }
+        scheduling.join(1000);
+        assertTrue(events.indexOf("admit b") < events.indexOf("start b"));
+        assertEquals(1, queue.getActiveCount());
+        assertEquals(0, queue.getPendingCount());
+    }
+
+    public void testByteBudgetWaitsForRelease() throws Exception {
+        MFByteBudget budget = new MFByteBudget(100);
+        assertTrue(budget.tryAcquire(60, 0, TimeUnit.MILLISECONDS));
+        assertFalse(budget.tryAcquire(60, 10, TimeUnit.MILLISECONDS));
+        budget.release(60);
+        // larger than the whole budget, reduced to it
+        assertTrue(budget.tryAcquire(500, 0, TimeUnit.MILLISECONDS));
+        assertEquals(0, budget.getAvailable());
+        budget.release(500);
+        assertEquals(100, budget.getAvailable());
+    }
+
+    public void testByteBudgetAcquireWaitsUntilReleased() throws Exception {
+        final MFByteBudget budget = new MFByteBudget(100);
+        budget.acquire(80);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    budget.acquire(50);
+                    events.add("acquired");
+                } catch (InterruptedException e) {
+                    events.add("interrupted");
+                }
+            }
+        });
+        thread.start();
+        thread.join(100);
+        assertTrue(thread.isAlive());
+        assertEquals(20, budget.getAvailable());
+
+        budget.release(80);
+        thread.join(1000);
+        assertFalse(thread.isAlive());
+        assertTrue(events.contains("acquired"));
+        assertEquals(50, budget.getAvailable());
+    }
+
+    public void testByteBudgetAcquireInterruptedTakesNothing() throws Exception {
+        final MFByteBudget budget = new MFByteBudget(100);
+        budget.acquire(100);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    budget.acquire(50);
+                    events.add("acquired");
+                } catch (InterruptedException e) {
+                    events.add("interrupted");
+                }
+            }
+        });
+        thread.start();
+        thread.join(100);
+        thread.interrupt();
+        thread.join(1000);
+        assertTrue(events.contains("interrupted"));
+        budget.release(100);
+        assertEquals(100, budget.getAvailable());
+    }
+
+    private Runnable record(final String event) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                events.add(event);
+            }
+        };
+    }
+}
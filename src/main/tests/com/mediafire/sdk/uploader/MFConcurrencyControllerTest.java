@@ -0,0 +1,83 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class MFConcurrencyControllerTest extends TestCase {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    public void setUp() throws Exception {
+        super.setUp();
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testGrowsWhileThroughputImproves() throws Exception {
+        MFConcurrencyController controller = new MFConcurrencyController(1, 1, 8, 0);
+        controller.onUnitSent(1000, 10 * MILLIS);
+        assertEquals(2, controller.getLimit());
+
+        controller.onUnitSent(100000000, 10 * MILLIS);
+        controller.onUnitSent(100000000, 10 * MILLIS);
+        assertEquals(3, controller.getLimit());
+    }
+
+    public void testFailureHalvesLimit() throws Exception {
+        MFConcurrencyController controller = new MFConcurrencyController(8, 1, 8, 0);
+        controller.onUnitFailed();
+        assertEquals(4, controller.getLimit());
+        controller.onUnitFailed();
+        controller.onUnitFailed();
+        assertEquals(1, controller.getLimit());
+        controller.onUnitFailed();
+        assertEquals(1, controller.getLimit());
+    }
+
+    public void testLatencySpikeHalvesLimit() throws Exception {
+        MFConcurrencyController controller = new MFConcurrencyController(8, 1, 8, 0);
+        controller.onUnitSent(1000, 10 * MILLIS);
+        assertEquals(8, controller.getLimit());
+        controller.onUnitSent(1000, 100 * MILLIS);
+        assertEquals(4, controller.getLimit());
+    }
+
+    public void testSeedFromProbe() throws Exception {
+        assertEquals(1, MFConcurrencyController.getSeedLimit(10 * MILLIS, 100 * MILLIS));
+        assertEquals(2, MFConcurrencyController.getSeedLimit(50 * MILLIS, 100 * MILLIS));
+        assertEquals(10, MFConcurrencyController.getSeedLimit(500 * MILLIS, 100 * MILLIS));
+
+        MFConcurrencyController controller = new MFConcurrencyController(1, 1, 3, 0);
+        controller.setProbeRtt(75 * MILLIS);
+        controller.onUnitSent(1000, 100 * MILLIS);
+        assertEquals(3, controller.getLimit());
+    }
+
+    public void testAcquireWaitsForRelease() throws Exception {
+        final MFConcurrencyController controller = new MFConcurrencyController(1, 1, 4, 0);
+        controller.acquire();
+
+        final CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    controller.acquire();
+                    acquired.countDown();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        });
+        waiter.start();
+
+        assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+        controller.release();
+        assertTrue(acquired.await(5, TimeUnit.SECONDS));
+        assertEquals(1, controller.getInFlight());
+        waiter.join();
+    }
+}
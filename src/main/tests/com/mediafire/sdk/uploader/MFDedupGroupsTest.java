@@ -0,0 +1,70 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.List;
+
+public class MFDedupGroupsTest extends TestCase {
+
+    private MFDedupGroups groups;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        groups = new MFDedupGroups();
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testFirstUploadLeads() throws Exception {
+        MFFileUpload first = upload("a.jpg");
+        MFFileUpload second = upload("b.jpg");
+        MFFileUpload other = upload("c.jpg");
+        assertTrue(groups.join("hash1", first));
+        assertFalse(groups.join("hash1", second));
+        assertTrue(groups.join("hash2", other));
+        assertEquals(1, groups.getFollowerCount());
+    }
+
+    public void testFollowersReleasedWhenLeaderEnds() throws Exception {
+        MFFileUpload leader = upload("a.jpg");
+        MFFileUpload follower = upload("b.jpg");
+        groups.join("hash1", leader);
+        groups.join("hash1", follower);
+
+        assertEquals("hash1", groups.getLeaderHash(leader));
+        assertTrue(groups.leaderEnded(follower).isEmpty());
+        List<MediaFireFileUpload> released = groups.leaderEnded(leader);
+        assertEquals(1, released.size());
+        assertSame(follower, released.get(0));
+
+        // the next upload of the content leads a new group
+        assertTrue(groups.join("hash1", follower));
+    }
+
+    public void testFollowerWhichLeavesIsNotReleased() throws Exception {
+        MFFileUpload leader = upload("a.jpg");
+        MFFileUpload cancelled = upload("b.jpg");
+        MFFileUpload waiting = upload("c.jpg");
+        groups.join("hash1", leader);
+        groups.join("hash1", cancelled);
+        groups.join("hash1", waiting);
+
+        groups.leave(cancelled);
+        // leaving twice, or without being a follower, does nothing
+        groups.leave(cancelled);
+        groups.leave(leader);
+        assertEquals(1, groups.getFollowerCount());
+        assertEquals("hash1", groups.getLeaderHash(leader));
+
+        List<MediaFireFileUpload> released = groups.leaderEnded(leader);
+        assertEquals(1, released.size());
+        assertSame(waiting, released.get(0));
+    }
+
+    private static MFFileUpload upload(String name) {
+        return new MFFileUpload.Builder(new File(name), name).build();
+    }
+}
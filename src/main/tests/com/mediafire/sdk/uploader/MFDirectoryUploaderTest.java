@@ -0,0 +1,194 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireApiRequest;
+import com.mediafire.sdk.MediaFireException;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MFDirectoryUploaderTest extends TestCase {
+
+    private static final String FOLDER_CREATE = "/folder/create.php";
+
+    private File root;
+    private FakeMediaFireClient client;
+    private Map<String, String> parents;
+    private MFUploadStore store;
+    private ExecutorService uploadExecutor;
+    private ExecutorService folderExecutor;
+    private MFDirectoryUploader directoryUploader;
+    private volatile boolean failB;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        // tree/r.txt, tree/a/a.txt, tree/a/b/b.txt
+        root = Files.createTempDirectory("tree").toFile();
+        File a = new File(root, "a");
+        File b = new File(a, "b");
+        assertTrue(b.mkdirs());
+        write(new File(root, "r.txt"));
+        write(new File(a, "a.txt"));
+        write(new File(b, "b.txt"));
+
+        client = new FakeMediaFireClient();
+        parents = Collections.synchronizedMap(new HashMap<String, String>());
+        client.respond(FOLDER_CREATE, new FakeMediaFireClient.Answer() {
+            @Override
+            public String json(MediaFireApiRequest request) {
+                String name = String.valueOf(request.getQueryParameters().get("foldername"));
+                parents.put(name, String.valueOf(request.getQueryParameters().get("parent_key")));
+                if ("b".equals(name) && failB) {
+                    return "{\"result\":\"Error\",\"error\":114,\"message\":\"folder exists\"}";
+                }
+                return "{\"folder_key\":\"key-" + name + "\"}";
+            }
+        });
+        // every file finishes through upload/instant, the uploads themselves are not part of these tests
+        client.respond("/upload/check.php", "{\"hash_exists\":\"yes\",\"in_account\":\"no\",\"in_folder\":\"no\"}");
+        client.respond("/upload/instant.php", "{\"quickkey\":\"q\",\"filename\":\"f\"}");
+        store = new MFUploadStore();
+        uploadExecutor = Executors.newSingleThreadExecutor();
+        folderExecutor = Executors.newCachedThreadPool();
+        MFUploader uploader = new MFUploader.Builder(client, store, uploadExecutor).maxActiveUploads(1).maxPendingUploads(0).simpleUploadThreshold(0).build();
+        directoryUploader = new MFDirectoryUploader(client, uploader, folderExecutor);
+    }
+
+    public void tearDown() throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (store.isWaitingForUploads() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        uploadExecutor.shutdownNow();
+        folderExecutor.shutdownNow();
+        delete(root);
+    }
+
+    public void testNestedDirectoriesGetNestedFolders() throws Exception {
+        Recorder recorder = upload();
+
+        assertEquals("myfiles", parents.get(root.getName()));
+        assertEquals("key-" + root.getName(), parents.get("a"));
+        assertEquals("key-a", parents.get("b"));
+        assertEquals(3, client.requestCount(FOLDER_CREATE));
+
+        assertEquals("key-" + root.getName(), recorder.folderOf("r.txt"));
+        assertEquals("key-a", recorder.folderOf("a.txt"));
+        assertEquals("key-b", recorder.folderOf("b.txt"));
+        assertTrue(recorder.errors.isEmpty());
+    }
+
+    public void testFolderCacheIsReused() throws Exception {
+        upload();
+        Recorder recorder = upload();
+
+        // the second tree only lists the folders created for the first
+        assertEquals(3, client.requestCount(FOLDER_CREATE));
+        assertEquals(3, recorder.files.size());
+        assertEquals("key-b", recorder.folderOf("b.txt"));
+
+        directoryUploader.clearFolderCache();
+        upload();
+        assertEquals(6, client.requestCount(FOLDER_CREATE));
+    }
+
+    public void testFailedFolderIsReportedAndRetried() throws Exception {
+        failB = true;
+        Recorder recorder = upload();
+
+        assertEquals(1, recorder.errors.size());
+        assertEquals("b", recorder.errors.get(0).getName());
+        assertNull(recorder.folderOf("b.txt"));
+        assertEquals("key-a", recorder.folderOf("a.txt"));
+
+        // the failure is not cached, the next upload of the tree tries again
+        failB = false;
+        recorder = upload();
+        assertTrue(recorder.errors.isEmpty());
+        assertEquals("key-b", recorder.folderOf("b.txt"));
+        assertEquals(4, client.requestCount(FOLDER_CREATE));
+    }
+
+    public void testSymbolicLinkToDirectoryIsNotFollowed() throws Exception {
+        try {
+            Files.createSymbolicLink(new File(new File(root, "a"), "loop").toPath(), root.toPath());
+        } catch (UnsupportedOperationException | IOException e) {
+            // the file system has no links, nothing to test
+            return;
+        }
+
+        Recorder recorder = upload();
+
+        assertEquals(3, client.requestCount(FOLDER_CREATE));
+        assertFalse(parents.containsKey("loop"));
+        assertEquals(3, recorder.files.size());
+    }
+
+    private Recorder upload() throws Exception {
+        Recorder recorder = new Recorder();
+        directoryUploader.upload(root, null, MediaFireFileUpload.ActionOnInAccount.UPLOAD_IF_NOT_IN_FOLDER, recorder);
+        assertTrue(recorder.scheduled.await(5, TimeUnit.SECONDS));
+        return recorder;
+    }
+
+    private static void write(File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(file.getName().getBytes());
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void delete(File file) throws IOException {
+        if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    delete(child);
+                }
+            }
+        }
+        Files.deleteIfExists(file.toPath());
+    }
+
+    private static class Recorder implements MFDirectoryUploader.Listener {
+        private final Map<String, String> files = Collections.synchronizedMap(new HashMap<String, String>());
+        private final List<File> errors = Collections.synchronizedList(new ArrayList<File>());
+        private final CountDownLatch scheduled = new CountDownLatch(1);
+
+        String folderOf(String fileName) {
+            return files.get(fileName);
+        }
+
+        @Override
+        public void onFolderCreated(File directory, String folderKey) {
+        }
+
+        @Override
+        public void onFolderError(File directory, MediaFireException e) {
+            errors.add(directory);
+        }
+
+        @Override
+        public void onFileScheduled(File file, MediaFireFileUpload upload) {
+            files.put(file.getName(), upload.getFolderKey());
+        }
+
+        @Override
+        public void onDirectoryScheduled(File directory) {
+            scheduled.countDown();
+        }
+    }
+}
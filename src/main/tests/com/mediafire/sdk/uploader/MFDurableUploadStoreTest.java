@@ -0,0 +1,73 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+
+public class MFDurableUploadStoreTest extends TestCase {
+
+    private File storeFile;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        storeFile = File.createTempFile("uploads", ".log");
+        storeFile.delete();
+    }
+
+    public void tearDown() throws Exception {
+        storeFile.delete();
+    }
+
+    public void testUnfinishedUploadsSurviveReopen() throws Exception {
+        MFDurableUploadStore store = new MFDurableUploadStore(storeFile);
+        MFFileUpload fileUpload = new MFFileUpload.Builder(new File("test.tmp"), "test.tmp", "myfiles")
+                .setSha256Hash("abc")
+                .setFileSize(10)
+                .setActionOnInAccount(MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS)
+                .setQuickKey("qk12345")
+                .build();
+        MFWebUpload webUpload = new MFWebUpload("http://example.com/a", "a.txt");
+        MFWebUpload finished = new MFWebUpload("http://example.com/b", "b.txt");
+        store.insert(fileUpload);
+        store.insert(webUpload);
+        store.insert(finished);
+        store.uploadQueued(fileUpload);
+        store.pollingReady(fileUpload, "key1");
+        store.uploadFinished(finished, "quick", "b.txt");
+        store.close();
+
+        store = new MFDurableUploadStore(storeFile);
+        assertEquals(2, store.getUnfinishedCount());
+
+        MediaFireUpload restored = store.getUploadByUploadKey("key1");
+        assertNotNull(restored);
+        assertEquals(fileUpload.getId(), restored.getId());
+        assertEquals(fileUpload, restored);
+        assertEquals(MFUploadStore.State.READY_TO_POLL, store.getStatus(restored).getState());
+        assertEquals(MFUploadStore.State.FINISHED, store.getStatus(finished.getId()).getState());
+
+        // new uploads do not reuse restored ids
+        MFWebUpload another = new MFWebUpload("http://example.com/c", "c.txt");
+        store.insert(another);
+        assertTrue(another.getId() > finished.getId());
+        store.close();
+    }
+
+    public void testCompactionDropsFinishedUploads() throws Exception {
+        MFDurableUploadStore store = new MFDurableUploadStore(storeFile, false, 16);
+        MFWebUpload unfinished = new MFWebUpload("http://example.com/a", "a.txt");
+        store.insert(unfinished);
+        for (int i = 0; i < 1000; i++) {
+            MFWebUpload upload = new MFWebUpload("http://example.com/" + i, i + ".txt");
+            store.insert(upload);
+            store.uploadFinished(upload, "quick" + i, i + ".txt");
+        }
+        store.close();
+
+        store = new MFDurableUploadStore(storeFile);
+        assertEquals(1, store.getUnfinishedCount());
+        assertNotNull(store.getStatus(unfinished.getId()));
+        assertTrue(store.size() < 1001);
+        store.close();
+    }
+}
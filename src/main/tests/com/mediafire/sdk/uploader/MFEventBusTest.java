@@ -0,0 +1,231 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MFEventBusTest extends TestCase {
+
+    private MFEventBus bus;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        bus = new MFEventBus(2, 8, new MFThreadFactory("test-events"));
+    }
+
+    public void tearDown() throws Exception {
+        bus.flush(5, TimeUnit.SECONDS);
+    }
+
+    public void testRingRoundsUpAndReportsFull() throws Exception {
+        MFEventRing ring = new MFEventRing(3);
+        assertEquals(4, ring.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(new Noop()));
+        }
+        assertFalse(ring.offer(new Noop()));
+
+        Runnable[] batch = new Runnable[3];
+        assertEquals(3, ring.drain(batch));
+        assertTrue(ring.offer(new Noop()));
+        assertEquals(2, ring.drain(batch));
+        assertEquals(0, ring.drain(batch));
+    }
+
+    public void testKeepsOrderPerKeyAcrossPublishers() throws Exception {
+        final int publishers = 4;
+        final int events = 2000;
+        final List<List<Integer>> seen = new ArrayList<>();
+        for (int i = 0; i < publishers; i++) {
+            seen.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+
+        final CountDownLatch done = new CountDownLatch(publishers);
+        for (int p = 0; p < publishers; p++) {
+            final Object key = new Object();
+            final List<Integer> list = seen.get(p);
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < events; i++) {
+                        final int value = i;
+                        bus.publish(key, new Runnable() {
+                            @Override
+                            public void run() {
+                                list.add(value);
+                            }
+                        });
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(bus.flush(10, TimeUnit.SECONDS));
+        for (List<Integer> list : seen) {
+            assertEquals(events, list.size());
+            for (int i = 0; i < events; i++) {
+                assertEquals(i, (int) list.get(i));
+            }
+        }
+    }
+
+    public void testFailingEventDoesNotStopConsumer() throws Exception {
+        final AtomicInteger ran = new AtomicInteger();
+        Object key = new Object();
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+            }
+        });
+        try {
+            bus.publish(key, new Runnable() {
+                @Override
+                public void run() {
+                    throw new IllegalStateException("store failed");
+                }
+            });
+            bus.publish(key, new Runnable() {
+                @Override
+                public void run() {
+                    ran.incrementAndGet();
+                }
+            });
+            assertTrue(bus.flush(5, TimeUnit.SECONDS));
+            assertEquals(1, ran.get());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+    }
+
+    public void testShutdownRunsPublishedEventsAndEndsConsumers() throws Exception {
+        final List<Integer> seen = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch release = new CountDownLatch(1);
+        Object key = new Object();
+        bus.publish(key, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                seen.add(0);
+            }
+        });
+        for (int i = 1; i < 5; i++) {
+            final int value = i;
+            bus.publish(key, new Runnable() {
+                @Override
+                public void run() {
+                    seen.add(value);
+                }
+            });
+        }
+
+        bus.shutdown();
+        assertFalse(bus.awaitTermination(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(bus.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), seen);
+    }
+
+    public void testPublishAfterShutdownRunsOnPublisher() throws Exception {
+        bus.shutdown();
+        assertTrue(bus.awaitTermination(5, TimeUnit.SECONDS));
+
+        final List<Thread> ranOn = new ArrayList<>();
+        bus.publish(new Object(), new Runnable() {
+            @Override
+            public void run() {
+                ranOn.add(Thread.currentThread());
+            }
+        });
+        assertEquals(Collections.singletonList(Thread.currentThread()), ranOn);
+        assertTrue(bus.flush(1, TimeUnit.SECONDS));
+    }
+
+    public void testNoEventLostWhilePublishersRaceShutdown() throws Exception {
+        final int publishers = 4;
+        final int events = 2000;
+        final List<List<Integer>> seen = new ArrayList<>();
+        for (int i = 0; i < publishers; i++) {
+            seen.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+
+        final CountDownLatch started = new CountDownLatch(publishers);
+        final CountDownLatch done = new CountDownLatch(publishers);
+        for (int p = 0; p < publishers; p++) {
+            final Object key = new Object();
+            final List<Integer> list = seen.get(p);
+            new Thread() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    for (int i = 0; i < events; i++) {
+                        final int value = i;
+                        bus.publish(key, new Runnable() {
+                            @Override
+                            public void run() {
+                                list.add(value);
+                            }
+                        });
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        started.await();
+        bus.shutdown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(bus.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(bus.flush(5, TimeUnit.SECONDS));
+        for (List<Integer> list : seen) {
+            assertEquals(events, list.size());
+            for (int i = 0; i < events; i++) {
+                assertEquals(i, (int) list.get(i));
+            }
+        }
+    }
+
+    public void testUploaderShutdownEndsStoreEventThreads() throws Exception {
+        int before = countThreads("mf-store-events");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MFUploader uploader = new MFUploader.Builder(new FakeMediaFireClient(), new MFUploadStore(), executor).storeEventBuffer(16).storeEventConsumers(2).build();
+            assertEquals(before + 2, countThreads("mf-store-events"));
+
+            assertTrue(uploader.shutdown(5, TimeUnit.SECONDS));
+            assertEquals(before, countThreads("mf-store-events"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int countThreads(String prefix) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith(prefix) && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class Noop implements Runnable {
+        @Override
+        public void run() {
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+public class MFPollPolicyTest extends TestCase {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private MFPollPolicy policy;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        policy = new MFPollPolicy();
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testFirstPollIsImmediateWithoutHistory() throws Exception {
+        assertEquals(0, policy.getInitialDelay(10 * MEGABYTE));
+    }
+
+    public void testSmallFilesPollFast() throws Exception {
+        assertTrue(policy.getNextInterval(2048, 0, false) <= 1000);
+    }
+
+    public void testLargeFilesPollSlower() throws Exception {
+        assertTrue(policy.getNextInterval(2000 * MEGABYTE, 0, false) > policy.getNextInterval(2048, 0, false));
+    }
+
+    public void testBackoffWhileStatusUnchanged() throws Exception {
+        long first = policy.getNextInterval(2048, 0, true);
+        long second = policy.getNextInterval(2048, first, false);
+        long third = policy.getNextInterval(2048, second, false);
+        assertTrue(second > first);
+        assertTrue(third > second);
+    }
+
+    public void testStatusChangeResetsInterval() throws Exception {
+        long first = policy.getNextInterval(2048, 0, true);
+        long backedOff = policy.getNextInterval(2048, policy.getNextInterval(2048, first, false), false);
+        assertEquals(first, policy.getNextInterval(2048, backedOff, true));
+    }
+
+    public void testIntervalIsCapped() throws Exception {
+        long interval = policy.getNextInterval(2048, 0, true);
+        for (int i = 0; i < 100; i++) {
+            interval = policy.getNextInterval(2048, interval, false);
+        }
+        assertTrue(interval <= 30 * 1000);
+    }
+
+    public void testDeadlineGrowsWithFileSize() throws Exception {
+        assertTrue(policy.getDeadline(5000 * MEGABYTE) > policy.getDeadline(2048));
+        // the old fixed limit was 24 polls 5 seconds apart
+        assertTrue(policy.getDeadline(2048) >= 2 * 60 * 1000);
+    }
+
+    public void testLearnsFromObservedCompletion() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            policy.onFinished(100 * MEGABYTE, 20000);
+        }
+        long delay = policy.getInitialDelay(100 * MEGABYTE);
+        assertTrue(delay > 5000);
+        assertTrue(delay < 20000);
+    }
+}
@@ -0,0 +1,90 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class MFPollSchedulerTest extends TestCase {
+
+    private ScheduledExecutorService timer;
+    private List<Runnable> placeholders;
+    private MFPollScheduler pollScheduler;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        placeholders = new ArrayList<>();
+        MFUploadScheduler scheduler = new MFUploadScheduler(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                synchronized (placeholders) {
+                    placeholders.add(command);
+                }
+            }
+        });
+        pollScheduler = new MFPollScheduler(timer, scheduler);
+    }
+
+    public void tearDown() throws Exception {
+        timer.shutdownNow();
+    }
+
+    public void testCancelRemovesWaitingPoll() throws Exception {
+        TestPoll poll = new TestPoll();
+        pollScheduler.schedule(poll, 200);
+        assertEquals(1, pollScheduler.getPendingCount());
+
+        pollScheduler.cancel(poll);
+        assertEquals(0, pollScheduler.getPendingCount());
+        Thread.sleep(400);
+        synchronized (placeholders) {
+            assertTrue(placeholders.isEmpty());
+        }
+    }
+
+    public void testCancelledPollIsNotRunOrRescheduled() throws Exception {
+        TestPoll poll = new TestPoll();
+        pollScheduler.schedule(poll, 0);
+        pollScheduler.cancel(poll);
+        pollScheduler.schedule(poll, 0);
+        synchronized (placeholders) {
+            assertEquals(1, placeholders.size());
+            placeholders.get(0).run();
+        }
+        assertEquals(0, poll.runs);
+    }
+
+    private static class TestPoll implements MFPollScheduler.Poll {
+        private volatile boolean cancelled;
+        private int runs;
+
+        @Override
+        public void run() {
+            runs++;
+        }
+
+        @Override
+        public int getPriority() {
+            return 0;
+        }
+
+        @Override
+        public void onRejected(RejectedExecutionException e) {
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFHasher;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class MFPreemptiveDataTest extends TestCase {
+
+    private File file;
+    private byte[] content;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        content = new byte[300 * 1024];
+        new Random(11).nextBytes(content);
+        file = File.createTempFile("preemptive", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    public void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testHashesAndKeepsHead() throws Exception {
+        MFByteBudget budget = new MFByteBudget(1024 * 1024);
+        MFPreemptiveData data = new MFPreemptiveData(new MFUploadData.FileData(file, 0), 100 * 1024, budget);
+
+        assertEquals(new MFHasher().sha256(content), data.getSha256Hash(null));
+        assertTrue(data.hasHead());
+        assertEquals(1024 * 1024 - 100 * 1024, budget.getAvailable());
+
+        // the file is gone, units in the head still read
+        file.delete();
+        MFUploadData.Reader reader = data.open();
+        ByteBuffer unit = ByteBuffer.allocate(50 * 1024);
+        reader.readFully(unit, 50 * 1024);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 50 * 1024, 100 * 1024), unit.array()));
+        reader.close();
+
+        data.release();
+        assertFalse(data.hasHead());
+        assertEquals(1024 * 1024, budget.getAvailable());
+    }
+
+    public void testReadPastHeadReleasesIt() throws Exception {
+        MFByteBudget budget = new MFByteBudget(1024 * 1024);
+        MFPreemptiveData data = new MFPreemptiveData(new MFUploadData.FileData(file, 0), 100 * 1024, budget);
+        data.getSha256Hash(null);
+
+        MFUploadData.Reader reader = data.open();
+        ByteBuffer unit = ByteBuffer.allocate(100 * 1024);
+        reader.readFully(unit, 100 * 1024);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 100 * 1024, 200 * 1024), unit.array()));
+        assertFalse(data.hasHead());
+        assertEquals(1024 * 1024, budget.getAvailable());
+
+        // reading the start again goes back to the file
+        unit.clear();
+        reader.readFully(unit, 0);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 0, 100 * 1024), unit.array()));
+        reader.close();
+    }
+
+    public void testNoHeadWhenBudgetIsTaken() throws Exception {
+        MFByteBudget budget = new MFByteBudget(64 * 1024);
+        assertTrue(budget.tryAcquire(64 * 1024, 0, TimeUnit.MILLISECONDS));
+        MFPreemptiveData data = new MFPreemptiveData(new MFUploadData.FileData(file, 0), 100 * 1024, budget);
+
+        assertEquals(new MFHasher().sha256(content), data.getSha256Hash(null));
+        assertFalse(data.hasHead());
+    }
+
+    public void testHashesInBackground() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MFPreemptiveData data = new MFPreemptiveData(new MFUploadData.FileData(file, 0), 100 * 1024, null);
+            data.start(executor);
+            assertEquals(new MFHasher().sha256(content), data.getSha256Hash(null));
+            assertTrue(data.hasHead());
+            data.release();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testReadFailureIsThrown() throws Exception {
+        MFByteBudget budget = new MFByteBudget(1024 * 1024);
+        MFPreemptiveData data = new MFPreemptiveData(new MFUploadData.FileData(file, content.length), 100 * 1024, budget);
+        file.delete();
+
+        try {
+            data.getSha256Hash(null);
+            fail("hashed a missing file");
+        } catch (IOException expected) {
+        }
+        assertFalse(data.hasHead());
+        assertEquals(1024 * 1024, budget.getAvailable());
+    }
+}
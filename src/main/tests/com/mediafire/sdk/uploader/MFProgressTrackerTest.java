@@ -0,0 +1,54 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireHttpProgressListener;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MFProgressTrackerTest extends TestCase {
+
+    private ScheduledExecutorService dispatcher;
+    private AtomicInteger deliveries;
+    private AtomicLong lastBytesSent;
+    private MFProgressTracker tracker;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        dispatcher = Executors.newSingleThreadScheduledExecutor();
+        deliveries = new AtomicInteger();
+        lastBytesSent = new AtomicLong();
+        tracker = new MFProgressTracker(dispatcher, 100, new MediaFireUploadProgressListener() {
+            @Override
+            public void onUploadProgress(MediaFireFileUpload upload, long bytesSent, long totalBytes) {
+                deliveries.incrementAndGet();
+                lastBytesSent.set(bytesSent);
+            }
+        });
+    }
+
+    public void tearDown() throws Exception {
+        dispatcher.shutdownNow();
+    }
+
+    public void testWritesAreCoalesced() throws Exception {
+        MFFileUpload upload = new MFFileUpload.Builder(new File("test.tmp"), "test.tmp").build();
+        MediaFireHttpProgressListener listener = tracker.track(upload, 1000 * 16, 0);
+        for (int i = 0; i < 1000; i++) {
+            listener.onBytesSent(16);
+        }
+        Thread.sleep(400);
+        assertTrue(deliveries.get() <= 2);
+        assertEquals(1000 * 16, lastBytesSent.get());
+    }
+
+    public void testBytesSentNeverExceedsTotal() throws Exception {
+        MFFileUpload upload = new MFFileUpload.Builder(new File("test.tmp"), "test.tmp").build();
+        MediaFireHttpProgressListener listener = tracker.track(upload, 100, 50);
+        listener.onBytesSent(100);
+        assertEquals(100, tracker.getBytesSent(upload));
+    }
+}
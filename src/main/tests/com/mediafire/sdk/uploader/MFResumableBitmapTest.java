@@ -0,0 +1,79 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MFResumableBitmapTest extends TestCase {
+
+    public void testEmptyBitmap() throws Exception {
+        MFResumableBitmap bitmap = new MFResumableBitmap(20);
+        bitmap.update(0, new ArrayList<Integer>());
+        assertEquals(0, bitmap.getUploadedCount());
+        assertFalse(bitmap.isUploaded(0));
+        assertFalse(bitmap.isComplete());
+    }
+
+    public void testSingleWord() throws Exception {
+        MFResumableBitmap bitmap = new MFResumableBitmap(16);
+        // 0b0000000000000101 -> units 0 and 2
+        bitmap.update(1, Arrays.asList(5));
+        assertTrue(bitmap.isUploaded(0));
+        assertFalse(bitmap.isUploaded(1));
+        assertTrue(bitmap.isUploaded(2));
+        assertEquals(2, bitmap.getUploadedCount());
+    }
+
+    public void testMultipleWords() throws Exception {
+        MFResumableBitmap bitmap = new MFResumableBitmap(20);
+        // first word all set, second word bit 3 -> unit 19
+        bitmap.update(2, Arrays.asList(65535, 8));
+        for (int i = 0; i < 16; i++) {
+            assertTrue(bitmap.isUploaded(i));
+        }
+        assertFalse(bitmap.isUploaded(16));
+        assertTrue(bitmap.isUploaded(19));
+        assertEquals(17, bitmap.getUploadedCount());
+    }
+
+    public void testBitsBeyondUnitCountIgnored() throws Exception {
+        MFResumableBitmap bitmap = new MFResumableBitmap(3);
+        bitmap.update(1, Arrays.asList(65535));
+        assertEquals(3, bitmap.getUploadedCount());
+        assertTrue(bitmap.isComplete());
+        assertEquals(100.0, bitmap.getPercentFinished(), 0.0001);
+    }
+
+    public void testOlderUpdateKeepsAcknowledgedUnits() throws Exception {
+        MFResumableBitmap bitmap = new MFResumableBitmap(16);
+        // the response for units 0 and 1 arrives before the one for unit 0 alone
+        bitmap.update(1, Arrays.asList(3));
+        bitmap.update(1, Arrays.asList(1));
+        assertTrue(bitmap.isUploaded(0));
+        assertTrue(bitmap.isUploaded(1));
+        assertEquals(2, bitmap.getUploadedCount());
+    }
+
+    public void testLargeBitmap() throws Exception {
+        int numUnits = 10000;
+        List<Integer> words = new ArrayList<>();
+        for (int i = 0; i < (numUnits + 15) / 16; i++) {
+            words.add(i % 2 == 0 ? 65535 : 0);
+        }
+        MFResumableBitmap bitmap = new MFResumableBitmap(numUnits);
+        bitmap.update(words.size(), words);
+        assertTrue(bitmap.isUploaded(0));
+        assertFalse(bitmap.isUploaded(16));
+        assertTrue(bitmap.isUploaded(32));
+    }
+
+    public void testMarkUploaded() throws Exception {
+        MFResumableBitmap bitmap = new MFResumableBitmap(2);
+        bitmap.markUploaded(1);
+        bitmap.markUploaded(5);
+        assertEquals(1, bitmap.getUploadedCount());
+        assertEquals(50.0, bitmap.getPercentFinished(), 0.0001);
+    }
+}
@@ -0,0 +1,288 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFHasher;
+import com.mediafire.sdk.MediaFireHasher;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MFUnitReaderTest extends TestCase {
+
+    private static final int UNIT_SIZE = 4;
+
+    private MediaFireHasher hasher;
+    private List<Thread> threads;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        hasher = new MFHasher();
+        threads = new ArrayList<>();
+    }
+
+    public void tearDown() throws Exception {
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join(1000);
+        }
+    }
+
+    public void testQueueDepthFitsBudget() throws Exception {
+        assertEquals(4, MFUnitReader.getQueueDepth(4, 100, 10));
+        assertEquals(2, MFUnitReader.getQueueDepth(4, 25, 10));
+        // always room for one unit, even over budget
+        assertEquals(1, MFUnitReader.getQueueDepth(4, 5, 10));
+        assertEquals(4, MFUnitReader.getQueueDepth(4, 5, 0));
+    }
+
+    public void testReadsEveryUnitAndLeavesEndMarker() throws Exception {
+        TestData data = new TestData(10);
+        MFUnitReader reader = new MFUnitReader(data, 10, 3, UNIT_SIZE, new MFResumableBitmap(3), hasher, 2, null);
+        start(reader);
+
+        for (int unitId = 0; unitId < 3; unitId++) {
+            MFUploadUnit unit = reader.take();
+            assertEquals(unitId, unit.getId());
+            assertEquals(unitId < 2 ? UNIT_SIZE : 2, unit.getSize());
+            assertEquals(hasher.sha256(unit.getData()), unit.getHash());
+            reader.release(unit);
+        }
+        assertNull(reader.take());
+        // the marker stays for every later call
+        assertNull(reader.take());
+        assertNull(reader.take());
+    }
+
+    public void testSkipsUploadedUnits() throws Exception {
+        TestData data = new TestData(16);
+        MFResumableBitmap bitmap = new MFResumableBitmap(4);
+        bitmap.markUploaded(1);
+        bitmap.markUploaded(3);
+        MFUnitReader reader = new MFUnitReader(data, 16, 4, UNIT_SIZE, bitmap, hasher, 4, null);
+        start(reader);
+
+        assertEquals(0, reader.take().getId());
+        assertEquals(2, reader.take().getId());
+        assertNull(reader.take());
+        assertEquals(Arrays.asList(0L, 8L), data.positions);
+    }
+
+    public void testQueueDepthBoundsReadAhead() throws Exception {
+        TestData data = new TestData(UNIT_SIZE * 8);
+        MFUnitReader reader = new MFUnitReader(data, UNIT_SIZE * 8, 8, UNIT_SIZE, new MFResumableBitmap(8), hasher, 2, null);
+        start(reader);
+
+        // two queued, and one read unit waiting for room
+        waitForReads(data, 3);
+        Thread.sleep(200);
+        assertEquals(3, data.positions.size());
+
+        reader.take();
+        waitForReads(data, 4);
+        Thread.sleep(200);
+        assertEquals(4, data.positions.size());
+        reader.cancel();
+    }
+
+    public void testBudgetBoundsUnitsAndIsGivenBack() throws Exception {
+        MFByteBudget budget = new MFByteBudget(UNIT_SIZE * 2);
+        TestData data = new TestData(UNIT_SIZE * 5);
+        MFUnitReader reader = new MFUnitReader(data, UNIT_SIZE * 5, 5, UNIT_SIZE, new MFResumableBitmap(5), hasher, 10, budget);
+        start(reader);
+
+        waitForReads(data, 2);
+        Thread.sleep(200);
+        // the queue has room, the budget does not
+        assertEquals(2, data.positions.size());
+        assertEquals(0, budget.getAvailable());
+
+        MFUploadUnit unit;
+        while ((unit = reader.take()) != null) {
+            reader.release(unit);
+        }
+        assertEquals(5, data.positions.size());
+        assertEquals(UNIT_SIZE * 2, budget.getAvailable());
+    }
+
+    public void testReadFailureIsThrownAndBudgetGivenBack() throws Exception {
+        MFByteBudget budget = new MFByteBudget(100);
+        TestData data = new TestData(UNIT_SIZE * 4);
+        data.failAt = UNIT_SIZE * 2;
+        MFUnitReader reader = new MFUnitReader(data, UNIT_SIZE * 4, 4, UNIT_SIZE, new MFResumableBitmap(4), hasher, 4, budget);
+        start(reader);
+
+        reader.release(reader.take());
+        MFUploadUnit second = reader.take();
+        assertEquals(1, second.getId());
+        for (int i = 0; i < 2; i++) {
+            try {
+                reader.take();
+                fail("read failure not thrown");
+            } catch (IOException e) {
+                assertEquals("failed at " + UNIT_SIZE * 2, e.getMessage());
+            }
+        }
+        reader.release(second);
+        assertEquals(100, budget.getAvailable());
+        assertTrue(data.closed);
+    }
+
+    public void testCancelGivesBackBufferedUnits() throws Exception {
+        MFByteBudget budget = new MFByteBudget(100);
+        TestData data = new TestData(UNIT_SIZE * 8);
+        MFUnitReader reader = new MFUnitReader(data, UNIT_SIZE * 8, 8, UNIT_SIZE, new MFResumableBitmap(8), hasher, 2, budget);
+        Thread thread = start(reader);
+        waitForReads(data, 3);
+
+        reader.cancel();
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+        assertEquals(100, budget.getAvailable());
+        assertNull(reader.take());
+        assertTrue(data.closed);
+    }
+
+    public void testInterruptWaitingForBudgetIsThrown() throws Exception {
+        MFByteBudget budget = new MFByteBudget(UNIT_SIZE);
+        TestData data = new TestData(UNIT_SIZE * 3);
+        MFUnitReader reader = new MFUnitReader(data, UNIT_SIZE * 3, 3, UNIT_SIZE, new MFResumableBitmap(3), hasher, 3, budget);
+        Thread thread = start(reader);
+
+        // held, the reader waits for the budget
+        MFUploadUnit first = reader.take();
+        waitForReads(data, 1);
+        thread.interrupt();
+        thread.join(2000);
+        assertFalse(thread.isAlive());
+
+        try {
+            reader.take();
+            fail("interrupt not thrown");
+        } catch (InterruptedIOException expected) {
+        }
+        reader.release(first);
+        assertEquals(UNIT_SIZE, budget.getAvailable());
+    }
+
+    public void testInterruptedTakeCancelsReading() throws Exception {
+        MFByteBudget budget = new MFByteBudget(100);
+        TestData data = new TestData(UNIT_SIZE * 8);
+        data.blocked = true;
+        final MFUnitReader reader = new MFUnitReader(data, UNIT_SIZE * 8, 8, UNIT_SIZE, new MFResumableBitmap(8), hasher, 2, budget);
+        Thread readerThread = start(reader);
+
+        final List<Throwable> thrown = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reader.take();
+                } catch (IOException e) {
+                    thrown.add(e);
+                }
+            }
+        });
+        sender.start();
+        threads.add(sender);
+        Thread.sleep(100);
+        sender.interrupt();
+        sender.join(1000);
+        assertEquals(1, thrown.size());
+        assertTrue(thrown.get(0) instanceof InterruptedIOException);
+
+        data.unblock();
+        readerThread.join(2000);
+        assertFalse(readerThread.isAlive());
+        // stopped after the unit it was reading, which is given back
+        assertEquals(1, data.positions.size());
+        assertEquals(100, budget.getAvailable());
+    }
+
+    private Thread start(MFUnitReader reader) {
+        Thread thread = new Thread(reader);
+        thread.start();
+        threads.add(thread);
+        return thread;
+    }
+
+    private static void waitForReads(TestData data, int reads) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (data.positions.size() < reads && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(data.positions.size() >= reads);
+    }
+
+    /**
+     * bytes in memory which records every read, can fail at a position or hold reads until unblocked
+     */
+    private static class TestData extends MFUploadData {
+        private final byte[] bytes;
+        private final List<Long> positions = Collections.synchronizedList(new ArrayList<Long>());
+        private volatile long failAt = -1;
+        private volatile boolean blocked;
+        private volatile boolean closed;
+
+        TestData(int size) {
+            this.bytes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                this.bytes[i] = (byte) i;
+            }
+        }
+
+        synchronized void unblock() {
+            this.blocked = false;
+            notifyAll();
+        }
+
+        private synchronized void awaitUnblocked() throws IOException {
+            while (this.blocked) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("interrupted while blocked");
+                }
+            }
+        }
+
+        @Override
+        long getSize() {
+            return this.bytes.length;
+        }
+
+        @Override
+        String getSha256Hash(MediaFireHasher hasher) {
+            return hasher.sha256(this.bytes);
+        }
+
+        @Override
+        boolean isRereadable() {
+            return true;
+        }
+
+        @Override
+        Reader open() {
+            return new Reader() {
+                @Override
+                public void readFully(ByteBuffer buffer, long position) throws IOException {
+                    positions.add(position);
+                    awaitUnblocked();
+                    if (position == failAt) {
+                        throw new IOException("failed at " + position);
+                    }
+                    buffer.put(bytes, (int) position, buffer.remaining());
+                }
+
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mediafire.sdk.uploader;
+
+import com.google.gson.Gson;
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.upload.UploadResumableResponse;
+import junit.framework.TestCase;
+
+import java.net.SocketTimeoutException;
+
+public class MFUnitRetryPolicyTest extends TestCase {
+
+    private MFUnitRetryPolicy policy;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        policy = new MFUnitRetryPolicy(3, 100);
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testExceptionsClassifiedByCause() throws Exception {
+        assertEquals(MFUnitRetryPolicy.Failure.NETWORK, MFUnitRetryPolicy.classify(new MediaFireException("IO exception: ", new SocketTimeoutException())));
+        assertEquals(MFUnitRetryPolicy.Failure.FATAL, MFUnitRetryPolicy.classify(new MediaFireException("could not get action token")));
+    }
+
+    public void testResponsesClassified() throws Exception {
+        assertNull(MFUnitRetryPolicy.classify(response("{\"result\":\"Success\",\"doupload\":{\"result\":0}}")));
+        assertEquals(MFUnitRetryPolicy.Failure.HASH_MISMATCH, MFUnitRetryPolicy.classify(response("{\"result\":\"Success\",\"doupload\":{\"result\":-1}}")));
+        assertEquals(MFUnitRetryPolicy.Failure.TOKEN_EXPIRED, MFUnitRetryPolicy.classify(response("{\"result\":\"Error\",\"error\":105}")));
+        assertEquals(MFUnitRetryPolicy.Failure.FATAL, MFUnitRetryPolicy.classify(response("{\"result\":\"Error\",\"error\":110}")));
+    }
+
+    public void testRetriesLimitedToMaxAttempts() throws Exception {
+        assertTrue(policy.shouldRetry(MFUnitRetryPolicy.Failure.NETWORK, 1));
+        assertTrue(policy.shouldRetry(MFUnitRetryPolicy.Failure.NETWORK, 2));
+        assertFalse(policy.shouldRetry(MFUnitRetryPolicy.Failure.NETWORK, 3));
+        assertFalse(policy.shouldRetry(MFUnitRetryPolicy.Failure.FATAL, 1));
+    }
+
+    public void testBackoffGrowsWithJitterAndCap() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            long first = policy.getBackoff(1);
+            long third = policy.getBackoff(3);
+            assertTrue(first >= 50 && first <= 100);
+            assertTrue(third >= 200 && third <= 400);
+            assertTrue(policy.getBackoff(50) <= 30 * 1000);
+        }
+    }
+
+    private static UploadResumableResponse response(String json) {
+        return new Gson().fromJson(json, UploadResumableResponse.class);
+    }
+}
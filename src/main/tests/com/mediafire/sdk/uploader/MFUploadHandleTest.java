@@ -0,0 +1,73 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MFUploadHandleTest extends TestCase {
+
+    public void tearDown() throws Exception {
+        // never leave an interrupt for the next test
+        Thread.interrupted();
+    }
+
+    public void testInterruptFromCancelIsClearedOnExit() throws Exception {
+        MFUploadHandle handle = handle();
+        assertTrue(handle.enter());
+
+        assertTrue(handle.markCancelled());
+        assertTrue(Thread.currentThread().isInterrupted());
+
+        handle.exit();
+        assertFalse(Thread.interrupted());
+    }
+
+    public void testOtherInterruptIsKeptOnExit() throws Exception {
+        MFUploadHandle handle = handle();
+        assertTrue(handle.enter());
+
+        Thread.currentThread().interrupt();
+        handle.exit();
+        assertTrue(Thread.interrupted());
+    }
+
+    public void testCancelKeepsInterruptOfThreadItDidNotInterrupt() throws Exception {
+        final MFUploadHandle handle = handle();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final AtomicBoolean workerInterrupted = new AtomicBoolean(true);
+        Thread worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                handle.enter();
+                entered.countDown();
+                while (!Thread.currentThread().isInterrupted()) {
+                    Thread.yield();
+                }
+                handle.exit();
+                workerInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        worker.setDaemon(true);
+        worker.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertTrue(handle.markCancelled());
+        worker.join(5000);
+        assertFalse(worker.isAlive());
+        assertFalse(workerInterrupted.get());
+
+        // this thread was not working on the upload when it was cancelled, as when cancel() lands between a thread
+        // leaving the upload and exit() deciding what to clear, so an interrupt from e.g. shutdownNow() is kept
+        Thread.currentThread().interrupt();
+        handle.exit();
+        assertTrue(Thread.interrupted());
+    }
+
+    private static MFUploadHandle handle() {
+        MFFileUpload upload = new MFFileUpload.Builder(new File("a.txt"), "a.txt").build();
+        return new MFUploadHandle(null, upload, MFUploader.PRIORITY_NORMAL, 0);
+    }
+}
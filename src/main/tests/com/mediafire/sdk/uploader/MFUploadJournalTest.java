@@ -0,0 +1,123 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+public class MFUploadJournalTest extends TestCase {
+
+    private File journalFile;
+    private File uploadFile;
+    private MFFileUpload upload;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        journalFile = File.createTempFile("journal", ".log");
+        journalFile.delete();
+        uploadFile = File.createTempFile("testfile", ".tmp");
+        FileOutputStream out = new FileOutputStream(uploadFile);
+        out.write(new byte[1024]);
+        out.close();
+        upload = new MFFileUpload.Builder(uploadFile, "testfile.tmp", "myfiles").build();
+    }
+
+    public void tearDown() throws Exception {
+        journalFile.delete();
+        uploadFile.delete();
+    }
+
+    public void testEmptyJournal() throws Exception {
+        MFUploadJournal journal = new MFUploadJournal(journalFile);
+        assertNull(journal.get(upload));
+        journal.close();
+    }
+
+    public void testStateSurvivesReopen() throws Exception {
+        MFUploadJournal journal = new MFUploadJournal(journalFile);
+        journal.hashed(upload, "abc");
+        journal.resumableStarted(upload, 4, 256);
+        journal.unitUploaded(upload, 0, "unit0");
+        journal.unitUploaded(upload, 2, "unit2");
+        journal.close();
+
+        journal = new MFUploadJournal(journalFile);
+        MediaFireUploadJournal.Entry entry = journal.get(upload);
+        assertNotNull(entry);
+        assertEquals("abc", entry.getSha256Hash());
+        assertEquals(4, entry.getNumberOfUnits());
+        assertEquals(256, entry.getUnitSize());
+        assertTrue(entry.getUploadedUnits().get(0));
+        assertFalse(entry.getUploadedUnits().get(1));
+        assertTrue(entry.getUploadedUnits().get(2));
+        assertEquals("unit2", entry.getUnitHash(2));
+        assertNull(entry.getUploadKey());
+        journal.close();
+    }
+
+    public void testRemove() throws Exception {
+        MFUploadJournal journal = new MFUploadJournal(journalFile);
+        journal.hashed(upload, "abc");
+        journal.readyToPoll(upload, "uploadkey");
+        journal.remove(upload);
+        journal.close();
+
+        journal = new MFUploadJournal(journalFile);
+        assertNull(journal.get(upload));
+        journal.close();
+    }
+
+    public void testTornRecordIgnored() throws Exception {
+        MFUploadJournal journal = new MFUploadJournal(journalFile);
+        journal.hashed(upload, "abc");
+        journal.readyToPoll(upload, "uploadkey");
+        journal.close();
+
+        // chop the last record in half as if the process died while writing it
+        RandomAccessFile raf = new RandomAccessFile(journalFile, "rw");
+        raf.setLength(raf.length() - 5);
+        raf.close();
+
+        journal = new MFUploadJournal(journalFile);
+        MediaFireUploadJournal.Entry entry = journal.get(upload);
+        assertEquals("abc", entry.getSha256Hash());
+        assertNull(entry.getUploadKey());
+
+        journal.readyToPoll(upload, "uploadkey2");
+        journal.close();
+
+        journal = new MFUploadJournal(journalFile);
+        assertEquals("uploadkey2", journal.get(upload).getUploadKey());
+        journal.close();
+    }
+
+    public void testChangedFileIsNotResumed() throws Exception {
+        MFUploadJournal journal = new MFUploadJournal(journalFile);
+        journal.hashed(upload, "abc");
+
+        FileOutputStream out = new FileOutputStream(uploadFile, true);
+        out.write(new byte[10]);
+        out.close();
+
+        assertNull(journal.get(upload));
+        journal.close();
+    }
+
+    public void testCompaction() throws Exception {
+        MFUploadJournal journal = new MFUploadJournal(journalFile);
+        journal.hashed(upload, "abc");
+        journal.resumableStarted(upload, 3000, 256);
+        for (int i = 0; i < 3000; i++) {
+            journal.unitUploaded(upload, i % 10, "unit" + (i % 10));
+        }
+        journal.close();
+
+        long length = journalFile.length();
+        journal = new MFUploadJournal(journalFile);
+        MediaFireUploadJournal.Entry entry = journal.get(upload);
+        assertEquals(10, entry.getUploadedUnits().cardinality());
+        journal.close();
+        assertTrue(length < 3000 * 50);
+    }
+}
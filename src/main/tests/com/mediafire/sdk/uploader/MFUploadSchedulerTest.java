@@ -0,0 +1,111 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class MFUploadSchedulerTest extends TestCase {
+
+    private List<Runnable> placeholders;
+    private List<String> ran;
+    private MFUploadScheduler scheduler;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        placeholders = new ArrayList<>();
+        ran = new ArrayList<>();
+        scheduler = new MFUploadScheduler(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                placeholders.add(command);
+            }
+        });
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testHigherPriorityRunsFirstWithinLane() throws Exception {
+        scheduler.execute(MFUploadScheduler.Lane.CHECK, MFUploader.PRIORITY_LOW, task("low"));
+        scheduler.execute(MFUploadScheduler.Lane.CHECK, MFUploader.PRIORITY_NORMAL, task("normal"));
+        scheduler.execute(MFUploadScheduler.Lane.CHECK, MFUploader.PRIORITY_HIGH, task("high"));
+        runAll();
+        assertEquals("high", ran.get(0));
+        assertEquals("normal", ran.get(1));
+        assertEquals("low", ran.get(2));
+    }
+
+    public void testSamePriorityIsFifo() throws Exception {
+        scheduler.execute(MFUploadScheduler.Lane.CHECK, 0, task("a"));
+        scheduler.execute(MFUploadScheduler.Lane.CHECK, 0, task("b"));
+        runAll();
+        assertEquals("a", ran.get(0));
+        assertEquals("b", ran.get(1));
+    }
+
+    public void testResumableLaneDoesNotBlockInstantLane() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            scheduler.execute(MFUploadScheduler.Lane.RESUMABLE, MFUploader.PRIORITY_HIGH, task("resumable"));
+        }
+        for (int i = 0; i < 10; i++) {
+            scheduler.execute(MFUploadScheduler.Lane.INSTANT, MFUploader.PRIORITY_LOW, task("instant"));
+        }
+        runAll();
+        int instantInFirstHalf = 0;
+        for (int i = 0; i < 10; i++) {
+            if ("instant".equals(ran.get(i))) {
+                instantInFirstHalf++;
+            }
+        }
+        assertTrue(instantInFirstHalf >= 5);
+        assertTrue(ran.subList(0, 10).contains("resumable"));
+    }
+
+    public void testEveryTaskRunsOnce() throws Exception {
+        for (MFUploadScheduler.Lane lane : MFUploadScheduler.Lane.values()) {
+            scheduler.execute(lane, 0, task(lane.name()));
+        }
+        assertEquals(MFUploadScheduler.Lane.values().length, scheduler.getQueuedCount());
+        runAll();
+        assertEquals(MFUploadScheduler.Lane.values().length, ran.size());
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+
+    public void testPausedTasksWaitWithoutHoldingThreads() throws Exception {
+        scheduler.execute(MFUploadScheduler.Lane.CHECK, 0, task("before"));
+        scheduler.pause();
+        scheduler.execute(MFUploadScheduler.Lane.CHECK, 0, task("during"));
+        assertEquals(1, placeholders.size());
+
+        // the placeholder handed out before the pause returns without running anything
+        runAll();
+        assertTrue(ran.isEmpty());
+        assertEquals(2, scheduler.getQueuedCount());
+
+        scheduler.resume();
+        assertFalse(scheduler.isPaused());
+        runAll();
+        assertEquals(2, ran.size());
+        assertEquals(0, scheduler.getQueuedCount());
+    }
+
+    private void runAll() {
+        List<Runnable> toRun = new ArrayList<>(placeholders);
+        placeholders.clear();
+        for (Runnable placeholder : toRun) {
+            placeholder.run();
+        }
+    }
+
+    private Runnable task(final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+}
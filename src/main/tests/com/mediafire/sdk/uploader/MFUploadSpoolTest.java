@@ -0,0 +1,94 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFHasher;
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class MFUploadSpoolTest extends TestCase {
+
+    private File directory;
+    private byte[] content;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("spool", ".dir");
+        directory.delete();
+        directory.mkdirs();
+        content = new byte[200 * 1024];
+        new Random(7).nextBytes(content);
+    }
+
+    public void tearDown() throws Exception {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public void testSpoolsInMemoryBelowThreshold() throws Exception {
+        MFUploadData data = MFUploadSpool.spool(new MFUploadSource(new ByteArrayInputStream(content)), content.length, directory);
+        assertEquals(content.length, data.getSize());
+        assertEquals(new MFHasher().sha256(content), data.getSha256Hash(null));
+        assertEquals(0, directory.listFiles().length);
+        assertTrue(Arrays.equals(content, readAll(data)));
+    }
+
+    public void testSpoolsToFileAboveThreshold() throws Exception {
+        MFUploadData data = MFUploadSpool.spool(new MFUploadSource(new ByteArrayInputStream(content)), 1000, directory);
+        assertEquals(content.length, data.getSize());
+        assertEquals(new MFHasher().sha256(content), data.getSha256Hash(null));
+        assertEquals(1, directory.listFiles().length);
+        assertTrue(Arrays.equals(content, readAll(data)));
+        // read again for a second pass
+        assertTrue(Arrays.equals(content, readAll(data)));
+
+        data.release();
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    public void testSourceWithSizeAndHashIsNotSpooled() throws Exception {
+        MFUploadSource source = new MFUploadSource(new ByteArrayInputStream(content), content.length, "abc");
+        MediaFireFileUpload upload = new MFFileUpload.Builder(source, "streamed.bin").build();
+        assertEquals(content.length, upload.getFileSize());
+
+        MFUploadData data = MFUploadData.forUpload(upload);
+        assertNotNull(data);
+        assertFalse(data.isRereadable());
+
+        MFUploadData.Reader reader = data.open();
+        ByteBuffer unit = ByteBuffer.allocate(1000);
+        reader.readFully(unit, 5000);
+        assertTrue(Arrays.equals(Arrays.copyOfRange(content, 5000, 6000), unit.array()));
+        try {
+            reader.readFully(ByteBuffer.allocate(10), 0);
+            fail("read backwards");
+        } catch (IOException expected) {
+        }
+        reader.close();
+    }
+
+    public void testSourceWithoutHashIsSpooled() throws Exception {
+        MFUploadSource source = new MFUploadSource(new ByteArrayInputStream(content), content.length, null);
+        assertNull(MFUploadData.forUpload(new MFFileUpload.Builder(source, "streamed.bin").build()));
+    }
+
+    private static byte[] readAll(MFUploadData data) throws IOException {
+        MFUploadData.Reader reader = data.open();
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate((int) data.getSize());
+            reader.readFully(buffer, 0);
+            return buffer.array();
+        } finally {
+            reader.close();
+        }
+    }
+}
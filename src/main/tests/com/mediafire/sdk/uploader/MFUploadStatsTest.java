@@ -0,0 +1,91 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+public class MFUploadStatsTest extends TestCase {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private MFUploadStats stats;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        stats = new MFUploadStats();
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testStageCounts() throws Exception {
+        MediaFireFileUpload first = newUpload("a.tmp", 1000);
+        MediaFireFileUpload second = newUpload("a.tmp", 1000);
+        stats.added(first, 1000);
+        stats.added(second, 1000);
+        assertEquals(2, stats.getUploadCount(MediaFireUploadStats.Stage.QUEUED));
+
+        stats.stage(first, MediaFireUploadStats.Stage.HASHING);
+        stats.stage(second, MediaFireUploadStats.Stage.TRANSFERRING);
+        assertEquals(0, stats.getUploadCount(MediaFireUploadStats.Stage.QUEUED));
+        assertEquals(1, stats.getUploadCount(MediaFireUploadStats.Stage.HASHING));
+        assertEquals(1, stats.getUploadCount(MediaFireUploadStats.Stage.TRANSFERRING));
+
+        stats.ended(second);
+        stats.stage(second, MediaFireUploadStats.Stage.POLLING);
+        assertEquals(0, stats.getUploadCount(MediaFireUploadStats.Stage.TRANSFERRING));
+        assertEquals(0, stats.getUploadCount(MediaFireUploadStats.Stage.POLLING));
+    }
+
+    public void testBytesRemaining() throws Exception {
+        MediaFireFileUpload first = newUpload("a.tmp", 1000);
+        MediaFireFileUpload second = newUpload("b.tmp", 500);
+        stats.added(first, 1000);
+        stats.added(second, 500);
+        assertEquals(1500, stats.getBytesRemaining());
+
+        stats.bytesOnServer(first, 400);
+        stats.bytesSent(second, 200);
+        assertEquals(900, stats.getBytesRemaining());
+
+        // a unit sent twice is not counted twice
+        stats.bytesSent(second, 10000);
+        assertEquals(600, stats.getBytesRemaining());
+        assertEquals(0, stats.getEstimatedTimeRemaining(second));
+
+        stats.ended(first);
+        assertEquals(0, stats.getBytesRemaining());
+        assertEquals(0, stats.getEstimatedTimeRemaining());
+        assertEquals(-1, stats.getEstimatedTimeRemaining(first));
+    }
+
+    public void testRateMeterAverages() throws Exception {
+        MFRateMeter meter = new MFRateMeter(SECOND, 5 * SECOND, 0);
+        meter.record(123456, 0);
+        assertEquals(0d, meter.getRate(0));
+
+        meter.record(500, SECOND / 2);
+        meter.record(500, SECOND);
+        assertEquals(1000d, meter.getRate(SECOND), 0.001);
+
+        meter.record(3000, 2 * SECOND);
+        double rate = meter.getRate(2 * SECOND);
+        assertTrue("rate: " + rate, rate > 1000 && rate < 3000);
+    }
+
+    public void testRateMeterDecaysWhenIdle() throws Exception {
+        MFRateMeter meter = new MFRateMeter(SECOND, 5 * SECOND, 0);
+        meter.record(0, 0);
+        meter.record(1000, SECOND);
+        assertEquals(1000d, meter.getRate(2 * SECOND), 0.001);
+        assertTrue(meter.getRate(30 * SECOND) < 10);
+    }
+
+    private static MediaFireFileUpload newUpload(String name, long size) {
+        MFFileUpload.Builder builder = new MFFileUpload.Builder(new File(name), name);
+        builder.setFileSize(size);
+        return builder.build();
+    }
+}
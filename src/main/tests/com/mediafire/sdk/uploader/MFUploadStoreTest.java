@@ -0,0 +1,96 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+
+public class MFUploadStoreTest extends TestCase {
+
+    private MFUploadStore store;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        store = new MFUploadStore();
+    }
+
+    public void tearDown() throws Exception {
+
+    }
+
+    public void testInsertAssignsIds() throws Exception {
+        MFWebUpload first = new MFWebUpload("http://example.com/a", "a.txt");
+        MFWebUpload second = new MFWebUpload("http://example.com/b", "b.txt");
+        store.insert(first);
+        store.insert(second);
+        assertTrue(first.getId() > 0);
+        assertTrue(second.getId() > first.getId());
+        assertSame(first, store.getUpload(first.getId()));
+        assertEquals(MFUploadStore.State.INSERTED, store.getStatus(first).getState());
+    }
+
+    public void testLookupByUploadKey() throws Exception {
+        MFWebUpload upload = new MFWebUpload("http://example.com/a", "a.txt");
+        store.insert(upload);
+        store.uploadQueued(upload);
+        store.pollingReady(upload, "key1");
+        assertSame(upload, store.getUploadByUploadKey("key1"));
+        assertEquals("key1", store.getStatus(upload).getUploadKey());
+    }
+
+    public void testTerminalStateIsFinal() throws Exception {
+        MFFileUpload upload = new MFFileUpload.Builder(new File("test.tmp"), "test.tmp").build();
+        store.insert(upload);
+        assertTrue(store.isWaitingForUploads());
+        store.uploadFinished(upload, "quick", "test.tmp");
+        store.uploadProgress(upload, 50);
+        MFUploadStore.Status status = store.getStatus(upload);
+        assertEquals(MFUploadStore.State.FINISHED, status.getState());
+        assertEquals("quick", status.getQuickKey());
+        assertFalse(store.isWaitingForUploads());
+        assertEquals(1, store.clearFinished());
+        assertNull(store.getStatus(upload));
+    }
+
+    public void testCancelledIsTerminal() throws Exception {
+        MFWebUpload upload = new MFWebUpload("http://example.com/a", "a.txt");
+        store.insert(upload);
+        store.uploadQueued(upload);
+        store.uploadCancelled(upload);
+        store.pollingError(upload, 1, 2, "late error");
+        assertEquals(MFUploadStore.State.CANCELLED, store.getStatus(upload).getState());
+        assertEquals(0, store.getUnfinishedCount());
+    }
+
+    public void testGetNextUploadSkipsQueued() throws Exception {
+        MFWebUpload first = new MFWebUpload("http://example.com/a", "a.txt");
+        MFWebUpload second = new MFWebUpload("http://example.com/b", "b.txt");
+        store.insert(first);
+        store.insert(second);
+        store.uploadQueued(first);
+        assertSame(second, store.getNextUpload());
+        assertNull(store.getNextUpload());
+    }
+
+    public void testConcurrentTransitionsCountOnce() throws Exception {
+        final MFWebUpload upload = new MFWebUpload("http://example.com/a", "a.txt");
+        store.insert(upload);
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        store.polling(upload, j, null);
+                    }
+                    store.uploadFinished(upload, "quick", "a.txt");
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, store.getUnfinishedCount());
+        assertEquals(MFUploadStore.State.FINISHED, store.getStatus(upload).getState());
+    }
+}
@@ -0,0 +1,94 @@
+package com.mediafire.sdk.uploader;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MFUploaderAdmissionTest extends TestCase {
+
+    private static final int UPLOADS = 60;
+
+    private File file;
+    private ExecutorService executor;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("admission", ".tmp");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("contents already on the server".getBytes());
+        } finally {
+            out.close();
+        }
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    public void testScheduleRacingUploadEndedStartsEveryUpload() throws Exception {
+        FakeMediaFireClient client = new FakeMediaFireClient();
+        // every upload finishes straight away through upload/instant, ending while others are being scheduled
+        client.respond("/upload/check.php", "{\"hash_exists\":\"yes\",\"in_account\":\"no\",\"in_folder\":\"no\"}");
+        client.respond("/upload/instant.php", "{\"quickkey\":\"q\",\"filename\":\"f\"}");
+        final MFUploadStore store = new MFUploadStore(UPLOADS);
+        final MFUploader uploader = new MFUploader.Builder(client, store, executor)
+                .maxActiveUploads(1)
+                .maxPendingUploads(2)
+                .simpleUploadThreshold(0)
+                .build();
+        final String sha256Hash = client.getHasher().sha256(file);
+
+        final List<MFFileUpload> uploads = Collections.synchronizedList(new ArrayList<MFFileUpload>());
+        final CountDownLatch go = new CountDownLatch(1);
+        List<Thread> schedulers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < UPLOADS / 3; j++) {
+                        MFFileUpload.Builder builder = new MFFileUpload.Builder(file, "f");
+                        builder.setFileSize(file.length());
+                        builder.setSha256Hash(sha256Hash);
+                        MFFileUpload upload = builder.build();
+                        uploads.add(upload);
+                        uploader.schedule(upload);
+                    }
+                }
+            });
+            // left blocked in schedule() if an upload is lost, must not keep the test run alive
+            thread.setDaemon(true);
+            thread.start();
+            schedulers.add(thread);
+        }
+        go.countDown();
+        for (Thread thread : schedulers) {
+            thread.join(10000);
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (store.isWaitingForUploads() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(UPLOADS, uploads.size());
+        for (MFFileUpload upload : uploads) {
+            assertEquals(MFUploadStore.State.FINISHED, store.getStatus(upload).getState());
+        }
+        assertFalse(store.isWaitingForUploads());
+        assertEquals(0, uploader.getActiveUploadCount());
+    }
+}
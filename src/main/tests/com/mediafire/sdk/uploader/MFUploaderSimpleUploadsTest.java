@@ -0,0 +1,186 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireApiRequest;
+import com.mediafire.sdk.MediaFireException;
+import com.mediafire.sdk.response_models.MediaFireApiResponse;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MFUploaderSimpleUploadsTest extends TestCase {
+
+    private static final String SIMPLE = "/upload/simple.php";
+    private static final String UPDATE = "/upload/update.php";
+    private static final String CHECK = "/upload/check.php";
+    private static final String POLL = "/upload/poll_upload.php";
+    private static final String DO_UPLOAD = "{\"doupload\":{\"result\":0,\"key\":\"upload-key\"}}";
+
+    private File file;
+    private FakeMediaFireClient client;
+    private ExecutorService executor;
+    private MFUploadStore store;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("simple", ".tmp");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("small file".getBytes());
+        } finally {
+            out.close();
+        }
+        client = new FakeMediaFireClient();
+        client.respond(SIMPLE, DO_UPLOAD);
+        client.respond(UPDATE, DO_UPLOAD);
+        client.respond(POLL, "{\"doupload\":{\"result\":0,\"status\":99,\"quickkey\":\"q\",\"filename\":\"a.txt\"}}");
+        client.respond(CHECK, "{\"hash_exists\":\"yes\",\"in_account\":\"no\",\"in_folder\":\"no\"}");
+        client.respond("/upload/instant.php", "{\"quickkey\":\"q\",\"filename\":\"a.txt\"}");
+        executor = Executors.newFixedThreadPool(2);
+        store = new MFUploadStore();
+    }
+
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    public void testDisabledByDefault() throws Exception {
+        MFUploader uploader = new MFUploader.Builder(client, store, executor).build();
+
+        upload(uploader, builder(MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS));
+
+        assertTrue(client.requested(CHECK));
+        assertFalse(client.requested(SIMPLE));
+    }
+
+    public void testFileAtThresholdIsSentSimply() throws Exception {
+        MFUploader uploader = uploader(file.length());
+
+        MFFileUpload upload = upload(uploader, builder(MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS));
+
+        assertEquals(MFUploadStore.State.FINISHED, store.getStatus(upload).getState());
+        assertEquals(1, client.requestCount(SIMPLE));
+        assertFalse(client.requested(CHECK));
+        assertEquals("folder", client.parameter(SIMPLE, "folder_key"));
+        assertEquals("keep", client.parameter(SIMPLE, "action_on_duplicate"));
+    }
+
+    public void testFileOverThresholdIsChecked() throws Exception {
+        MFUploader uploader = uploader(file.length() - 1);
+
+        upload(uploader, builder(MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS));
+
+        assertTrue(client.requested(CHECK));
+        assertFalse(client.requested(SIMPLE));
+    }
+
+    public void testOnlyUploadAlwaysIsSentSimply() throws Exception {
+        MFUploader uploader = uploader(file.length());
+
+        upload(uploader, builder(MediaFireFileUpload.ActionOnInAccount.UPLOAD_IF_NOT_IN_FOLDER));
+
+        // whether to upload at all depends on upload/check
+        assertTrue(client.requested(CHECK));
+        assertFalse(client.requested(SIMPLE));
+    }
+
+    public void testUploadWithQuickKeyIsSentToUpdate() throws Exception {
+        MFUploader uploader = uploader(file.length());
+        MFFileUpload.Builder builder = builder(MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS);
+        builder.setQuickKey("target");
+
+        MFFileUpload upload = upload(uploader, builder);
+
+        assertEquals(MFUploadStore.State.FINISHED, store.getStatus(upload).getState());
+        assertEquals(1, client.requestCount(UPDATE));
+        assertFalse(client.requested(SIMPLE));
+        assertEquals("target", client.parameter(UPDATE, "quick_key"));
+        assertNull(client.parameter(UPDATE, "folder_key"));
+    }
+
+    public void testPollsUntilFinished() throws Exception {
+        final AtomicInteger polls = new AtomicInteger();
+        client.respond(POLL, new FakeMediaFireClient.Answer() {
+            @Override
+            public String json(MediaFireApiRequest request) {
+                if (polls.incrementAndGet() == 1) {
+                    return "{\"doupload\":{\"result\":0,\"status\":17,\"description\":\"verifying\"}}";
+                }
+                return "{\"doupload\":{\"result\":0,\"status\":99,\"quickkey\":\"q\",\"filename\":\"a.txt\"}}";
+            }
+        });
+        MFUploader uploader = uploader(file.length());
+
+        MFFileUpload upload = upload(uploader, builder(MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS));
+
+        assertEquals(2, client.requestCount(POLL));
+        assertEquals("upload-key", client.parameter(POLL, "key"));
+        assertEquals(MFUploadStore.State.FINISHED, store.getStatus(upload).getState());
+        assertEquals("q", store.getStatus(upload).getQuickKey());
+    }
+
+    public void testWaitsForMemoryBudget() throws Exception {
+        MFFileUpload upload = builder(MediaFireFileUpload.ActionOnInAccount.UPLOAD_ALWAYS).build();
+        MFByteBudget budget = new MFByteBudget(file.length());
+        budget.acquire(1);
+        final CountDownLatch ready = new CountDownLatch(1);
+        MFRunnableSimpleUpload runnable = new MFRunnableSimpleUpload(client, upload, MFUploadData.forUpload(upload), budget, null, new MFRunnableSimpleUpload.OnSimpleUploadStatusListener() {
+            @Override
+            public void onSimpleUploadReadyToPoll(MediaFireFileUpload upload, String uploadKey) {
+                ready.countDown();
+            }
+
+            @Override
+            public void onSimpleUploadSdkException(MediaFireFileUpload upload, MediaFireException e) {
+            }
+
+            @Override
+            public void onSimpleUploadIOException(MediaFireFileUpload upload, IOException e) {
+            }
+
+            @Override
+            public void onSimpleUploadApiError(MediaFireFileUpload upload, MediaFireApiResponse response) {
+            }
+        });
+        executor.execute(runnable);
+
+        // the whole file has to fit, one byte short holds the upload back
+        assertFalse(ready.await(300, TimeUnit.MILLISECONDS));
+        assertFalse(client.requested(SIMPLE));
+
+        budget.release(1);
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        assertEquals(1, client.requestCount(SIMPLE));
+        assertEquals(file.length(), budget.getAvailable());
+    }
+
+    private MFUploader uploader(long simpleUploadThreshold) {
+        return new MFUploader.Builder(client, store, executor).simpleUploadThreshold(simpleUploadThreshold).build();
+    }
+
+    private MFFileUpload.Builder builder(MediaFireFileUpload.ActionOnInAccount actionOnInAccount) {
+        MFFileUpload.Builder builder = new MFFileUpload.Builder(file, "a.txt", "folder");
+        builder.setFileSize(file.length());
+        builder.setActionOnInAccount(actionOnInAccount);
+        return builder;
+    }
+
+    private MFFileUpload upload(MFUploader uploader, MFFileUpload.Builder builder) throws Exception {
+        MFFileUpload upload = builder.build();
+        uploader.schedule(upload);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (store.isWaitingForUploads() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(store.isWaitingForUploads());
+        return upload;
+    }
+}
@@ -0,0 +1,82 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MFHasher;
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class MFUploaderUpdatesTest extends TestCase {
+
+    private static final String TARGET_QUICK_KEY = "target";
+
+    private File file;
+    private String sha256Hash;
+    private ExecutorService executor;
+    private MFUploadStore store;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("update", ".tmp");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write("contents of the update".getBytes());
+        } finally {
+            out.close();
+        }
+        sha256Hash = new MFHasher().sha256(file);
+        executor = Executors.newFixedThreadPool(2);
+        store = new MFUploadStore(1);
+    }
+
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    public void testTargetWithSameContentFinishesWithoutUploading() throws Exception {
+        FakeMediaFireClient client = new FakeMediaFireClient();
+        // another file in the folder has the same name, its hash differs from the update
+        client.respond("/upload/check.php", "{\"hash_exists\":\"yes\",\"in_account\":\"yes\",\"in_folder\":\"yes\",\"duplicate_quickkey\":\"other\",\"different_hash\":\"yes\"}");
+        client.respond("/file/get_info.php", "{\"file_info\":{\"quickkey\":\"" + TARGET_QUICK_KEY + "\",\"filename\":\"a.txt\",\"hash\":\"" + sha256Hash + "\"}}");
+
+        MFFileUpload upload = schedule(client);
+
+        assertEquals(MFUploadStore.State.FINISHED, store.getStatus(upload).getState());
+        assertEquals(TARGET_QUICK_KEY, store.getStatus(upload).getQuickKey());
+        assertFalse(client.requested("/upload/instant.php"));
+    }
+
+    public void testTargetWithOtherContentIsReplacedInstantly() throws Exception {
+        FakeMediaFireClient client = new FakeMediaFireClient();
+        // the file of the same name in the folder is the target and already has the content, as far as check says
+        client.respond("/upload/check.php", "{\"hash_exists\":\"yes\",\"in_account\":\"yes\",\"in_folder\":\"yes\",\"duplicate_quickkey\":\"" + TARGET_QUICK_KEY + "\",\"different_hash\":\"no\"}");
+        client.respond("/file/get_info.php", "{\"file_info\":{\"quickkey\":\"" + TARGET_QUICK_KEY + "\",\"filename\":\"a.txt\",\"hash\":\"0123\"}}");
+        client.respond("/upload/instant.php", "{\"quickkey\":\"" + TARGET_QUICK_KEY + "\",\"filename\":\"a.txt\"}");
+
+        MFFileUpload upload = schedule(client);
+
+        assertEquals(MFUploadStore.State.FINISHED, store.getStatus(upload).getState());
+        assertTrue(client.requested("/upload/instant.php"));
+        assertEquals(TARGET_QUICK_KEY, client.parameter("/upload/instant.php", "quick_key"));
+    }
+
+    private MFFileUpload schedule(FakeMediaFireClient client) throws Exception {
+        MFUploader uploader = new MFUploader(client, store, executor, 98);
+        MFFileUpload.Builder builder = new MFFileUpload.Builder(file, "a.txt");
+        builder.setFileSize(file.length());
+        builder.setSha256Hash(sha256Hash);
+        builder.setQuickKey(TARGET_QUICK_KEY);
+        MFFileUpload upload = builder.build();
+        uploader.schedule(upload);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (store.isWaitingForUploads() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(store.isWaitingForUploads());
+        return upload;
+    }
+}
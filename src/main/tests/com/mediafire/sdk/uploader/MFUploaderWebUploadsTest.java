@@ -97,4 +97,31 @@ public class MFUploaderWebUploadsTest extends TestCase {
 
         assertTrue(true);
     }
-}
\ No newline at end of file
+
+    public void testBulkWebUploadSweep() throws Exception {
+        store = new MFUploadStore(URLS.size());
+        uploader = new MFUploader.Builder(mediaFire, store, executor)
+                .statusCodeToFinish(98)
+                .webUploadSweepInterval(2000)
+                .maxConcurrentWebUploadRequests(4)
+                .build();
+        executor.resume();
+        List<MediaFireWebUpload> uploads = new ArrayList<>();
+        for (String url : URLS) {
+            MediaFireWebUpload webUpload = new MFWebUpload(url, URI.create(url).toURL().getFile().replaceFirst("/", ""), null);
+            uploads.add(webUpload);
+            uploader.schedule(webUpload);
+        }
+
+        while (store.isWaitingForUploads()) {
+            Thread.sleep(250);
+            System.out.println("uploader still running");
+        }
+
+        // every upload ends one way or another, none is left waiting on the sweep
+        for (MediaFireWebUpload webUpload : uploads) {
+            assertTrue(store.getStatus(webUpload).getState().isTerminal());
+        }
+        assertEquals(0, store.getUnfinishedCount());
+    }
+}
@@ -0,0 +1,129 @@
+package com.mediafire.sdk.uploader;
+
+import com.mediafire.sdk.MediaFireException;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class MFWebUploadSweepTest extends TestCase {
+
+    private static final String PATH = "/upload/get_web_uploads.php";
+    private static final String API_ERROR = "{\"result\":\"Error\",\"error\":105,\"message\":\"session token expired\"}";
+
+    private ScheduledExecutorService timer;
+    private FakeMediaFireClient client;
+    private List<String> events;
+    private MFWebUploadSweep sweep;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        client = new FakeMediaFireClient();
+        events = Collections.synchronizedList(new ArrayList<String>());
+        MFUploadScheduler scheduler = new MFUploadScheduler(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                // sweeps are run by the tests
+            }
+        });
+        // long enough that the timer never runs a sweep during a test
+        sweep = new MFWebUploadSweep(client, new Recorder(), 98, new MFPollScheduler(timer, scheduler), new MFPollPolicy(), 60 * 60 * 1000);
+    }
+
+    public void tearDown() throws Exception {
+        timer.shutdownNow();
+    }
+
+    public void testFinishedUploadIsReported() throws Exception {
+        sweep.track(new MFWebUpload("http://a", "a"), "ka");
+        sweep.track(new MFWebUpload("http://b", "b"), "kb");
+        client.respond(PATH, "{\"web_uploads\":[{\"uploadkey\":\"ka\",\"quickkey\":\"qa\",\"filename\":\"a\",\"status_code\":99},{\"uploadkey\":\"kb\",\"status_code\":5,\"status\":\"fetching\"}]}");
+
+        sweep.run();
+
+        assertTrue(events.contains("finished a qa"));
+        assertTrue(events.contains("progress b 5"));
+        assertEquals(1, sweep.getTrackedCount());
+    }
+
+    public void testRepeatedRequestFailuresAreReported() throws Exception {
+        sweep.track(new MFWebUpload("http://a", "a"), "ka");
+        sweep.track(new MFWebUpload("http://b", "b"), "kb");
+
+        sweep.run();
+        sweep.run();
+        assertTrue(events.isEmpty());
+        assertEquals(2, sweep.getTrackedCount());
+
+        sweep.run();
+        assertTrue(events.contains("exception a unexpected request " + PATH));
+        assertTrue(events.contains("exception b unexpected request " + PATH));
+        assertEquals(0, sweep.getTrackedCount());
+    }
+
+    public void testRepeatedApiErrorsAreReported() throws Exception {
+        sweep.track(new MFWebUpload("http://a", "a"), "ka");
+        client.respond(PATH, API_ERROR);
+
+        sweep.run();
+        sweep.run();
+        sweep.run();
+
+        assertEquals(1, events.size());
+        assertEquals("exception a upload/get_web_uploads failed: session token expired", events.get(0));
+        assertEquals(0, sweep.getTrackedCount());
+    }
+
+    public void testSuccessfulSweepResetsFailures() throws Exception {
+        sweep.track(new MFWebUpload("http://a", "a"), "ka");
+        client.respond(PATH, API_ERROR);
+        sweep.run();
+        sweep.run();
+
+        client.respond(PATH, "{\"web_uploads\":[]}");
+        sweep.run();
+
+        client.respond(PATH, API_ERROR);
+        sweep.run();
+        sweep.run();
+        assertTrue(events.isEmpty());
+        assertEquals(1, sweep.getTrackedCount());
+    }
+
+    private class Recorder implements MFRunnableGetWebUpload.OnGetWebUploadStatusListener {
+        @Override
+        public void onGetWebUploadsProgress(MediaFireWebUpload upload, int statusCode, String description) {
+            events.add("progress " + upload.getFileName() + " " + statusCode);
+        }
+
+        @Override
+        public void onGetWebUploadsFinished(MediaFireWebUpload upload, String quickKey, String filename) {
+            events.add("finished " + upload.getFileName() + " " + quickKey);
+        }
+
+        @Override
+        public void onGetWebUploadsError(MediaFireWebUpload upload, int statusCode, int errorStatus, String description) {
+            events.add("error " + upload.getFileName() + " " + errorStatus);
+        }
+
+        @Override
+        public void onGetWebUploadsSdkException(MediaFireWebUpload upload, MediaFireException e) {
+            events.add("exception " + upload.getFileName() + " " + e.getMessage());
+        }
+
+        @Override
+        public void onGetWebUploadsInterrupted(MediaFireWebUpload upload, InterruptedException e) {
+            events.add("interrupted " + upload.getFileName());
+        }
+
+        @Override
+        public void onGetWebUploadsLimitExceeded(MediaFireWebUpload upload) {
+            events.add("limit " + upload.getFileName());
+        }
+    }
+}